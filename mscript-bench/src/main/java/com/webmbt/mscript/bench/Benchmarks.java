@@ -0,0 +1,24 @@
+package com.webmbt.mscript.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the MScript benchmarks, reporting allocation rates (<code>-prof gc</code>) along with timings. Takes the usual
+ * JMH command line options, e.g. <code>java -jar target/benchmarks.jar Dispatch -f 2</code> only runs {@link
+ * DispatchBenchmark}, in two forks.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build())
+            .run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.MScriptEngine;
+import com.webmbt.mscript.MScriptError;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks a model's worth of scripts (the sample scripts, many times over) at once, with script caching disabled, on
+ * fork-join pools of increasing parallelism: how {@link MScriptEngine#checkMScripts(java.util.Collection,
+ * MbtScriptExecutor, List, ForkJoinPool) bulk checks} scale with the number of cores.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckBenchmark {
+
+    private static final int COPIES = 50;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private final List<String> scripts = new ArrayList<>();
+
+    private MScriptEngine engine;
+
+    private MbtScriptExecutor systemFunctions;
+
+    private List<PluginAncestor> availablePlugins;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        FunctionsFixture fixture = new FunctionsFixture();
+        systemFunctions = fixture.getSystemFunctions();
+        availablePlugins = fixture.getAvailablePlugins();
+
+        for (int i = 0; i < COPIES; i++) {
+            for (String script : Corpus.SCRIPTS) {
+                scripts.add(Corpus.script(script));
+            }
+        }
+
+        engine = new MScriptEngine(0);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<List<MScriptError>> checkMScripts() {
+        return engine.checkMScripts(scripts, systemFunctions, availablePlugins, pool);
+    }
+}
@@ -0,0 +1,65 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The code benchmarks run on: the sample scripts MScript is tested with (<code>src/test/resources/mscript</code> in
+ * the <code>mscript</code> module) and a few guards of the kind models check over and over again.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class Corpus {
+
+    /** Sample script names, also usable as benchmark parameter values. */
+    public static final String[] SCRIPTS = {
+        "01-simple-assignments", "02-function-calls", "03-complex-if", "04-large"
+    };
+
+    /** Representative guards, referring to {@link #setUpVariables(MbtScriptExecutor) variables}. */
+    public static final String[] GUARDS = {//@fmt:off
+        "state == 'LoggedIn'",
+        "count < 10",
+        "retries + 1 <= maxRetries",
+        "$size(user) > 0",
+        "$web.isPresent('login')",
+        "$dataGen.upperCase(state) != 'LOGGEDOUT'",
+        "'[count]/[maxRetries]' == '3/5'",
+    };//@fmt:on
+
+    public static void setUpVariables(MbtScriptExecutor systemFunctions) {
+        systemFunctions.setVar("state", "LoggedIn");
+        systemFunctions.setVar("count", "3");
+        systemFunctions.setVar("retries", "2");
+        systemFunctions.setVar("maxRetries", "5");
+        systemFunctions.setVar("user", "jdoe");
+    }
+
+    /**
+     * @param name one of {@link #SCRIPTS}
+     */
+    public static String script(String name) {
+        String resource = "mscript/" + name + ".mscript";
+        try (InputStream in = Corpus.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Cannot find sample script " + resource + " on the class path");
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read sample script " + resource, e);
+        }
+    }
+
+    private Corpus() {}
+}
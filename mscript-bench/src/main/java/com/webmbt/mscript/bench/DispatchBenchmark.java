@@ -0,0 +1,87 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.DispatchTable;
+import com.webmbt.mscript.Functions;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls one-argument functions: a system function, a plugin function called without its plugin name and the same
+ * plugin function called with it. Calls are either looked up every time in a {@link DispatchTable} or resolved once.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"$g", "$upperCase", "$dataGen.upperCase"})
+    public String call;
+
+    private String pluginName;
+
+    private String functionName;
+
+    private MbtScriptExecutor systemFunctions;
+
+    private List<PluginAncestor> availablePlugins;
+
+    private DispatchTable dispatchTable;
+
+    private DispatchTable.Entry entry;
+
+    private Object target;
+
+    @Setup
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        FunctionsFixture fixture = new FunctionsFixture();
+        systemFunctions = fixture.getSystemFunctions();
+        availablePlugins = fixture.getAvailablePlugins();
+
+        int dot = call.indexOf('.');
+        pluginName = dot < 0 ? null : call.substring(1, dot);
+        functionName = call.substring(dot < 0 ? 1 : dot + 1);
+
+        dispatchTable = new Functions().dispatchTable(systemFunctions, availablePlugins);
+        entry = dispatchTable.entry(pluginName, functionName, 1);
+        if (entry == null) {
+            throw new IllegalStateException("Cannot call " + call + " with one argument");
+        }
+        target = entry.target(systemFunctions, availablePlugins);
+    }
+
+    @Benchmark
+    public String lookUpAndInvoke() {
+        return dispatchTable.entry(pluginName, functionName, 1).invoke(systemFunctions, availablePlugins, "abc");
+    }
+
+    @Benchmark
+    public String invokeEntry() {
+        return entry.invoke(systemFunctions, availablePlugins, "abc");
+    }
+
+    @Benchmark
+    public String callFunction() {
+        return entry.function.call1(target, "abc");
+    }
+}
@@ -0,0 +1,76 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.MScriptEngine;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the {@link Corpus#GUARDS guards} through {@link MScriptEngine#executeMScript(String, MbtScriptExecutor,
+ * List)}, i.e. including the script cache lookup, interpreted or compiled to bytecode.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecuteBenchmark {
+
+    @Param({//@fmt:off
+        "state == 'LoggedIn'",
+        "count < 10",
+        "retries + 1 <= maxRetries",
+        "$size(user) > 0",
+        "$web.isPresent('login')",
+        "$dataGen.upperCase(state) != 'LOGGEDOUT'",
+        "'[count]/[maxRetries]' == '3/5'",
+    })//@fmt:on
+    public String guard;
+
+    /** See {@link MScriptEngine#setCompileThreshold(int)}: <code>-1</code> interprets, <code>0</code> compiles. */
+    @Param({"-1", "0"})
+    public int compileThreshold;
+
+    private MScriptEngine engine;
+
+    private MbtScriptExecutor systemFunctions;
+
+    private List<PluginAncestor> availablePlugins;
+
+    @Setup
+    public void setUp() throws Throwable {
+        FunctionsFixture fixture = new FunctionsFixture();
+        systemFunctions = fixture.getSystemFunctions();
+        availablePlugins = fixture.getAvailablePlugins();
+        Corpus.setUpVariables(systemFunctions);
+
+        engine = new MScriptEngine().setCompileThreshold(compileThreshold);
+        String result = engine.executeMScript(guard, systemFunctions, availablePlugins);
+        if (result.startsWith("[E_")) {
+            throw new IllegalStateException(guard + ": " + result);
+        }
+    }
+
+    @Benchmark
+    public String executeMScript() throws Throwable {
+        return engine.executeMScript(guard, systemFunctions, availablePlugins);
+    }
+}
@@ -0,0 +1,62 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.parse.MScriptLexer;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes the sample scripts, as is (the way tooling sees them) and with comments and newlines hidden from the
+ * parser (the way code compiled for execution is tokenized).
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"01-simple-assignments", "02-function-calls", "03-complex-if", "04-large"})
+    public String script;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Corpus.script(script);
+    }
+
+    @Benchmark
+    public int lex() {
+        return lex(new MScriptLexer(new ANTLRInputStream(source)));
+    }
+
+    @Benchmark
+    public int lexHidingTrivia() {
+        return lex(new MScriptLexer(new ANTLRInputStream(source)).setHiddenTrivia(true, false));
+    }
+
+    private static int lex(MScriptLexer lexer) {
+        int tokens = 0;
+        for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+            tokens += token.getChannel() == Token.DEFAULT_CHANNEL ? 1 : 0;
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,87 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.parse.MScriptLexer;
+import com.webmbt.mscript.parse.MScriptParser;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses the sample scripts (<code>script()</code>) and the {@link Corpus#GUARDS guards} (<code>cond()</code>) from
+ * tokens lexed up front, so that only parsing is measured, in either prediction mode.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"01-simple-assignments", "02-function-calls", "03-complex-if", "04-large"})
+    public String script;
+
+    @Param({"LL", "SLL"})
+    public PredictionMode predictionMode;
+
+    private List<? extends Token> scriptTokens;
+
+    private List<? extends Token>[] guardTokens;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        scriptTokens = lex(Corpus.script(script));
+        guardTokens = new List[Corpus.GUARDS.length];
+        for (int i = 0; i < guardTokens.length; i++) {
+            guardTokens[i] = lex(Corpus.GUARDS[i]);
+        }
+    }
+
+    @Benchmark
+    public ParserRuleContext script() {
+        return parser(scriptTokens).script();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7) // Corpus.GUARDS.length
+    public void cond(Blackhole blackhole) {
+        for (List<? extends Token> tokens : guardTokens) {
+            blackhole.consume(parser(tokens).cond());
+        }
+    }
+
+    private MScriptParser parser(List<? extends Token> tokens) {
+        MScriptParser parser = new MScriptParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.getInterpreter().setPredictionMode(predictionMode);
+        return parser;
+    }
+
+    private static List<? extends Token> lex(String source) {
+        CommonTokenStream tokens = new CommonTokenStream(new MScriptLexer(new ANTLRInputStream(source)));
+        tokens.fill();
+        return tokens.getTokens();
+    }
+}
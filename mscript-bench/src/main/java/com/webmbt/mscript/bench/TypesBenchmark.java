@@ -0,0 +1,49 @@
+package com.webmbt.mscript.bench;
+
+import com.webmbt.mscript.Types;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares values the way guards do: numerically if both sides are numbers, as strings otherwise. Non-numeric values
+ * (typically state names) used to cost a <code>NumberFormatException</code> per comparison.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypesBenchmark {
+
+    @Param({"LoggedIn", "3", "-1.5e3", "true", "1x"})
+    public String value;
+
+    @Benchmark
+    public boolean isEqual() {
+        return Types.isEqual(value, "LoggedOut");
+    }
+
+    @Benchmark
+    public boolean isLess() {
+        return Types.isLess(value, "10");
+    }
+
+    @Benchmark
+    public boolean isNumber() {
+        return Types.isNumber(value);
+    }
+}
@@ -0,0 +1,270 @@
+package com.webmbt.mscript.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.FilerException;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ * Generates, at build time, a <code>FunctionRegistry</code> (see the <code>mscript</code> module) for every public,
+ * concrete subclass of <code>PluginAncestor</code> or <code>MbtScriptExecutor</code> compiled along with it, so that
+ * MScript function discovery does not need reflection at run time. Registries follow the run time discovery rules to
+ * the letter: <code>MSCRIPT_METHOD</code>-annotated public methods (inherited ones included) implement MScript
+ * functions with the same name and other public methods declared by the class itself implement functions with their
+ * name prefixed by <code>_</code>.
+ * </p>
+ * <p>
+ * Registries invoke the implementing methods directly, through a <code>switch</code> on the position of the
+ * implementation. Classes with function implementations taking anything but strings are reported (as warnings) and
+ * left to run time discovery, which rejects them. Registries which do not match the class they describe any more
+ * (e.g. left behind by an incremental build) are ignored at run time as well.
+ * </p>
+ * <p>
+ * The processor only refers to MScript types by name so that it does not depend on the <code>mscript</code> module
+ * itself; it is enabled by simply putting it on the compile class path.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+@SupportedAnnotationTypes("*")
+public class FunctionRegistryProcessor extends AbstractProcessor {
+
+    static final String MSCRIPT_METHOD = "com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD";
+
+    static final String[] FUNCTION_CLASSES = {//@fmt:off
+        "com.webmbt.plugin.PluginAncestor",
+        "com.webmbt.plugin.MbtScriptExecutor",
+    };//@fmt:on
+
+    static final String FUNCTION_REGISTRY = "com.webmbt.mscript.FunctionRegistry";
+
+    static final String SUFFIX = "$MScriptFunctions"; // see FunctionRegistry.SUFFIX
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() { return SourceVersion.latestSupported(); }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        List<TypeMirror> functionClasses = new ArrayList<>();
+        for (String functionClass : FUNCTION_CLASSES) {
+            TypeElement element = processingEnv.getElementUtils().getTypeElement(functionClass);
+            if (element != null) {
+                functionClasses.add(processingEnv.getTypeUtils().erasure(element.asType()));
+            }
+        }
+        if (functionClasses.isEmpty() ||
+            processingEnv.getElementUtils().getTypeElement(FUNCTION_REGISTRY) == null) {
+            return false; // nothing to generate registries for or against
+        }
+
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            process(type, functionClasses);
+        }
+        return false; // other processors may want to look at the same annotations
+    }
+
+    protected void process(TypeElement type, List<TypeMirror> functionClasses) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            process(nested, functionClasses);
+        }
+
+        if (type.getKind() != ElementKind.CLASS || !type.getModifiers().contains(Modifier.PUBLIC) ||
+            type.getModifiers().contains(Modifier.ABSTRACT) ||
+            (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+            return;
+        }
+
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type.asType());
+        boolean isFunctionClass = false;
+        for (TypeMirror functionClass : functionClasses) {
+            isFunctionClass |= processingEnv.getTypeUtils().isAssignable(erasure, functionClass);
+        }
+        if (!isFunctionClass) {
+            return;
+        }
+
+        List<Implementation> implementations = new ArrayList<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+
+            String name;
+            if (isAnnotated(method)) {
+                name = method.getSimpleName().toString();
+            } else if (method.getEnclosingElement().equals(type)) {
+                name = "_" + method.getSimpleName();
+            } else {
+                continue;
+            }
+
+            for (VariableElement parameter : method.getParameters()) {
+                if (!parameter.asType().toString().equals("java.lang.String")) {
+                    processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.WARNING, "MScript functions can only accept java.lang.String arguments; no " +
+                                                 "function registry generated for " + type.getQualifiedName(), method);
+                    return;
+                }
+            }
+            implementations.add(new Implementation(name, method));
+        }
+
+        try {
+            generate(type, implementations);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR, "Cannot generate the function registry of " + type.getQualifiedName() + ": " + e,
+                type);
+        }
+    }
+
+    protected boolean isAnnotated(ExecutableElement method) {
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(MSCRIPT_METHOD)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void generate(TypeElement type, List<Implementation> implementations) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String registryName = binaryName + SUFFIX;
+        String simpleName = registryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1);
+        String typeName = type.getQualifiedName().toString();
+
+        // Registries are regenerated on every build, so that they follow the classes they describe. Incremental
+        // builds may however feed previously generated registries back as compiler inputs, which cannot be recreated;
+        // these may be out of date, in which case they are ignored at run time:
+        JavaFileObject source;
+        try {
+            source = processingEnv.getFiler().createSourceFile(registryName, type);
+        } catch (FilerException fe) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.NOTE, "Cannot regenerate " + registryName + " (" + fe.getMessage() + "); it is " +
+                                      "checked against " + typeName + " at run time", type);
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(source.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * The MScript functions implemented by {@link " + typeName + "}.");
+            out.println(" * <p>");
+            out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+            out.println(" * </p>");
+            out.println(" */");
+            out.println("public final class " + simpleName + " implements " + FUNCTION_REGISTRY + " {");
+            out.println();
+            out.println("    private static final String[] NAMES = {" + names(implementations, true) + "};");
+            out.println();
+            out.println("    private static final String[] METHOD_NAMES = {" + names(implementations, false) + "};");
+            out.println();
+            out.println("    private static final int[] ARITIES = {" + arities(implementations) + "};");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<?> type() { return " + typeName + ".class; }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int size() { return NAMES.length; }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String name(int function) { return NAMES[function]; }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String methodName(int function) { return METHOD_NAMES[function]; }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public int arity(int function) { return ARITIES[function]; }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Object invoke(int function, Object target, String[] args) throws Throwable {");
+            out.println("        switch (function) {");
+            for (int i = 0; i < implementations.size(); i++) {
+                out.println("        case " + i + ":");
+                out.println("            " + invocation(typeName, implementations.get(i).method));
+            }
+            out.println("        default:");
+            out.println("            throw new IllegalArgumentException(\"no function implementation #\" + function);");
+            out.println("        }");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    private static String names(List<Implementation> implementations, boolean functionNames) {
+        StringBuilder names = new StringBuilder();
+        for (Implementation implementation : implementations) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append('"').append(functionNames ? implementation.name : implementation.method.getSimpleName())
+                 .append('"');
+        }
+        return names.toString();
+    }
+
+    private static String arities(List<Implementation> implementations) {
+        StringBuilder arities = new StringBuilder();
+        for (Implementation implementation : implementations) {
+            if (arities.length() > 0) {
+                arities.append(", ");
+            }
+            arities.append(implementation.method.getParameters().size());
+        }
+        return arities.toString();
+    }
+
+    private static String invocation(String typeName, ExecutableElement method) {
+        StringBuilder call = new StringBuilder();
+        if (method.getModifiers().contains(Modifier.STATIC)) {
+            call.append(((TypeElement) method.getEnclosingElement()).getQualifiedName());
+        } else {
+            call.append("((").append(typeName).append(") target)");
+        }
+        call.append('.').append(method.getSimpleName()).append('(');
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            call.append(i == 0 ? "" : ", ").append("args[").append(i).append(']');
+        }
+        call.append(')');
+
+        return method.getReturnType().getKind() == TypeKind.VOID ? call + "; return null;" : "return " + call + ";";
+    }
+
+    /** An MScript function implementation: a method and the name of the function it implements. */
+    protected static final class Implementation {
+
+        final String name;
+
+        final ExecutableElement method;
+
+        Implementation(String name, ExecutableElement method) {
+            this.name = name;
+            this.method = method;
+        }
+    }
+}
@@ -1,10 +1,8 @@
 package com.webmbt.mscript;
 
-import com.webmbt.mscript.parse.MScriptLexer;
 import com.webmbt.mscript.parse.MScriptParser;
 import com.webmbt.mscript.testrig.fixture.FunctionsFixture;
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.gui.TreeTextProvider;
 import org.antlr.v4.runtime.tree.gui.TreeViewer.DefaultTreeTextProvider;
@@ -16,12 +14,14 @@ import javax.swing.filechooser.FileFilter;
 import javax.swing.text.JTextComponent;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
 import java.awt.Component;
 import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -113,18 +114,32 @@ public class MScriptTestRig extends javax.swing.JFrame {
             }
         });
 
+        parseTimer = new Timer(PARSE_DELAY_MILLIS, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (parseWorker != null) {
+                    parseWorker.cancel(true); // its outcome would be obsolete anyway
+                }
+                // Create a new ParseWorker each time; SwingWorkers are not normally reused:
+                parseWorker = new ParseWorker(srcPane.getText());
+                parseWorker.execute();
+            }
+        });
+        parseTimer.setRepeats(false);
+
         srcPane.getDocument().addDocumentListener(new DocumentListener() {
 
             @Override
             public void insertUpdate(DocumentEvent e) {
                 getRootPane().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                new ParseWorker().execute(); // create a new ParseWorker each time; SwingWorkers are not normally reused
+                parseTimer.restart(); // only parse once typing pauses
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
                 getRootPane().setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-                new ParseWorker().execute(); // create a new ParseWorker each time; SwingWorkers are not normally reused
+                parseTimer.restart(); // only parse once typing pauses
             }
 
             @Override
@@ -322,12 +337,7 @@ public class MScriptTestRig extends javax.swing.JFrame {
             return null;
         }
 
-        String text = textProvider.getText(parseTree);
-        if (text != null) {
-            text = text.replaceAll("(\r?\n)|\r", "<NEWLINE>"); // make white spaces visible somehow...
-        }
-
-        DefaultMutableTreeNode viewTree = new DefaultMutableTreeNode(text);
+        DefaultMutableTreeNode viewTree = new DefaultMutableTreeNode(viewText(textProvider.getText(parseTree)));
 
         int childCount = parseTree.getChildCount();
         for (int i = 0; i < childCount; i++) {
@@ -336,49 +346,104 @@ public class MScriptTestRig extends javax.swing.JFrame {
         return viewTree;
     }
 
-    private void expandViewTree() {
-        int j = treeView.getRowCount(), i = 0;
-        while (i < j) {
-            treeView.expandRow(i++);
-            j = treeView.getRowCount();
+    private static String viewText(String text) {
+        return text == null ? null : text.replaceAll("(\r?\n)|\r", "<NEWLINE>"); // make white spaces visible somehow...
+    }
+
+    private void expandViewTree(DefaultMutableTreeNode viewTree) {
+        for (int i = 0; i < viewTree.getChildCount(); i++) {
+            DefaultMutableTreeNode child = (DefaultMutableTreeNode) viewTree.getChildAt(i);
+            if (!child.isLeaf()) {
+                treeView.expandPath(new TreePath(child.getPath()));
+                expandViewTree(child);
+            }
         }
     }
 
-    private class ParseWorker extends SwingWorker<ParseTree, MScriptError> {
+    /**
+     * Patches the displayed tree so that it shows the segments of <code>result</code>; the nodes of the segments that
+     * have been reused by the incremental parser are left as they are (along with their expansion state).
+     */
+    private void updateViewTree(IncrementalParser.Result result) {
+        DefaultTreeModel treeModel = (DefaultTreeModel) treeView.getModel();
+        DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeModel.getRoot();
+        if (root == null) {
+            treeModel.setRoot(root = new DefaultMutableTreeNode(MScriptParser.ruleNames[MScriptParser.RULE_script]));
+        }
+
+        List<IncrementalParser.Segment> segments = result.segments;
+        int oldSize = shownSegments.size(), newSize = segments.size(), minSize = Math.min(oldSize, newSize);
+        int prefix = 0, prefixNodes = 0;
+        while (prefix < minSize && shownSegments.get(prefix) == segments.get(prefix)) {
+            prefixNodes += shownNodeCounts.get(prefix++);
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix &&
+               shownSegments.get(oldSize - 1 - suffix) == segments.get(newSize - 1 - suffix)) {
+            suffix++;
+        }
+
+        for (int k = prefix; k < oldSize - suffix; k++) {
+            for (int n = shownNodeCounts.get(k); n > 0; n--) {
+                treeModel.removeNodeFromParent((DefaultMutableTreeNode) root.getChildAt(prefixNodes));
+            }
+        }
 
-        private MScriptLexer mScriptLexer;
+        List<Integer> nodeCounts = new ArrayList<>(shownNodeCounts.subList(0, prefix));
+        int index = prefixNodes, start = result.start(prefix);
+        for (int k = prefix; k < newSize - suffix; k++) {
+            IncrementalParser.Segment segment = segments.get(k);
+            for (Token token : result.tokens.subList(start, start + segment.gap)) { // separators, comments, etc.
+                treeModel.insertNodeInto(new DefaultMutableTreeNode(viewText(token.getText())), root, index++);
+            }
+            if (segment.statement != null) {
+                DefaultMutableTreeNode statement = createViewTree(segment.statement, TREE_TEXT_PROVIDER);
+                treeModel.insertNodeInto(statement, root, index++);
+                treeView.expandPath(new TreePath(statement.getPath()));
+                expandViewTree(statement);
+            }
+            nodeCounts.add(segment.gap + (segment.statement == null ? 0 : 1));
+            start += segment.size;
+        }
+        nodeCounts.addAll(shownNodeCounts.subList(oldSize - suffix, oldSize));
 
-        private MScriptParser mScriptParser;
+        shownSegments = segments;
+        shownNodeCounts = nodeCounts;
+        treeView.expandRow(0);
+    }
 
-        private final List<MScriptError> mScriptErrors = new ArrayList<>(); // accumulates errors for later reporting
+    private class ParseWorker extends SwingWorker<IncrementalParser.Result, MScriptError> {
 
-        @Override
-        protected ParseTree doInBackground() throws Exception {
-            mScriptLexer = new MScriptLexer(new ANTLRInputStream(srcPane.getText()));
+        private final String mScript;
 
-            mScriptParser = new MScriptParser(new CommonTokenStream(mScriptLexer), fixture.getSystemFunctions(),
-                                              fixture.getAvailablePlugins());
-            mScriptParser.addErrorListener(new MScriptErrorListener(srcPane.getText(), mScriptErrors));
+        ParseWorker(String mScript) {
+            this.mScript = mScript;
+        }
 
-            return mScriptParser.script();
+        @Override
+        protected IncrementalParser.Result doInBackground() throws Exception {
+            return incrementalParser.update(mScript); // only the edited statements get parsed again
         }
 
         @Override
         protected void done() {
+            if (isCancelled() || parseWorker != this) {
+                return; // superseded by a newer edit, do not publish an obsolete outcome
+            }
+
             try {
                 synchronized (MScriptTestRig.class) {
+                    IncrementalParser.Result result = get();
+
                     // Update the syntax errors list:
                     DefaultListModel<MScriptError> errModel = (DefaultListModel<MScriptError>) errList.getModel();
                     errModel.clear();
-                    for (MScriptError syntaxError : mScriptErrors) {
+                    for (MScriptError syntaxError : result.errors) {
                         errModel.addElement(syntaxError);
                     }
 
                     // Update the parse tree:
-                    DefaultTreeModel treeModel = (DefaultTreeModel) treeView.getModel();
-                    treeModel.setRoot(createViewTree(get(), new DefaultTreeTextProvider(Arrays.asList(mScriptParser.
-                                                     getRuleNames()))));
-                    expandViewTree();
+                    updateViewTree(result);
                 }
             } catch (Throwable throwable) {
                 JOptionPane.showMessageDialog(MScriptTestRig.this,
@@ -410,6 +475,11 @@ public class MScriptTestRig extends javax.swing.JFrame {
 
     private static final String NL = System.getProperty("line.separator", "\n");
 
+    private static final int PARSE_DELAY_MILLIS = 250; // typing pause after which the edited script gets parsed
+
+    private static final TreeTextProvider TREE_TEXT_PROVIDER =
+        new DefaultTreeTextProvider(Arrays.asList(MScriptParser.ruleNames));
+
     private static final FunctionsFixture fixture;
 
     static {
@@ -420,6 +490,18 @@ public class MScriptTestRig extends javax.swing.JFrame {
         }
     }
 
+    private final IncrementalParser incrementalParser = new IncrementalParser(
+        Functions.DEFAULT_INSTANCE.dispatchTable(fixture.getSystemFunctions(), fixture.getAvailablePlugins()));
+
+    private final Timer parseTimer;
+
+    private ParseWorker parseWorker; // the latest one, only touched on the event dispatch thread
+
+    // The top-level statements currently shown in the tree view and the number of (root child) nodes showing each:
+    private List<IncrementalParser.Segment> shownSegments = Collections.emptyList();
+
+    private List<Integer> shownNodeCounts = Collections.emptyList();
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JList errList;
     private javax.swing.JFileChooser scriptChooser;
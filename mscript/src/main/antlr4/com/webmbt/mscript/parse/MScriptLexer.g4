@@ -6,6 +6,41 @@
  */
 lexer grammar MScriptLexer;
 
+@members {
+
+/**
+ * Whether comments are sent to the {@link #HIDDEN hidden channel} (as trivia, which parsers do not see but which can
+ * still be retrieved from the token stream, see {@link MScriptTrivia}) instead of being kept in the parse tree.
+ */
+protected boolean hideComments;
+
+/**
+ * Whether newlines are sent to the {@link #HIDDEN hidden channel}; only safe when lexing expressions / conditions since
+ * newlines separate statements in scripts.
+ */
+protected boolean hideNewlines;
+
+/**
+ * Lexing for execution only (as opposed to tooling, which may want to show comments, etc.), the parser does not have to
+ * match comments and possibly newlines between tokens, which yields smaller parse trees and cheaper predictions.
+ */
+public MScriptLexer setHiddenTrivia(boolean hideComments, boolean hideNewlines) {
+    this.hideComments = hideComments;
+    this.hideNewlines = hideNewlines;
+    return this;
+}
+
+/**
+ * Unbalanced closing parentheses or brackets (e.g. while a script is being edited) are left to the parser to report;
+ * popping the (empty) mode stack would otherwise abort lexing altogether.
+ */
+@Override
+public int popMode() {
+    return _modeStack.isEmpty() ? _mode : super.popMode();
+}
+
+}
+
 // ---------- Default "mode": everything OUTSIDE a quoted string or a function call ----------
 
 // Arithmetic operators
@@ -59,12 +94,13 @@ BOOLEAN : 'true' | 'false' ;
 // U+10000 to U+10FFFF; if needed, find missing bits at http://github.com/antlr/grammars-v4/blob/master/java8/Java8.g4
 ID : [a-zA-Z_] [a-zA-Z0-9_]* ;
 
-COMM : '/*' .*? '*/' | '//' ~[\r\n]* ; // comments will be kept in the AST
+// Comments are kept in the AST unless hidden
+COMM : ( '/*' .*? '*/' | '//' ~[\r\n]* ) {if (hideComments) { setChannel(HIDDEN); }} ;
 
 // Statement separators kept separate to allow newlines between tokens like IF and ( without an marking end of statement
 SEMI : ';' ;
 
-NL : ( '\r'? '\n' ) | '\r' /* mac */ ;
+NL : ( ( '\r'? '\n' ) | '\r' /* mac */ ) {if (hideNewlines) { setChannel(HIDDEN); }} ;
 
 WS : [ \t\f]+ -> skip ; // in default mode, skip white spaces other than new lines
 
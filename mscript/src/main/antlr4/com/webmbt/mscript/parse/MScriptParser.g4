@@ -14,30 +14,18 @@ parser grammar MScriptParser;
 
 options { tokenVocab=MScriptLexer; }
 
-@header {
-import com.webmbt.mscript.Functions;
-import com.webmbt.mscript.Functions.Lookup;
-
-import com.webmbt.plugin.MbtScriptExecutor;
-import com.webmbt.plugin.PluginAncestor;
-
-import java.util.List;
-
-import static com.webmbt.mscript.Functions.Lookup.Result.E_PLUGIN_NOT_FOUND;
-import static com.webmbt.mscript.Functions.Lookup.Result.FOUND;
-}
-
 @members {
 
 protected static final class WhileOptions {
     public boolean hasIndex;
     public boolean hasLabel;
+    public String label;
     public boolean hasMaxLoopNum;
 }
 
 protected final void check(boolean condition, String errorCode, Object ...errorArguments) {
-    if (!condition) {
-        throw new MScriptRecognitionException(this, errorCode, errorArguments);
+    if (!condition) { // the last matched token is the offending one (listeners need an offending token to report)
+        throw new MScriptRecognitionException(this, _input.LT(-1), errorCode, errorArguments);
     }
 }
 
@@ -48,33 +36,51 @@ protected final void check(boolean condition, String errorCode, Object ...errorA
 protected int loopDepth;
 
 /**
- * The (caching) lookup service for MScript {@link Function functions}. If not explicitly provided at
- * parser instance creation time, a {@link Functions#DEFAULT_INSTANCE default instance} will be used.
+ * The labels of the enclosing loops, innermost last (<code>null</code> for loops without a label). Used to determine
+ * (at parse time) whether the label of a matched break or continue statement refers to an enclosing loop.
  */
-protected Functions functions;
-
-protected MbtScriptExecutor systemFunctions;
-
-protected List<PluginAncestor> availablePlugins;
+protected java.util.List<String> loopLabels; // (re)created by reset(), which is called from the constructor
 
 /**
- * Equivalent to <code>this(input, null, systemFunctions, availablePlugins)</code>.
+ * Also forgets the current level of loop nesting, which an aborted parse may have left behind.
  */
-public MScriptParser(TokenStream input,
-                     MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
-    this(input, null, systemFunctions, availablePlugins);
+@Override
+public void reset() {
+    super.reset();
+    loopDepth = 0;
+    loopLabels = new java.util.ArrayList<>();
+}
+
+protected final void enterLoop(WhileOptsContext options) {
+    ++loopDepth;
+    loopLabels.add(options == null ? null : options.options.label);
+}
+
+protected final void exitLoop() {
+    if (loopDepth > 0) {
+        --loopDepth;
+        loopLabels.remove(loopLabels.size() - 1);
+    }
 }
 
 /**
- * The current design of the parser requires creating a new instance for each parsing operation. Creating such instances
- * is rather cheap, see <a href="http://groups.google.com/d/msg/antlr-discussion/B2TaUFm29jE/1UmKQKHhFEcJ">here</a>.
+ * Rejects maximum numbers of loops that do not fit in an <code>int</code> (INTEGER tokens have no upper bound).
  */
-public MScriptParser(TokenStream input, Functions functions,
-                     MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
-		this(input);
-		this.functions = functions == null ? Functions.DEFAULT_INSTANCE : functions;
-		this.systemFunctions = systemFunctions;
-		this.availablePlugins = availablePlugins;
+protected final void checkMaxLoopNum(Token maxLoopNum) {
+    boolean valid;
+    try {
+        Integer.parseInt(maxLoopNum.getText());
+        valid = true;
+    } catch (NumberFormatException nfe) {
+        valid = false;
+    }
+    check(valid, "E_PARSE_LOOP_MAX_NUM_INVALID");
+}
+
+protected final void checkLoopLabel(Token label) {
+    if (label != null) {
+        check(loopLabels.contains(label.getText()), "E_PARSE_LOOP_LABEL_UNKNOWN", label.getText());
+    }
 }
 
 }
@@ -91,6 +97,9 @@ public MScriptParser(TokenStream input, Functions functions,
 // default one (unless one extends CommonTokenStream) and does not really give the developer much choice to manually
 // (re)organize the AST (apart from how one writes the grammar).
 //
+// When code is only parsed to be executed, the lexer can send comments (and, for expressions, newlines) to the hidden
+// channel instead (see MScriptLexer.setHiddenTrivia and MScriptTrivia): the same rules then match without any padding.
+//
 
 script : ( pad | SEMI )* stats? EOF ;
 
@@ -101,22 +110,12 @@ stat   : assign | fncall | ifStat | whileStat | breakStat | continueStat ;
 assign : ID pad* ASSIGN pad* expr ;
 
 fncall
-locals [Token plugin, Token function, int argc] // match and store plugin and function names and argument count
+locals [Token plugin, Token function, int argc] // match and store plugin and function names and argument count (for
+                                                 // MScriptValidator to validate the call)
   : SIGIL ( ID {$plugin = $ID;} DOT )? ID {$function = $ID;} pad* // followed by...
 
-    // match and count arguments to validate the call
-    LPAREN pad* ( expr {$argc++;} ( pad* COMMA pad* expr {$argc++;} )* )? pad* RPAREN {
-
-        // After matching the whole function call, validate function name and arguments:
-        Lookup lookup = functions.lookup($plugin != null ? $plugin.getText() : null, $function.getText(),
-                                         $argc, systemFunctions, availablePlugins);
-        if (lookup.result != FOUND) {
-            throw new MScriptRecognitionException(this,
-                                                  lookup.result == E_PLUGIN_NOT_FOUND ? $plugin : $function,
-                                                  lookup.result.toString());
-        }
-
-    } ;
+    // match and count arguments
+    LPAREN pad* ( expr {$argc++;} ( pad* COMMA pad* expr {$argc++;} )* )? pad* RPAREN ;
 
 ifStat
   : IF pad* LPAREN pad* cond pad* RPAREN pad* ( LBRACE ( stats? | ( pad | SEMI )* ) RBRACE | stat )
@@ -131,9 +130,9 @@ cond
 whileStat
   : WHILE pad*
 
-    LPAREN pad* cond pad* ( pad* PIPE pad* whileOpts pad* )? RPAREN pad* {++loopDepth;}
+    LPAREN pad* cond pad* ( pad* PIPE pad* whileOpts pad* )? RPAREN pad* {enterLoop($whileOpts.ctx);}
 
-    ( LBRACE ( stats? | ( pad | SEMI )* ) RBRACE | stat ) {if (loopDepth > 0) { --loopDepth; }} ;
+    ( LBRACE ( stats? | ( pad | SEMI )* ) RBRACE | stat ) {exitLoop();} ;
 
 //
 // Trying to be as specfic as possible when describing the named while options in order to catch as
@@ -149,26 +148,26 @@ locals [WhileOptions options=new WhileOptions()]
     namedWhileOpts[$options]
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    INTEGER {$options.hasMaxLoopNum = true;}
+    maxLoopNum=INTEGER {$options.hasMaxLoopNum = true; checkMaxLoopNum($maxLoopNum);}
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    INTEGER {$options.hasMaxLoopNum = true;} pad* SEMI pad*
+    maxLoopNum=INTEGER {$options.hasMaxLoopNum = true; checkMaxLoopNum($maxLoopNum);} pad* SEMI pad*
     namedWhileOpts[$options]
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    ID {$options.hasLabel = true;}
+    label=ID {$options.hasLabel = true; $options.label = $label.getText();}
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    ID {$options.hasLabel = true;} pad* SEMI pad*
+    label=ID {$options.hasLabel = true; $options.label = $label.getText();} pad* SEMI pad*
     namedWhileOpts[$options]
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    INTEGER {$options.hasMaxLoopNum = true;} pad* SEMI pad*
-    ID {$options.hasLabel = true;}
+    maxLoopNum=INTEGER {$options.hasMaxLoopNum = true; checkMaxLoopNum($maxLoopNum);} pad* SEMI pad*
+    label=ID {$options.hasLabel = true; $options.label = $label.getText();}
 
   | ID {$options.hasIndex = true;} pad* SEMI pad*
-    INTEGER {$options.hasMaxLoopNum = true;} pad* SEMI pad*
-    ID {$options.hasLabel = true;} pad* SEMI pad*
+    maxLoopNum=INTEGER {$options.hasMaxLoopNum = true; checkMaxLoopNum($maxLoopNum);} pad* SEMI pad*
+    label=ID {$options.hasLabel = true; $options.label = $label.getText();} pad* SEMI pad*
     namedWhileOpts[$options]
   ;
 
@@ -188,23 +187,26 @@ namedWhileOpt[WhileOptions options]
           case "maxLoopNum":
               check(!options.hasMaxLoopNum, "E_PARSE_LOOP_MAX_NUM_SPECKED");
               check($optionIntVal != null, "E_PARSE_LOOP_MAX_NUM_INVALID");
+              checkMaxLoopNum($optionIntVal);
               options.hasMaxLoopNum = true;
               break;
           case "label":
               check(!options.hasLabel, "E_PARSE_LOOP_LABEL_SPECKED");
               check($optionVal != null, "E_PARSE_LOOP_LABEL_INVALID");
               options.hasLabel = true;
+              options.label = $optionVal.getText();
               break;
           default:
-              throw new MScriptRecognitionException(this, "E_PARSE_LOOP_UNEXPECTED_OPTION");
+              throw new MScriptRecognitionException(this, $optionName, "E_PARSE_LOOP_UNEXPECTED_OPTION");
           }
       }
 
 };
 
-breakStat : BREAK pad* ID? {check(loopDepth > 0, "E_PARSE_BREAK_NOT_ALLOWED");} ;
+breakStat : BREAK pad* label=ID? {check(loopDepth > 0, "E_PARSE_BREAK_NOT_ALLOWED"); checkLoopLabel($label);} ;
 
-continueStat : CONTINUE pad* ID? {check(loopDepth > 0, "E_PARSE_CONTINUE_NOT_ALLOWED");} ;
+continueStat
+  : CONTINUE pad* label=ID? {check(loopDepth > 0, "E_PARSE_CONTINUE_NOT_ALLOWED"); checkLoopLabel($label);} ;
 
 expr
   : expr pad* binOp=( MUL | DIV | MOD ) pad* expr               # mulDivMod
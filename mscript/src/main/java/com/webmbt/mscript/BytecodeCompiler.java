@@ -0,0 +1,469 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static com.webmbt.mscript.parse.MScriptLexer.ADD;
+import static com.webmbt.mscript.parse.MScriptLexer.DIV;
+import static com.webmbt.mscript.parse.MScriptLexer.EQ;
+import static com.webmbt.mscript.parse.MScriptLexer.GE;
+import static com.webmbt.mscript.parse.MScriptLexer.GT;
+import static com.webmbt.mscript.parse.MScriptLexer.LE;
+import static com.webmbt.mscript.parse.MScriptLexer.LT;
+import static com.webmbt.mscript.parse.MScriptLexer.MOD;
+import static com.webmbt.mscript.parse.MScriptLexer.MUL;
+import static com.webmbt.mscript.parse.MScriptLexer.NE;
+import static com.webmbt.mscript.parse.MScriptLexer.SUB;
+import static java.util.logging.Level.FINE;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * <p>
+ * Compiles {@link Node expression trees} to JVM bytecode: one {@link MScriptBytecode class} per expression, whose
+ * {@link MScriptBytecode#eval(MbtScriptExecutor, Variables, List) eval} method calls the {@link Value value operators}
+ * (or the {@link MbtScriptExecutor operator implementations}, if overridden) and the {@link
+ * com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD function implementations} directly (i.e. through plain
+ * <code>invokevirtual</code> / <code>invokestatic</code> instructions), so that the JIT compiler can inline a whole
+ * expression, end to end. Failing function calls are reported as {@link Function.CallException}s, exactly like when
+ * the expression is interpreted.
+ * </p>
+ * <p>
+ * An expression tree cannot be compiled when a function implementation or the class it should be invoked on is not
+ * public, when there is no plugin at a given position, etc. The {@link #compile(Node) compile} method then returns
+ * <code>null</code> and the expression should keep being interpreted.
+ * </p>
+ * <p>
+ * Only expressions get compiled: {@link Statement scripts} are compiled by {@link CompiledMScript} one expression
+ * (condition, assigned value, function call) at a time, their statements being interpreted around the generated
+ * classes.
+ * </p>
+ * <p>
+ * Every generated class is defined by its own class loader so that it can be garbage-collected as soon as the
+ * compiled expression is no longer in use (e.g. evicted from the {@link ScriptCache script cache}). The classes the
+ * generated code refers to (plugin classes, the types function implementations return, etc.) are resolved with the
+ * class loaders that loaded them in the first place.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+class BytecodeCompiler implements Node.Visitor<Void> {
+
+    private final PluginSet pluginSet;
+
+    private final Map<String, Class<?>> referencedClasses = new HashMap<>();
+
+    private final List<Value> constants = new ArrayList<>();
+
+    private final List<Function> functions = new ArrayList<>();
+
+    private final List<Label> callHandlers = new ArrayList<>(); // exception handlers, in the order of functions
+
+    private MethodVisitor mv;
+
+    private int line = -1;
+
+    private boolean callsFunctions;
+
+    /**
+     * @param pluginSet the shape of the system functions object and plugins the expression has been compiled against
+     */
+    BytecodeCompiler(PluginSet pluginSet) {
+        this.pluginSet = pluginSet;
+    }
+
+    /**
+     * @return an instance of the class generated for the expression or <code>null</code> if it cannot be compiled
+     */
+    MScriptBytecode compile(Node root) {
+        String className = GENERATED_PACKAGE + "MScript$" + GENERATED_CLASSES.incrementAndGet();
+
+        try {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+            cw.visit(V1_7, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, BASE, null);
+            cw.visitSource("MScript", null);
+
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKESPECIAL, BASE, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "eval", EVAL_DESCRIPTOR, null, null);
+            mv.visitCode();
+            root.accept(this);
+            mv.visitInsn(ARETURN);
+            visitCallHandlers();
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            cw.visitEnd();
+
+            Loader loader = new Loader(MScriptBytecode.class.getClassLoader(), referencedClasses);
+            return (MScriptBytecode) loader.define(className.replace('/', '.'), cw.toByteArray())
+                                           .getConstructor(Value[].class, Function[].class)
+                                           .newInstance(constants.toArray(new Value[constants.size()]),
+                                                        functions.toArray(new Function[functions.size()]));
+        } catch (UnsupportedOperationException uoe) {
+            LOG.log(FINE, "Cannot compile MScript expression to bytecode: " + uoe.getMessage());
+            return null;
+        } catch (Throwable throwable) { // generated bytecode is not supposed to fail verification / linkage but...
+            LOG.log(FINE, "Cannot compile MScript expression to bytecode", throwable);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the last expression {@link #compile(Node) compiled} calls any functions
+     */
+    boolean callsFunctions() { return callsFunctions; }
+
+    @Override
+    public Void visitConst(Node.Const node) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, BASE, "constants", VALUES);
+        pushInt(constants.size());
+        mv.visitInsn(AALOAD);
+        constants.add(node.value);
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Node.Var node) {
+        mv.visitVarInsn(ALOAD, SYSTEM_FUNCTIONS);
+        mv.visitVarInsn(ALOAD, VARIABLES);
+        pushInt(node.slot);
+        mv.visitLdcInsn(node.name);
+        mv.visitMethodInsn(INVOKESTATIC, BASE, "getVar",
+                           "(" + EXECUTOR + Type.getDescriptor(Variables.class) + "I" + STRING + ")" + VALUE, false);
+        return null;
+    }
+
+    @Override
+    public Void visitNegate(Node.Negate node) {
+        node.operand.accept(this);
+        lineNumber(node);
+        mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_CLASS, "negate", "()" + VALUE, false);
+        return null;
+    }
+
+    @Override
+    public Void visitArithmetic(Node.Arithmetic node) {
+        String operator;
+        switch (node.op) {
+        case MUL:
+            operator = "mul";
+            break;
+        case DIV:
+            operator = "div";
+            break;
+        case MOD:
+            operator = "mod";
+            break;
+        case ADD:
+            operator = "add";
+            break;
+        case SUB:
+            operator = "sub";
+            break;
+        default:
+            throw new UnsupportedOperationException("unsupported arithmetic operator: " + node.op);
+        }
+
+        if (node.typed) {
+            node.left.accept(this);
+            node.right.accept(this);
+            lineNumber(node);
+            mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_CLASS, operator, "(" + VALUE + ")" + VALUE, false);
+            return null;
+        }
+
+        mv.visitVarInsn(ALOAD, SYSTEM_FUNCTIONS);
+        visitAsString(node.left);
+        visitAsString(node.right);
+        lineNumber(node);
+        mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(MbtScriptExecutor.class), operator,
+                           "(" + STRING + STRING + ")" + STRING, false);
+        mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(" + STRING + ")" + VALUE, false);
+        return null;
+    }
+
+    @Override
+    public Void visitComparison(Node.Comparison node) {
+        String operator;
+        switch (node.op) {
+        case EQ:
+            operator = "isEqual";
+            break;
+        case NE:
+            operator = "isNotEqual";
+            break;
+        case LE:
+            operator = "isLessOrEqual";
+            break;
+        case LT:
+            operator = "isLess";
+            break;
+        case GE:
+            operator = "isGreaterOrEqual";
+            break;
+        case GT:
+            operator = "isGreater";
+            break;
+        default:
+            throw new UnsupportedOperationException("unsupported comparison operator: " + node.op);
+        }
+
+        node.left.accept(this);
+        node.right.accept(this);
+        lineNumber(node);
+        mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_CLASS, operator, "(" + VALUE + ")Z", false);
+        mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(Z)" + VALUE, false);
+        return null;
+    }
+
+    @Override
+    public Void visitCall(Node.Call node) {
+        Function.Implementation implementation = node.implementation;
+        if (implementation == null) {
+            throw new UnsupportedOperationException("no implementation for " + node.function);
+        }
+        callsFunctions = true;
+
+        Method method = implementation.getMethod();
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?> owner = isStatic ? method.getDeclaringClass() : targetClass(node.plugin);
+        if (!Modifier.isPublic(owner.getModifiers()) || !Modifier.isPublic(method.getModifiers())) {
+            throw new UnsupportedOperationException(method + " cannot be invoked directly");
+        }
+        String ownerName = reference(owner);
+        Class<?> returnType = method.getReturnType();
+        while (returnType.isArray()) {
+            returnType = returnType.getComponentType();
+        }
+        if (!returnType.isPrimitive()) {
+            reference(returnType);
+        }
+
+        if (!isStatic) {
+            if (node.plugin < 0) {
+                mv.visitVarInsn(ALOAD, SYSTEM_FUNCTIONS);
+            } else {
+                mv.visitVarInsn(ALOAD, AVAILABLE_PLUGINS);
+                pushInt(node.plugin);
+                mv.visitMethodInsn(INVOKEINTERFACE, Type.getInternalName(List.class), "get",
+                                   "(I)" + Type.getDescriptor(Object.class), true);
+            }
+            mv.visitTypeInsn(CHECKCAST, ownerName);
+        }
+
+        for (Node arg : node.args) {
+            visitAsString(arg);
+        }
+
+        Label start = new Label(), end = new Label(), handler = new Label();
+        mv.visitTryCatchBlock(start, end, handler, Type.getInternalName(Throwable.class));
+        callHandlers.add(handler);
+        functions.add(node.function);
+
+        lineNumber(node);
+        mv.visitLabel(start);
+        mv.visitMethodInsn(isStatic ? INVOKESTATIC : INVOKEVIRTUAL, ownerName, method.getName(),
+                           Type.getMethodDescriptor(method), owner.isInterface());
+        mv.visitLabel(end);
+        convertToValue(method.getReturnType());
+        return null;
+    }
+
+    @Override
+    public Void visitConcat(Node.Concat node) {
+        String stringBuilder = Type.getInternalName(StringBuilder.class);
+
+        mv.visitTypeInsn(NEW, stringBuilder);
+        mv.visitInsn(DUP);
+        pushInt(node.capacity);
+        mv.visitMethodInsn(INVOKESPECIAL, stringBuilder, "<init>", "(I)V", false);
+        for (Node part : node.parts) {
+            visitAsString(part);
+            mv.visitMethodInsn(INVOKEVIRTUAL, stringBuilder, "append", "(" + STRING + ")L" + stringBuilder + ";",
+                               false);
+        }
+        mv.visitMethodInsn(INVOKEVIRTUAL, stringBuilder, "toString", "()" + STRING, false);
+        mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(" + STRING + ")" + VALUE, false);
+        return null;
+    }
+
+    /**
+     * Generates the exception handlers of the function calls, after the code of the expression (out of the way of the
+     * code that does not fail): each handler wraps whatever the function implementation threw in a {@link
+     * Function.CallException call exception} of the function and throws it.
+     */
+    protected void visitCallHandlers() {
+        for (int function = 0; function < callHandlers.size(); function++) {
+            mv.visitLabel(callHandlers.get(function));
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitFieldInsn(GETFIELD, BASE, "functions", FUNCTIONS);
+            pushInt(function);
+            mv.visitInsn(AALOAD);
+            mv.visitInsn(SWAP);
+            mv.visitMethodInsn(INVOKESTATIC, BASE, "callFailed",
+                               "(" + FUNCTION + Type.getDescriptor(Throwable.class) + ")" +
+                               Type.getDescriptor(Function.CallException.class), false);
+            mv.visitInsn(ATHROW);
+        }
+    }
+
+    /**
+     * Generates code that pushes the value of <code>node</code>, as a string, onto the operand stack.
+     */
+    protected void visitAsString(Node node) {
+        if (node instanceof Node.Const) {
+            mv.visitLdcInsn(((Node.Const) node).value.asString());
+        } else {
+            node.accept(this);
+            mv.visitMethodInsn(INVOKEVIRTUAL, VALUE_CLASS, "asString", "()" + STRING, false);
+        }
+    }
+
+    /**
+     * Converts the value on top of the operand stack (returned by a function implementation) to a {@link Value},
+     * exactly like {@link Function} does (i.e. by means of {@link Types#asString(Object)} and its overloads) but
+     * without formatting numbers and booleans.
+     */
+    protected void convertToValue(Class<?> type) {
+        if (type == void.class) {
+            mv.visitFieldInsn(GETSTATIC, VALUE_CLASS, "NULL_STRING", VALUE);
+        } else if (type == boolean.class) {
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(Z)" + VALUE, false);
+        } else if (type == double.class) {
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(D)" + VALUE, false);
+        } else if (type == float.class) {
+            mv.visitInsn(F2D);
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(D)" + VALUE, false);
+        } else if (type == long.class) {
+            mv.visitInsn(L2D);
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(D)" + VALUE, false);
+        } else if (type == int.class || type == short.class || type == byte.class) {
+            mv.visitInsn(I2D);
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(D)" + VALUE, false);
+        } else {
+            if (type == char.class) {
+                mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(Character.class), "valueOf",
+                                   "(C)" + Type.getDescriptor(Character.class), false);
+            }
+            mv.visitMethodInsn(INVOKESTATIC, TYPES, "asString", "(" + Type.getDescriptor(Object.class) + ")" + STRING,
+                               false);
+            mv.visitMethodInsn(INVOKESTATIC, VALUE_CLASS, "of", "(" + STRING + ")" + VALUE, false);
+        }
+    }
+
+    protected Class<?> targetClass(int plugin) {
+        Class<?> targetClass =
+            plugin < 0 ? pluginSet.getSystemFunctionsClass() : pluginSet.getPluginClass(plugin);
+        if (targetClass == null) {
+            throw new UnsupportedOperationException("no system functions object or plugin at position " + plugin);
+        }
+        return targetClass;
+    }
+
+    /**
+     * Makes sure the generated class will be able to resolve <code>klass</code>, regardless of the class loader that
+     * loaded it.
+     */
+    protected String reference(Class<?> klass) {
+        referencedClasses.put(klass.getName(), klass);
+        return Type.getInternalName(klass);
+    }
+
+    protected void lineNumber(Node node) {
+        if (node.line > 0 && node.line != line) {
+            line = node.line;
+            Label label = new Label();
+            mv.visitLabel(label);
+            mv.visitLineNumber(line, label);
+        }
+    }
+
+    protected void pushInt(int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Defines a generated class; classes the generated code refers to are resolved with the class loader that loaded
+     * them in the first place, all the other ones are delegated to the parent class loader.
+     */
+    private static final class Loader extends ClassLoader {
+
+        private final Map<String, Class<?>> referencedClasses;
+
+        Loader(ClassLoader parent, Map<String, Class<?>> referencedClasses) {
+            super(parent);
+            this.referencedClasses = referencedClasses;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> klass = referencedClasses.get(name);
+            return klass != null ? klass : super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+
+    private static final int SYSTEM_FUNCTIONS = 1, VARIABLES = 2, AVAILABLE_PLUGINS = 3; // local variable slots of eval
+
+    private static final String GENERATED_PACKAGE = "com/webmbt/mscript/generated/";
+
+    private static final String BASE = Type.getInternalName(MScriptBytecode.class);
+
+    private static final String TYPES = Type.getInternalName(Types.class);
+
+    private static final String STRING = Type.getDescriptor(String.class);
+
+    private static final String VALUE_CLASS = Type.getInternalName(Value.class);
+
+    private static final String VALUE = Type.getDescriptor(Value.class);
+
+    private static final String VALUES = Type.getDescriptor(Value[].class);
+
+    private static final String FUNCTION = Type.getDescriptor(Function.class);
+
+    private static final String FUNCTIONS = Type.getDescriptor(Function[].class);
+
+    private static final String CONSTRUCTOR_DESCRIPTOR = "(" + VALUES + FUNCTIONS + ")V";
+
+    private static final String EXECUTOR = Type.getDescriptor(MbtScriptExecutor.class);
+
+    private static final String EVAL_DESCRIPTOR =
+        "(" + EXECUTOR + Type.getDescriptor(Variables.class) + Type.getDescriptor(List.class) + ")" + VALUE;
+
+    private static final AtomicLong GENERATED_CLASSES = new AtomicLong();
+
+    private static final Logger LOG = Logger.getLogger(BytecodeCompiler.class.getName());
+}
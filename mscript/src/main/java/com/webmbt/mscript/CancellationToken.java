@@ -0,0 +1,24 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * Cooperatively cancels executions of MScript code: once the token is cancelled, the executions it has been given to
+ * (through an {@link MScriptEngine#setCancellationToken(CancellationToken) engine} or a {@link
+ * MScriptContext#setCancellationToken(CancellationToken) context}) stop at their next loop iteration or function call
+ * boundary, with an <code>E_CANCELLED</code> error. See {@link MScriptLimits}.
+ * </p>
+ * <p>
+ * Tokens are thread-safe and cannot be reset: a cancelled token cancels any later execution it is given to as well.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+}
@@ -0,0 +1,341 @@
+package com.webmbt.mscript;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * The outcome of parsing, validating and compiling a piece of MScript code: the resulting {@link Node expression
+ * tree} or {@link Statement script tree} (if any) as well as any errors encountered.
+ * </p>
+ * <p>
+ * Compiled MScript code is immutable: function implementations are resolved once and for all at compile time and
+ * everything that is only known at execution time (system functions object, plugins, loop state, etc.) is held by a
+ * per-execution {@link MScriptContext context}. Instances can therefore be cached and executed by any number of
+ * threads at the same time, each with its own context (and, typically, its own system functions object and plugins).
+ * </p>
+ * <p>
+ * Once a compiled expression has been {@link #execute(MScriptContext) executed} often enough, it is further {@link
+ * BytecodeCompiler compiled to bytecode}. So are the expressions (conditions, assigned values, function calls) of a
+ * script {@link #run(MScriptContext) run} often enough, one expression at a time: the statements themselves (blocks,
+ * loops, jumps, etc.) keep being interpreted. Bytecode is generated by one of the executing threads while the others
+ * keep interpreting the code, without ever blocking. Similarly, the first execution with a {@link MScriptListener
+ * listener} derives an {@link Instrumenter instrumented} copy of the tree, used by all the executions with a
+ * listener. These are the only state changes compiled code ever goes through and neither changes the results of
+ * executing it.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class CompiledMScript {
+
+    private final String source;
+
+    private final PluginSet pluginSet;
+
+    private final Node root;
+
+    private final Statement script;
+
+    private final int rootNodes; // see MScriptLimits
+
+    private final List<MScriptError> errors;
+
+    private final int compileThreshold;
+
+    private volatile Node executable; // the root itself or its bytecode-compiled version
+
+    private volatile Statement executableScript; // the script itself or its version with bytecode-compiled expressions
+
+    private int executions; // racy on purpose, only used to estimate how hot the code is, until it is compiled
+
+    private final AtomicBoolean bytecodeCompiled = new AtomicBoolean(); // set by the thread generating the bytecode
+
+    private volatile Node listenedRoot; // instrumented on first use, see Instrumenter
+
+    private volatile Statement listenedScript;
+
+    /**
+     * @param compileThreshold see {@link MScriptEngine#setCompileThreshold(int)}
+     */
+    CompiledMScript(String source, PluginSet pluginSet, Node root, Statement script, List<MScriptError> errors,
+                    int compileThreshold) {
+        this.source = source;
+        this.pluginSet = pluginSet;
+        this.root = root;
+        this.script = script;
+        this.rootNodes = root == null ? 0 : Node.size(root);
+        this.compileThreshold = compileThreshold;
+        this.executable = root;
+        this.executableScript = script;
+        this.errors = errors == null || errors.isEmpty() ? Collections.<MScriptError>emptyList()
+                                                         : Collections.unmodifiableList(errors);
+    }
+
+    public String getSource() { return source; }
+
+    /**
+     * @return the shape of the system functions object and plugins the code has been validated and compiled against
+     */
+    public PluginSet getPluginSet() { return pluginSet; }
+
+    public boolean isExpression() { return root != null; }
+
+    public boolean isScript() { return script != null; }
+
+    /**
+     * @return the compiled expression tree or <code>null</code> if the MScript code has errors or is a whole script
+     */
+    Node getRoot() { return root; }
+
+    /**
+     * @return the compiled script tree or <code>null</code> if the MScript code has errors or is an expression
+     */
+    Statement getScript() { return script; }
+
+    /**
+     * @return the {@link #getRoot() root} itself or, once the expression has been compiled to bytecode, its
+     * {@link Node.Compiled compiled version}
+     */
+    Node getExecutable() { return executable; }
+
+    /**
+     * @return the {@link #getScript() script} itself or, once the script has been compiled to bytecode, a copy of it
+     * with its expressions {@link Node.Compiled compiled}
+     */
+    Statement getExecutableScript() { return executableScript; }
+
+    /**
+     * Evaluates the compiled expression in the given context.
+     *
+     * @return the value of the expression or, if the MScript code has errors, the {@link #getErrorsAsString() errors}
+     * or, if the execution exceeds its {@link MScriptContext#setLimits(MScriptLimits) limits}, the limit error
+     * @throws IllegalArgumentException if the code is not an expression or if the context does not match the {@link
+     *                                  #getPluginSet() plugin set} the code has been compiled against
+     * @throws Throwable                the exception thrown by the first failing function call, if any
+     */
+    public String execute(MScriptContext ctx) throws Throwable {
+        if (hasErrors()) {
+            return getErrorsAsString();
+        }
+        if (root == null) {
+            throw new IllegalArgumentException("not an MScript expression: " + source);
+        }
+        checkContext(ctx);
+
+        try {
+            return execute(ctx, compileThreshold);
+        } catch (Function.CallException ce) { // execution / interpretation stops at the first call exception
+            Throwable cause = ce.getCause();
+            throw cause == null ? ce : cause;
+        } catch (MScriptLimits.LimitException le) {
+            return le.toError(source).toString();
+        }
+    }
+
+    /**
+     * Executes the compiled script in the given context.
+     *
+     * @return an empty string or, if the MScript code has errors, the {@link #getErrorsAsString() errors} or, if the
+     * execution exceeds its {@link MScriptContext#setLimits(MScriptLimits) limits}, the limit error
+     * @throws IllegalArgumentException if the code is not a script or if the context does not match the {@link
+     *                                  #getPluginSet() plugin set} the code has been compiled against
+     * @throws Throwable                the exception thrown by the first failing function call, if any
+     */
+    public String run(MScriptContext ctx) throws Throwable {
+        if (hasErrors()) {
+            return getErrorsAsString();
+        }
+        if (script == null) {
+            throw new IllegalArgumentException("not an MScript script: " + source);
+        }
+        checkContext(ctx);
+
+        try {
+            run0(ctx, compileThreshold);
+            return "";
+        } catch (Function.CallException ce) { // execution stops at the first call exception
+            Throwable cause = ce.getCause();
+            throw cause == null ? ce : cause;
+        } catch (MScriptLimits.LimitException le) {
+            return le.toError(source).toString();
+        }
+    }
+
+    private void checkContext(MScriptContext ctx) {
+        if (!pluginSet.equals(ctx.pluginSet)) {
+            throw new IllegalArgumentException(
+                "MScript code compiled against " + pluginSet + " cannot be executed against " + ctx.pluginSet);
+        }
+    }
+
+    /**
+     * @param compileThreshold the number of executions after which the expression gets compiled to bytecode; negative
+     *                         values disable bytecode compilation
+     */
+    String execute(MScriptContext ctx, int compileThreshold) {
+        Node executable = this.executable;
+        if (isHot(compileThreshold)) {
+            executable = compileBytecode();
+        }
+
+        if (ctx.listener != null) {
+            executable = listenedRoot();
+        }
+
+        MScriptLimits.Budget budget = ctx.budget;
+        if (budget == null) {
+            return eval(executable, ctx);
+        }
+        budget.evaluate(rootNodes, root.line, root.column);
+        String value = eval(executable, ctx);
+        budget.checkLength(value, root.line, root.column);
+        return value;
+    }
+
+    private String eval(Node executable, MScriptContext ctx) {
+        MScriptProfiler.Recorder profiler = ctx.profiler;
+        if (profiler == null) {
+            return executable.eval(ctx).asString();
+        }
+        int depth = profiler.enter(this);
+        try {
+            return executable.eval(ctx).asString();
+        } finally {
+            profiler.exit(depth);
+        }
+    }
+
+    /**
+     * @param compileThreshold see {@link #execute(MScriptContext, int)}
+     */
+    void run0(MScriptContext ctx, int compileThreshold) {
+        Statement script = this.executableScript;
+        if (isHot(compileThreshold)) {
+            script = compileScriptBytecode();
+        }
+        if (ctx.listener != null) {
+            script = listenedScript();
+        }
+
+        MScriptProfiler.Recorder profiler = ctx.profiler;
+        if (profiler == null) {
+            script.exec(ctx);
+            return;
+        }
+        int depth = profiler.enter(this);
+        try {
+            script.exec(ctx);
+        } finally {
+            profiler.exit(depth);
+        }
+    }
+
+    /**
+     * @return the expression tree {@link Instrumenter instrumented} for {@link MScriptListener listeners}; trees are
+     * immutable, threads racing to instrument the expression merely do it more than once
+     */
+    private Node listenedRoot() {
+        Node listened = listenedRoot;
+        if (listened == null) {
+            listenedRoot = listened = new Instrumenter().instrument(root);
+        }
+        return listened;
+    }
+
+    private Statement listenedScript() {
+        Statement listened = listenedScript;
+        if (listened == null) {
+            listenedScript = listened = new Instrumenter().instrument(script);
+        }
+        return listened;
+    }
+
+    /**
+     * @return whether the current execution is the one to compile the code to bytecode
+     */
+    private boolean isHot(int compileThreshold) {
+        // Stop counting (i.e. writing to a field shared by all the executing threads) once compilation is under way:
+        return compileThreshold >= 0 && !bytecodeCompiled.get() && executions++ >= compileThreshold &&
+               bytecodeCompiled.compareAndSet(false, true);
+    }
+
+    /**
+     * @return the bytecode-compiled version of the expression or the expression tree itself if it cannot be compiled
+     */
+    private Node compileBytecode() {
+        return executable = compileBytecode(root);
+    }
+
+    private Statement compileScriptBytecode() {
+        return executableScript = compileBytecode(script);
+    }
+
+    private Statement compileBytecode(Statement statement) {
+        if (statement instanceof Statement.Block) {
+            Statement[] statements = ((Statement.Block) statement).statements.clone();
+            for (int i = 0; i < statements.length; i++) {
+                statements[i] = compileBytecode(statements[i]);
+            }
+            return new Statement.Block(statement.line, statement.column, statements);
+        }
+        if (statement instanceof Statement.Assign) {
+            Statement.Assign assign = (Statement.Assign) statement;
+            return new Statement.Assign(assign.line, assign.column, assign.name, compileBytecode(assign.value));
+        }
+        if (statement instanceof Statement.Eval) {
+            return new Statement.Eval(statement.line, statement.column,
+                                      compileBytecode(((Statement.Eval) statement).expression));
+        }
+        if (statement instanceof Statement.If) {
+            Statement.If ifStat = (Statement.If) statement;
+            return new Statement.If(ifStat.line, ifStat.column, compileBytecode(ifStat.condition),
+                                    compileBytecode(ifStat.then),
+                                    ifStat.otherwise == null ? null : compileBytecode(ifStat.otherwise));
+        }
+        if (statement instanceof Statement.While) {
+            Statement.While whileStat = (Statement.While) statement;
+            return new Statement.While(whileStat.line, whileStat.column, compileBytecode(whileStat.condition),
+                                       whileStat.index, whileStat.maxLoopNum, whileStat.label,
+                                       compileBytecode(whileStat.body));
+        }
+        return statement; // jumps
+    }
+
+    /**
+     * @return the bytecode-compiled version of <code>node</code> or <code>node</code> itself if it cannot be compiled
+     * or would not run any faster compiled (constants and variables)
+     */
+    private Node compileBytecode(Node node) {
+        if (node instanceof Node.Const || node instanceof Node.Var) {
+            return node;
+        }
+        BytecodeCompiler compiler = new BytecodeCompiler(pluginSet);
+        MScriptBytecode bytecode = compiler.compile(node);
+        return bytecode == null ? node : new Node.Compiled(node, bytecode, compiler.callsFunctions());
+    }
+
+    /**
+     * @return an unmodifiable list of the errors encountered while parsing / validating the MScript code
+     */
+    public List<MScriptError> getErrors() { return errors; }
+
+    public boolean hasErrors() { return !errors.isEmpty(); }
+
+    /**
+     * @return all the {@link #getErrors() errors} formatted on one line, <code>" ; "</code>-separated
+     */
+    public String getErrorsAsString() {
+        if (errors.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder message = new StringBuilder(errors.get(0).toString());
+        for (int i = 1; i < errors.size(); i++) {
+            message.append(" ; ").append(errors.get(i).toString());
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.webmbt.mscript;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Folds operators and string interpolations whose operands are all constants into single {@link Node.Const
+ * constants}, e.g. <code>'0' + 5 * 60</code> into <code>300</code> or <code>-(3)</code> into <code>-3</code>.
+ * </p>
+ * <p>
+ * Folding evaluates the very same nodes that would otherwise be evaluated at run time, hence with exactly the same
+ * coercion semantics. Operators whose evaluation fails (e.g. <code>1 - 'a'</code>) are left alone so that they fail at
+ * run time, as expected; so are arithmetic operators overridden by the system functions class (which may well have
+ * side effects) and function calls.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+class ConstantFolder implements Node.Visitor<Node> {
+
+    private int foldedNodes;
+
+    Node fold(Node node) {
+        return node.accept(this);
+    }
+
+    /**
+     * @return the number of operator / interpolation nodes folded into constants so far
+     */
+    int getFoldedNodes() { return foldedNodes; }
+
+    @Override
+    public Node visitConst(Node.Const node) { return node; }
+
+    @Override
+    public Node visitVar(Node.Var node) { return node; }
+
+    @Override
+    public Node visitNegate(Node.Negate node) {
+        Node operand = fold(node.operand);
+        return tryToFold(operand == node.operand ? node : new Node.Negate(node.line, node.column, operand), operand);
+    }
+
+    @Override
+    public Node visitArithmetic(Node.Arithmetic node) {
+        Node left = fold(node.left), right = fold(node.right);
+        if (left != node.left || right != node.right) {
+            node = new Node.Arithmetic(node.line, node.column, node.op, left, right, node.typed);
+        }
+        return node.typed ? tryToFold(node, left, right) : node;
+    }
+
+    @Override
+    public Node visitComparison(Node.Comparison node) {
+        Node left = fold(node.left), right = fold(node.right);
+        if (left != node.left || right != node.right) {
+            node = new Node.Comparison(node.line, node.column, node.op, left, right);
+        }
+        return tryToFold(node, left, right);
+    }
+
+    @Override
+    public Node visitCall(Node.Call node) {
+        Node[] args = foldAll(node.args);
+        return args == node.args ? node : new Node.Call(node.line, node.column, node.function, node.plugin, args);
+    }
+
+    @Override
+    public Node visitConcat(Node.Concat node) {
+        Node[] parts = mergeLiterals(foldAll(node.parts));
+        if (parts != node.parts) {
+            node = new Node.Concat(node.line, node.column, parts);
+        }
+        return tryToFold(node, parts);
+    }
+
+    /**
+     * Merges adjacent literal segments of an interpolated string (e.g. the ones surrounding a folded expression).
+     */
+    protected Node[] mergeLiterals(Node[] parts) {
+        List<Node> merged = null;
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i] instanceof Node.Const && parts[i - 1] instanceof Node.Const) {
+                merged = new ArrayList<>(parts.length);
+                break;
+            }
+        }
+        if (merged == null) {
+            return parts;
+        }
+
+        for (Node part : parts) {
+            int last = merged.size() - 1;
+            if (part instanceof Node.Const && last >= 0 && merged.get(last) instanceof Node.Const) {
+                Node.Const previous = (Node.Const) merged.get(last);
+                merged.set(last, new Node.Const(previous.line, previous.column,
+                                                previous.value.asString() + ((Node.Const) part).value.asString()));
+            } else {
+                merged.add(part);
+            }
+        }
+        return merged.toArray(new Node[merged.size()]);
+    }
+
+    protected Node[] foldAll(Node[] nodes) {
+        Node[] folded = nodes;
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = fold(nodes[i]);
+            if (node != nodes[i]) {
+                if (folded == nodes) {
+                    folded = nodes.clone();
+                }
+                folded[i] = node;
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * @return a constant holding the value of <code>node</code> if all its <code>operands</code> are constants and
+     * evaluating it succeeds, <code>node</code> itself otherwise
+     */
+    protected Node tryToFold(Node node, Node... operands) {
+        for (Node operand : operands) {
+            if (!(operand instanceof Node.Const)) {
+                return node;
+            }
+        }
+
+        Value value;
+        try {
+            value = node.eval(null); // constants do not need a context
+        } catch (RuntimeException re) {
+            return node;
+        }
+
+        foldedNodes++;
+        return new Node.Const(node.line, node.column, value.asString());
+    }
+}
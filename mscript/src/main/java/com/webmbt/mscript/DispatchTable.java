@@ -0,0 +1,261 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.webmbt.mscript.Functions.Lookup;
+import static com.webmbt.mscript.Functions.Lookup.Result.E_FUNCTION_NOT_FOUND;
+import static com.webmbt.mscript.Functions.Lookup.Result.E_PLUGIN_NOT_FOUND;
+import static com.webmbt.mscript.Functions.Lookup.Result.E_WRONG_NUMBER_OF_ARGUMENTS;
+import static com.webmbt.mscript.Functions.Lookup.Result.FOUND;
+
+/**
+ * <p>
+ * An immutable snapshot of all the MScript {@link Function functions} callable against a given {@link PluginSet plugin
+ * set}, resolved once and for all: {@link #lookup(String, String, int) looking up} a (plugin name, function name,
+ * arity) triple is a couple of hash map accesses which never allocate, and successful lookups yield {@link Entry
+ * entries} that know which implementation to invoke and on which object (by position, so that a table can be used
+ * with any system functions object and plugins of the same shape).
+ * </p>
+ * <p>
+ * Functions are {@link Functions#implementationsOf(Class) discovered} following the same rules as {@link
+ * Functions#lookup(String, String, int, MbtScriptExecutor, List)}: <code>MSCRIPT_METHOD</code>-annotated methods become
+ * functions with the same name and other public methods declared by the system functions or plugin class become
+ * functions with their name prefixed by <code>_</code>. Functions called without a plugin name are looked up among the
+ * system functions first and then among the plugins, in order.
+ * </p>
+ * <p>
+ * Tables are obtained from (and cached by) {@link Functions#dispatchTable(PluginSet)}. Instances are thread-safe.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class DispatchTable {
+
+    private static final Lookup PLUGIN_NOT_FOUND = new Lookup(E_PLUGIN_NOT_FOUND);
+
+    private static final Lookup FUNCTION_NOT_FOUND = new Lookup(E_FUNCTION_NOT_FOUND);
+
+    private static final String SYSTEM = ""; // key of the system functions' scope
+
+    private static final int MAX_JAVA_ARITY = 255; // Java methods cannot have more than 255 parameters
+
+    private final PluginSet pluginSet;
+
+    /** Functions by plugin name ({@link #SYSTEM} for system functions) and function name. */
+    private final Map<String, Map<String, Overloads>> scopes = new HashMap<>();
+
+    /** Functions called without a plugin name. */
+    private final Map<String, Overloads> unqualified = new HashMap<>();
+
+    DispatchTable(PluginSet pluginSet) {
+        this.pluginSet = pluginSet;
+
+        // One scope per available plugin ID (the first plugin with a given ID hides the others, if any):
+        Class<?> systemFunctionsClass = pluginSet.getSystemFunctionsClass();
+        if (systemFunctionsClass != null) {
+            scopes.put(SYSTEM, discover(null, -1, systemFunctionsClass));
+        }
+        for (int i = 0; i < pluginSet.size(); i++) {
+            String pluginId = pluginSet.getPluginId(i);
+            if (pluginId != null && !scopes.containsKey(pluginId)) {
+                scopes.put(pluginId, discover(pluginId, i, pluginSet.getPluginClass(i)));
+            }
+        }
+
+        // Resolve every name callable without a plugin name, for every arity of interest:
+        for (Map<String, Overloads> scope : scopes.values()) {
+            for (String name : scope.keySet()) {
+                if (!unqualified.containsKey(name)) {
+                    unqualified.put(name, resolveUnqualified(name));
+                }
+            }
+        }
+    }
+
+    public PluginSet getPluginSet() { return pluginSet; }
+
+    /**
+     * Looks up a function, without allocating.
+     *
+     * @param pluginName <code>null</code> or empty for functions called without a plugin name
+     * @return an {@link Entry} if the function is {@link Lookup.Result#FOUND found} or a lookup describing the error,
+     * exactly like {@link Functions#lookup(String, String, int, MbtScriptExecutor, List)} would
+     */
+    public Lookup lookup(String pluginName, String functionName, int argsNumber) {
+        Overloads overloads;
+        if (pluginName != null && pluginName.length() > 0) {
+            Map<String, Overloads> scope = scopes.get(pluginName);
+            if (scope == null) {
+                return PLUGIN_NOT_FOUND;
+            }
+            overloads = scope.get(functionName);
+        } else {
+            overloads = unqualified.get(functionName);
+        }
+        return overloads == null ? FUNCTION_NOT_FOUND : overloads.get(argsNumber);
+    }
+
+    /**
+     * @return the entry for the specified function or <code>null</code> if the function cannot be called
+     */
+    public Entry entry(String pluginName, String functionName, int argsNumber) {
+        Lookup lookup = lookup(pluginName, functionName, argsNumber);
+        return lookup.result == FOUND ? (Entry) lookup : null;
+    }
+
+    /**
+     * Follows {@link Functions#lookup(String, String, int, MbtScriptExecutor, List)} to the letter: system functions
+     * first, then plugins in order; if the function cannot be found, a wrong number of arguments takes precedence over
+     * a missing function.
+     */
+    private Overloads resolveUnqualified(String name) {
+        int maxArity = 0;
+        for (Map<String, Overloads> scope : scopes.values()) {
+            Overloads overloads = scope.get(name);
+            if (overloads != null) {
+                maxArity = Math.max(maxArity, overloads.byArity.length);
+            }
+        }
+
+        Lookup[] byArity = new Lookup[maxArity];
+        for (int arity = 0; arity < maxArity; arity++) {
+            byArity[arity] = resolveUnqualified(name, arity);
+        }
+        return new Overloads(byArity, resolveUnqualified(name, maxArity));
+    }
+
+    private Lookup resolveUnqualified(String name, int arity) {
+        Lookup prevLookup = null;
+
+        if (pluginSet.getSystemFunctionsClass() != null) {
+            prevLookup = lookup(scopes.get(SYSTEM), name, arity);
+            if (prevLookup.result == FOUND) {
+                return prevLookup;
+            }
+        }
+
+        for (int i = 0; i < pluginSet.size(); i++) {
+            String pluginId = pluginSet.getPluginId(i);
+            if (pluginId != null) {
+                Lookup currLookup = lookup(scopes.get(pluginId), name, arity);
+                if (currLookup.result == FOUND) {
+                    return currLookup;
+                }
+
+                if (prevLookup == null || (prevLookup.result == E_FUNCTION_NOT_FOUND &&
+                                           currLookup.result == E_WRONG_NUMBER_OF_ARGUMENTS)) {
+                    prevLookup = currLookup;
+                }
+            }
+        }
+
+        return prevLookup == null ? FUNCTION_NOT_FOUND : prevLookup;
+    }
+
+    private static Lookup lookup(Map<String, Overloads> scope, String name, int arity) {
+        Overloads overloads = scope.get(name);
+        return overloads == null ? FUNCTION_NOT_FOUND : overloads.get(arity);
+    }
+
+    /**
+     * Groups the function implementations {@link Functions#implementationsOf(Class) discovered} on a system functions
+     * or plugin class by function name and arity.
+     */
+    private static Map<String, Overloads> discover(String pluginName, int plugin, Class<?> klass) {
+        Map<String, Function> functions = new LinkedHashMap<>();
+        for (Functions.Discovered discovered : Functions.implementationsOf(klass)) {
+            Function function = functions.get(discovered.name);
+            if (function == null) {
+                functions.put(discovered.name, function = new Function(discovered.name, pluginName));
+            }
+            function.addImplementation(discovered.implementation);
+        }
+
+        Map<String, Overloads> scope = new HashMap<>();
+        for (Function function : functions.values()) {
+            int maxArity = 0;
+            for (int arity = 0; arity <= MAX_JAVA_ARITY; arity++) {
+                if (function.hasImplementation(arity)) {
+                    maxArity = arity + 1;
+                }
+            }
+
+            Lookup wrongNumberOfArguments = new Lookup(E_WRONG_NUMBER_OF_ARGUMENTS, function);
+            Lookup[] byArity = new Lookup[maxArity];
+            for (int arity = 0; arity < maxArity; arity++) {
+                Function.Implementation implementation = function.implementation(arity);
+                byArity[arity] =
+                    implementation == null ? wrongNumberOfArguments : new Entry(function, implementation, plugin);
+            }
+            scope.put(function.getName(), new Overloads(byArity, wrongNumberOfArguments));
+        }
+        return Collections.unmodifiableMap(scope);
+    }
+
+    /** The lookups for all the arities of a function name, within a scope. */
+    private static final class Overloads {
+
+        final Lookup[] byArity;
+
+        final Lookup otherwise; // for all the arities beyond byArity
+
+        Overloads(Lookup[] byArity, Lookup otherwise) {
+            this.byArity = byArity;
+            this.otherwise = otherwise;
+        }
+
+        Lookup get(int arity) {
+            return arity >= 0 && arity < byArity.length ? byArity[arity] : otherwise;
+        }
+    }
+
+    /**
+     * A successful lookup, bound to the function implementation to invoke and to the position of the object to invoke
+     * it on: a negative number for the system functions object or the position of the plugin in the list of available
+     * plugins.
+     */
+    public static final class Entry extends Lookup {
+
+        public final Function.Implementation implementation;
+
+        public final int plugin;
+
+        Entry(Function function, Function.Implementation implementation, int plugin) {
+            super(function);
+            this.implementation = implementation;
+            this.plugin = plugin;
+        }
+
+        public Object target(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+            return plugin < 0 ? systemFunctions : availablePlugins.get(plugin);
+        }
+
+        /**
+         * @throws Function.CallException if the function implementation fails
+         */
+        public String invoke(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins,
+                             String... args) {
+            Object target = target(systemFunctions, availablePlugins);
+            switch (args == null ? 0 : args.length) {
+            case 0:
+                return function.call0(implementation, target);
+            case 1:
+                return function.call1(implementation, target, args[0]);
+            case 2:
+                return function.call2(implementation, target, args[0], args[1]);
+            case 3:
+                return function.call3(implementation, target, args[0], args[1], args[2]);
+            default:
+                return function.invoke(implementation, target, args);
+            }
+        }
+    }
+}
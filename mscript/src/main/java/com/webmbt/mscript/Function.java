@@ -1,10 +1,13 @@
 package com.webmbt.mscript;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.List;
 
 /**
  * MScript functions can:
@@ -17,6 +20,12 @@ import java.util.concurrent.ConcurrentMap;
  * Java-based {@link #addImplementation(Method, Object) implementations} of MScript functions can currently only
  * accept {@link String} parameters and no varargs. The selection of one implementation over another is based on
  * call arity.
+ * <p>
+ * Implementations are invoked through {@link MethodHandle method handles} rather than {@link Method#invoke(Object,
+ * Object...) reflection} and are indexed by arity in a plain array. Calls with up to {@link #MAX_SPECIALIZED_ARITY}
+ * arguments can go through arity-specific entry points ({@link #call0(Object)}, {@link #call1(Object, String)}, etc.)
+ * which do not need an argument array at all.
+ * </p>
  *
  * @author TestOptimal, LLC
  * @version 1.2, Jan 12, 2015
@@ -27,7 +36,16 @@ public class Function {
 
     private final String pluginName;
 
-    private final ConcurrentMap<Integer, Implementation> implementations = new ConcurrentHashMap<>();
+    /**
+     * The maximum arity for which there is a specialized, array-free entry point (i.e. <code>call0</code> ...
+     * <code>call3</code>).
+     */
+    public static final int MAX_SPECIALIZED_ARITY = 3;
+
+    /** Implementations indexed by arity; copied on write so that calls never lock. */
+    private volatile Implementation[] implementations = new Implementation[0];
+
+    FunctionMetrics.Recorder recorder; // set on the first call measured by FunctionMetrics
 
     public Function(String name) {
         this(name, null);
@@ -53,6 +71,13 @@ public class Function {
         return pluginName;
     }
 
+    /**
+     * @return the name the function is called by in MScript code, e.g. <code>$dataGen.upperCase</code>
+     */
+    public String getQualifiedName() {
+        return (pluginName == null ? "$" : "$" + pluginName + ".") + name;
+    }
+
     /**
      * <em>System</em> (<em>built-in</em>) functions do not belong to any plugin (the {@link #getPluginName()
      * plugin name} is either <code>null</code> or empty) and are invoked in MScript code without any prefix.
@@ -67,7 +92,12 @@ public class Function {
      * @return <code>true</code> if <code>this</code> function has any implementation and <code>false</code> otherwise
      */
     public boolean hasImplementations() {
-        return implementations.size() > 0;
+        for (Implementation implementation : implementations) {
+            if (implementation != null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -75,7 +105,8 @@ public class Function {
      * <code>arity</code> and <code>false</code> otherwise
      */
     public boolean hasImplementation(int arity) {
-        return implementations.containsKey(arity);
+        Implementation[] implementations = this.implementations;
+        return arity >= 0 && arity < implementations.length && implementations[arity] != null;
     }
 
     /**
@@ -107,72 +138,342 @@ public class Function {
             throw new IllegalArgumentException("a function (Java) implementation cannot be null");
         }
 
-        // Validate method arguments (currently, only Strings allowed):
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        for (Class<?> parameterType : parameterTypes) {
+        checkParameterTypes(method);
+        return addImplementation(new Implementation(method, target));
+    }
+
+    /**
+     * Validates method arguments (currently, only Strings allowed).
+     */
+    static void checkParameterTypes(Method method) {
+        for (Class<?> parameterType : method.getParameterTypes()) {
             if (parameterType != String.class) {
                 throw new IllegalArgumentException(
                     "function (Java) implementations can currently only accept arguments of type java.lang.String; " +
                     "provided argument for method '" + method.getName() + "' is of type " + parameterType);
             }
         }
+    }
+
+    /**
+     * Adds an already created implementation (e.g. one backed by a {@link FunctionRegistry generated registry}),
+     * eventually replacing the previously added implementation with the same arity.
+     */
+    public Function addImplementation(Implementation implementation) {
+        if (implementation == null) {
+            throw new IllegalArgumentException("a function implementation cannot be null");
+        }
 
         // Eventually replace previously added implementation!
-        implementations.put(parameterTypes.length, new Implementation(method, target));
+        int arity = implementation.getArity();
+        synchronized (this) {
+            Implementation[] implementations = this.implementations;
+            if (arity >= implementations.length) {
+                Implementation[] grown = new Implementation[arity + 1];
+                System.arraycopy(implementations, 0, grown, 0, implementations.length);
+                implementations = grown;
+            } else {
+                implementations = implementations.clone();
+            }
+            implementations[arity] = implementation;
+            this.implementations = implementations;
+        }
 
         return this;
     }
 
+    /**
+     * Invokes the function implementation with the provided number of arguments on the target object it has been
+     * {@link #addImplementation(Method, Object) added} with, if any.
+     *
+     * @deprecated implementations discovered by {@link Functions} are shared and are not bound to any target object;
+     * use {@link Functions.Lookup#call(String...)} on the outcome of a lookup or {@link #invoke(Object, String...)}
+     * instead
+     * @throws IllegalStateException if the implementation is not static and has not been added with a target object
+     */
+    @Deprecated
     public String call(String... args) {
-        int argc = args == null ? 0 : args.length;
+        Implementation impl = getImplementation(args == null ? 0 : args.length);
+        Object target = impl.getTarget();
+        if (target == null && !Modifier.isStatic(impl.getMethod().getModifiers())) {
+            throw new IllegalStateException("no target object to call " + this + " on; use invoke(Object, String...) " +
+                                            "or Functions.Lookup.call(String...) instead");
+        }
+        return invoke(impl, target, args);
+    }
+
+    /**
+     * Same as {@link #call(String...)} but invokes the function implementation on the provided <code>target</code>
+     * rather than on the one the implementation has been {@link #addImplementation(Method, Object) added} with. This
+     * allows calling functions on whatever (plugin) instances are available at call time, regardless of the instances
+     * the function implementations have been discovered on.
+     */
+    public String invoke(Object target, String... args) {
+        return invoke(getImplementation(args == null ? 0 : args.length), target, args);
+    }
+
+    public String call0(Object target) { return call0(getImplementation(0), target); }
+
+    public String call1(Object target, String arg0) { return call1(getImplementation(1), target, arg0); }
+
+    public String call2(Object target, String arg0, String arg1) {
+        return call2(getImplementation(2), target, arg0, arg1);
+    }
+
+    public String call3(Object target, String arg0, String arg1, String arg2) {
+        return call3(getImplementation(3), target, arg0, arg1, arg2);
+    }
+
+    //
+    // Calls through a given implementation of this function (e.g. one resolved at compile time, so that later changes
+    // to the implementations of the function do not affect already compiled code):
+    //
+
+    String call0(Implementation impl, Object target) {
+        long start = FunctionMetrics.enabled ? System.nanoTime() : NOT_MEASURED;
+        try {
+            return measured(start, Types.asString((Object) impl.handle().invokeExact(target)));
+        } catch (Throwable throwable) {
+            throw callException(start, throwable);
+        }
+    }
+
+    String call1(Implementation impl, Object target, String arg0) {
+        long start = FunctionMetrics.enabled ? System.nanoTime() : NOT_MEASURED;
+        try {
+            return measured(start, Types.asString((Object) impl.handle().invokeExact(target, arg0)));
+        } catch (Throwable throwable) {
+            throw callException(start, throwable);
+        }
+    }
+
+    String call2(Implementation impl, Object target, String arg0, String arg1) {
+        long start = FunctionMetrics.enabled ? System.nanoTime() : NOT_MEASURED;
+        try {
+            return measured(start, Types.asString((Object) impl.handle().invokeExact(target, arg0, arg1)));
+        } catch (Throwable throwable) {
+            throw callException(start, throwable);
+        }
+    }
+
+    String call3(Implementation impl, Object target, String arg0, String arg1, String arg2) {
+        long start = FunctionMetrics.enabled ? System.nanoTime() : NOT_MEASURED;
+        try {
+            return measured(start, Types.asString((Object) impl.handle().invokeExact(target, arg0, arg1, arg2)));
+        } catch (Throwable throwable) {
+            throw callException(start, throwable);
+        }
+    }
+
+    String invoke(Implementation impl, Object target, String[] args) {
+        long start = FunctionMetrics.enabled ? System.nanoTime() : NOT_MEASURED;
+        try {
+            Object result = impl.spreader().invokeExact(target, args == null ? NO_ARGS : args);
+            return measured(start, Types.asString(result));
+        } catch (Throwable throwable) {
+            throw callException(start, throwable);
+        }
+    }
+
+    /**
+     * @return the implementation for the given <code>arity</code> or <code>null</code> if there is no such
+     * implementation
+     */
+    Implementation implementation(int arity) {
+        Implementation[] implementations = this.implementations;
+        return arity >= 0 && arity < implementations.length ? implementations[arity] : null;
+    }
 
-        Implementation impl = implementations.get(argc);
+    Implementation getImplementation(int argc) {
+        Implementation[] implementations = this.implementations;
+        Implementation impl = argc < implementations.length ? implementations[argc] : null;
         if (impl == null) {
             throw new CallException(this, "Cannot find an implementation for " + toString() + " that takes " + argc +
-                                          "arguments");
+                                          " arguments");
         }
+        return impl;
+    }
 
-        try {
-            return Types.asString(impl.getMethod().invoke(impl.getTarget(), args));
-        } catch (IllegalAccessException e) {
-            throw new CallException(this, e);
-        } catch (InvocationTargetException e) { // try to unwrap the 'real' exception / cause
-            Throwable cause = e.getCause();
-            throw new CallException(this, cause == null ? e : cause);
+    private String measured(long start, String result) {
+        if (start != NOT_MEASURED) {
+            FunctionMetrics.called(this, start, false);
         }
+        return result;
     }
 
+    private CallException callException(long start, Throwable throwable) {
+        if (start != NOT_MEASURED) {
+            FunctionMetrics.called(this, start, true);
+        }
+        return callException(throwable);
+    }
+
+    /**
+     * @return <code>throwable</code>, thrown by an implementation of this function, as a call exception of this
+     * function
+     */
+    CallException callException(Throwable throwable) {
+        return throwable instanceof CallException && ((CallException) throwable).getFunction() == this ?
+               (CallException) throwable : new CallException(this, throwable);
+    }
+
+    private static final String[] NO_ARGS = {};
+
+    private static final long NOT_MEASURED = Long.MIN_VALUE; // as start time, when function metrics are disabled
+
     @Override
     public String toString() {
-        return (pluginName == null ? "$" : "$" + pluginName + ".") + name +
-               Arrays.toString(implementations.keySet().toArray());
+        List<Integer> arities = new ArrayList<>();
+        Implementation[] implementations = this.implementations;
+        for (int arity = 0; arity < implementations.length; arity++) {
+            if (implementations[arity] != null) {
+                arities.add(arity);
+            }
+        }
+        return getQualifiedName() + arities;
     }
 
+    /**
+     * A Java method implementing an MScript function for a given arity, together with the {@link MethodHandle method
+     * handles} used to invoke it: one taking the target object and the arguments one by one (exact type
+     * <code>(Object, String, ...)Object</code>) and one taking the target object and an argument array (exact type
+     * <code>(Object, String[])Object</code>). Static methods simply ignore the target object.
+     * <p>
+     * Implementations described by a {@link FunctionRegistry generated registry} invoke the registry's direct invokers
+     * and only look up the actual Java method if asked to (e.g. by the {@link BytecodeCompiler bytecode compiler}).
+     * </p>
+     */
     public static class Implementation {
 
-        private final Method method;
+        private volatile Method method; // lazily looked up for registry-backed implementations
 
-        private Object target;
+        private final int arity;
 
-        public Implementation(Method method) {
-            this.method = method;
-        }
+        private final FunctionRegistry registry; // can be null
+
+        private final int function; // position in the registry
+
+        private final Object target; // can be null
+
+        private final MethodHandle handle;
+
+        private final MethodHandle spreader;
+
+        private final IllegalAccessException accessException; // if the method cannot be invoked from here
+
+        public Implementation(Method method) { this(method, null); }
 
         public Implementation(Method method, Object target) {
-            this(method);
+            this.method = method;
             this.target = target;
+            this.arity = method.getParameterTypes().length;
+            this.registry = null;
+            this.function = -1;
+
+            MethodHandle handle = null, spreader = null;
+            IllegalAccessException accessException = null;
+            try {
+                handle = LOOKUP.unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                }
+                handle = handle.asType(MethodType.methodType(Object.class, Object.class, stringTypes(arity)));
+                spreader = handle.asSpreader(String[].class, arity);
+            } catch (IllegalAccessException e) {
+                accessException = e;
+            }
+
+            this.handle = handle;
+            this.spreader = spreader;
+            this.accessException = accessException;
         }
 
+        /**
+         * @param function the position of the implementation in the <code>registry</code>
+         */
+        public Implementation(FunctionRegistry registry, int function) {
+            this.registry = registry;
+            this.function = function;
+            this.arity = registry.arity(function);
+            this.target = null;
+
+            // (Object, String[])Object, bound to the registry and to the position of the implementation:
+            this.spreader = MethodHandles.insertArguments(REGISTRY_INVOKE.bindTo(registry), 0, function);
+            this.handle = spreader.asCollector(String[].class, arity);
+            this.accessException = null;
+        }
+
+        /**
+         * @throws IllegalStateException if the method of a registry-backed implementation cannot be found (the
+         *                               registry is out of date)
+         */
         public Method getMethod() {
+            Method method = this.method;
+            if (method == null) {
+                try {
+                    this.method = method =
+                        registry.type().getMethod(registry.methodName(function), stringTypes(arity));
+                } catch (NoSuchMethodException nsme) {
+                    throw new IllegalStateException("out of date function registry for " + registry.type(), nsme);
+                }
+            }
             return method;
         }
 
+        public int getArity() {
+            return arity;
+        }
+
+        /**
+         * @return the target object the implementation has been created with or <code>null</code>; implementations
+         * discovered by {@link Functions} never have one since they are shared by all the callers
+         */
         public Object getTarget() {
             return target;
         }
 
+        /**
+         * @deprecated implementations are shared and immutable; pass the target object at call time, via
+         * {@link Function#invoke(Object, String...)} or {@link Functions.Lookup#call(String...)}, instead
+         * @throws UnsupportedOperationException always
+         */
+        @Deprecated
         public void setTarget(Object target) {
-            this.target = target;
+            throw new UnsupportedOperationException("function implementations no longer hold a mutable target");
+        }
+
+        MethodHandle handle() throws IllegalAccessException {
+            if (handle == null) {
+                throw accessException;
+            }
+            return handle;
+        }
+
+        MethodHandle spreader() throws IllegalAccessException {
+            if (spreader == null) {
+                throw accessException;
+            }
+            return spreader;
+        }
+
+        private static Class<?>[] stringTypes(int arity) {
+            Class<?>[] types = new Class<?>[arity];
+            Arrays.fill(types, String.class);
+            return types;
+        }
+
+        private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+        private static final MethodHandle REGISTRY_INVOKE;
+
+        static {
+            try {
+                REGISTRY_INVOKE = LOOKUP.findVirtual(FunctionRegistry.class, "invoke",
+                                                     MethodType.methodType(Object.class, int.class, Object.class,
+                                                                           String[].class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
         }
     }
 
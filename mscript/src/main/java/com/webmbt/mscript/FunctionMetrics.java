@@ -0,0 +1,342 @@
+package com.webmbt.mscript;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Opt-in metrics of MScript {@link Function function} calls and {@link Functions function lookups}: per-function call
+ * and error counts and latency histograms, lookup counts and {@link Functions} cache hit / miss counts. Metrics are
+ * disabled by default; while they are, instrumented code only pays for reading a <code>volatile</code> flag.
+ * </p>
+ * <p>
+ * Latencies are recorded, without locking, in log-linear histograms (8 sub-buckets per power of two, i.e. within
+ * 12.5% of the actual value, from 1ns up to about 18 minutes), striped by thread so that threads calling the same
+ * function rarely update the same counters. Functions are identified by plugin and function name, regardless of
+ * which {@link Functions} instance or {@link DispatchTable} they have been resolved through.
+ * </p>
+ * <p>
+ * Expressions compiled to bytecode call function implementations directly; while metrics are enabled, those calling
+ * functions are interpreted instead, so that their calls get measured too.
+ * </p>
+ * <p>
+ * Metrics can be read programmatically (see {@link #getCallStats()}) or over JMX, once {@link #registerMBean()
+ * registered}.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class FunctionMetrics implements FunctionMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.webmbt.mscript:type=FunctionMetrics";
+
+    private static final FunctionMetrics INSTANCE = new FunctionMetrics();
+
+    /** Read by instrumented code on every call / lookup. */
+    static volatile boolean enabled;
+
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    private final AtomicLong lookupCacheHits = new AtomicLong();
+
+    private final AtomicLong lookupCacheMisses = new AtomicLong();
+
+    private final AtomicLong dispatchTableCacheHits = new AtomicLong();
+
+    private final AtomicLong dispatchTableCacheMisses = new AtomicLong();
+
+    private FunctionMetrics() {}
+
+    public static FunctionMetrics getInstance() { return INSTANCE; }
+
+    /**
+     * Registers the metrics with the platform MBean server, unless already registered.
+     */
+    public static ObjectName registerMBean() throws JMException {
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (!server.isRegistered(name)) {
+            try {
+                server.registerMBean(INSTANCE, name);
+            } catch (InstanceAlreadyExistsException registeredConcurrently) {
+                // fine
+            }
+        }
+        return name;
+    }
+
+    @Override
+    public boolean isEnabled() { return enabled; }
+
+    @Override
+    public void setEnabled(boolean enabled) { FunctionMetrics.enabled = enabled; }
+
+    @Override
+    public void reset() {
+        for (Recorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+        lookups.set(0);
+        lookupCacheHits.set(0);
+        lookupCacheMisses.set(0);
+        dispatchTableCacheHits.set(0);
+        dispatchTableCacheMisses.set(0);
+    }
+
+    @Override
+    public long getLookupCount() { return lookups.get(); }
+
+    @Override
+    public long getLookupCacheHitCount() { return lookupCacheHits.get(); }
+
+    @Override
+    public long getLookupCacheMissCount() { return lookupCacheMisses.get(); }
+
+    @Override
+    public long getDispatchTableCacheHitCount() { return dispatchTableCacheHits.get(); }
+
+    @Override
+    public long getDispatchTableCacheMissCount() { return dispatchTableCacheMisses.get(); }
+
+    @Override
+    public List<CallStats> getCallStats() {
+        List<CallStats> callStats = new ArrayList<>(recorders.size());
+        for (Recorder recorder : recorders.values()) {
+            CallStats stats = recorder.snapshot();
+            if (stats.calls > 0) {
+                callStats.add(stats);
+            }
+        }
+        Collections.sort(callStats, MOST_TIME_CONSUMING_FIRST);
+        return callStats;
+    }
+
+    /**
+     * @param function a function name, as written in MScript code, e.g. <code>$web.click</code>
+     * @return the call metrics of <code>function</code> or <code>null</code> if it has never been called while
+     * metrics were enabled
+     */
+    public CallStats getCallStats(String function) {
+        Recorder recorder = recorders.get(function);
+        return recorder == null ? null : recorder.snapshot();
+    }
+
+    //
+    // Instrumentation hooks, only called while metrics are enabled:
+    //
+
+    static void called(Function function, long start, boolean failed) {
+        long nanos = System.nanoTime() - start;
+
+        Recorder recorder = function.recorder;
+        if (recorder == null) { // benign race, recorders are shared through the map
+            String name = function.getQualifiedName();
+            recorder = INSTANCE.recorders.get(name);
+            if (recorder == null) {
+                Recorder created = new Recorder(name);
+                recorder = INSTANCE.recorders.putIfAbsent(name, created);
+                if (recorder == null) {
+                    recorder = created;
+                }
+            }
+            function.recorder = recorder;
+        }
+        recorder.record(nanos, failed);
+    }
+
+    static void lookedUp() { INSTANCE.lookups.incrementAndGet(); }
+
+    static void lookupCache(boolean hit) {
+        (hit ? INSTANCE.lookupCacheHits : INSTANCE.lookupCacheMisses).incrementAndGet();
+    }
+
+    static void dispatchTableCache(boolean hit) {
+        (hit ? INSTANCE.dispatchTableCacheHits : INSTANCE.dispatchTableCacheMisses).incrementAndGet();
+    }
+
+    private static final Comparator<CallStats> MOST_TIME_CONSUMING_FIRST = new Comparator<CallStats>() {
+
+        @Override
+        public int compare(CallStats stats1, CallStats stats2) {
+            return Long.compare(stats2.totalNanos, stats1.totalNanos);
+        }
+    };
+
+    /**
+     * Call and error counts and latency histogram of a function, striped by thread. Each stripe is a run of
+     * {@link #STRIDE} counters in one array: the histogram buckets, the error count and the total latency.
+     */
+    static final class Recorder {
+
+        static final int SUB_BUCKET_BITS = 3;
+
+        static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        static final long MAX_NANOS = (1L << 40) - 1; // longer calls are recorded as lasting this long
+
+        static final int BUCKETS = bucket(MAX_NANOS) + 1;
+
+        private static final int ERRORS = BUCKETS;
+
+        private static final int TOTAL_NANOS = BUCKETS + 1;
+
+        private static final int STRIDE = (TOTAL_NANOS + 1 + 7) & ~7; // keeps stripes on separate cache lines
+
+        private static final int STRIPES = stripes();
+
+        private final String function;
+
+        private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIDE);
+
+        Recorder(String function) { this.function = function; }
+
+        void record(long nanos, boolean failed) {
+            nanos = Math.max(0, Math.min(nanos, MAX_NANOS));
+            int stripe = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+
+            counters.incrementAndGet(stripe + bucket(nanos));
+            counters.addAndGet(stripe + TOTAL_NANOS, nanos);
+            if (failed) {
+                counters.incrementAndGet(stripe + ERRORS);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, 0);
+            }
+        }
+
+        CallStats snapshot() {
+            long[] histogram = new long[BUCKETS];
+            long errors = 0, totalNanos = 0;
+            for (int stripe = 0; stripe < STRIPES * STRIDE; stripe += STRIDE) {
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    histogram[bucket] += counters.get(stripe + bucket);
+                }
+                errors += counters.get(stripe + ERRORS);
+                totalNanos += counters.get(stripe + TOTAL_NANOS);
+            }
+            return new CallStats(function, histogram, errors, totalNanos);
+        }
+
+        /** Values below <code>2 * SUB_BUCKETS</code> get a bucket of their own, others share it with neighbours. */
+        static int bucket(long nanos) {
+            if (nanos < 2 * SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        /** @return the highest value recorded in <code>bucket</code> */
+        static long highestValue(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift) + (1L << shift) - 1;
+        }
+
+        private static int stripes() {
+            int stripes = 1;
+            while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 16) {
+                stripes <<= 1;
+            }
+            return stripes;
+        }
+    }
+
+    /**
+     * A snapshot of the call metrics of a function. Latencies are in nanoseconds, accurate within 12.5%.
+     */
+    public static final class CallStats {
+
+        private final String function;
+
+        private final long[] histogram;
+
+        private final long calls;
+
+        private final long errors;
+
+        private final long totalNanos;
+
+        CallStats(String function, long[] histogram, long errors, long totalNanos) {
+            this.function = function;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.totalNanos = totalNanos;
+
+            long calls = 0;
+            for (long count : histogram) {
+                calls += count;
+            }
+            this.calls = calls;
+        }
+
+        /**
+         * @return the function name, as written in MScript code, e.g. <code>$web.click</code>
+         */
+        public String getFunction() { return function; }
+
+        public long getCalls() { return calls; }
+
+        /**
+         * @return the number of calls that failed, i.e. threw a {@link Function.CallException}
+         */
+        public long getErrors() { return errors; }
+
+        public long getTotalNanos() { return totalNanos; }
+
+        public long getMeanNanos() { return calls == 0 ? 0 : totalNanos / calls; }
+
+        public long getP50Nanos() { return getPercentileNanos(50); }
+
+        public long getP90Nanos() { return getPercentileNanos(90); }
+
+        public long getP99Nanos() { return getPercentileNanos(99); }
+
+        public long getMaxNanos() { return getPercentileNanos(100); }
+
+        /**
+         * @param percentile between <code>0</code> and <code>100</code>
+         * @return the latency <code>percentile</code> percent of the calls did not exceed
+         */
+        public long getPercentileNanos(double percentile) {
+            if (calls == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * calls));
+            long seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= rank) {
+                    return Recorder.highestValue(bucket);
+                }
+            }
+            return Recorder.MAX_NANOS;
+        }
+
+        @Override
+        public String toString() {
+            return function + ": " + calls + " call(s), " + errors + " error(s), mean " + getMeanNanos() + "ns, p50 " +
+                   getP50Nanos() + "ns, p99 " + getP99Nanos() + "ns, max " + getMaxNanos() + "ns";
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.webmbt.mscript;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link FunctionMetrics}, registered as <code>{@value FunctionMetrics#OBJECT_NAME}</code> by
+ * {@link FunctionMetrics#registerMBean()}.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public interface FunctionMetricsMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /** Clears all the metrics collected so far. */
+    void reset();
+
+    long getLookupCount();
+
+    long getLookupCacheHitCount();
+
+    /**
+     * @return the number of times a system functions or plugin class had to be scanned for functions
+     */
+    long getLookupCacheMissCount();
+
+    long getDispatchTableCacheHitCount();
+
+    long getDispatchTableCacheMissCount();
+
+    /**
+     * @return the call metrics of every function called since metrics have been enabled (or reset), most time
+     * consuming first
+     */
+    List<FunctionMetrics.CallStats> getCallStats();
+}
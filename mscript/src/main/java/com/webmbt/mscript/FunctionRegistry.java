@@ -0,0 +1,57 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * A build-time generated, reflection-free description of the MScript {@link Function functions} implemented by a
+ * system functions or plugin class: for every function implementation, the MScript function name, the Java method
+ * name and arity and a direct (compiled) way to {@link #invoke(int, Object, String[]) invoke} it.
+ * </p>
+ * <p>
+ * Registries are generated by the <code>mscript-processor</code> annotation processor as classes named after the
+ * (binary) name of the class they describe followed by {@link #SUFFIX}, in the same package. When such a registry
+ * exists, {@link Functions} uses it instead of scanning the class for {@link
+ * com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD}-annotated and public methods, which saves the cost of reflection
+ * at startup and on the first call of every function. Registries are only used if they describe exactly the public
+ * methods of the class (a registry left behind by an incremental build may not), reflection is used otherwise.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public interface FunctionRegistry {
+
+    String SUFFIX = "$MScriptFunctions";
+
+    /**
+     * @return the system functions or plugin class the registry describes
+     */
+    Class<?> type();
+
+    /**
+     * @return the number of function implementations in the registry
+     */
+    int size();
+
+    /**
+     * @return the MScript name of the function implemented by the <code>function</code>-th implementation
+     */
+    String name(int function);
+
+    /**
+     * @return the name of the Java method implementing the <code>function</code>-th implementation
+     */
+    String methodName(int function);
+
+    /**
+     * @return the number of (string) arguments of the <code>function</code>-th implementation
+     */
+    int arity(int function);
+
+    /**
+     * Invokes the <code>function</code>-th implementation on <code>target</code> (ignored for static methods).
+     *
+     * @return whatever the implementing method returns, <code>null</code> for <code>void</code> methods
+     * @throws Throwable whatever the implementing method throws
+     */
+    Object invoke(int function, Object target, String[] args) throws Throwable;
+}
@@ -4,9 +4,14 @@ import com.webmbt.plugin.MbtScriptExecutor;
 import com.webmbt.plugin.PluginAncestor;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
 
 import static com.webmbt.mscript.Functions.Lookup.Result;
 import static com.webmbt.mscript.Functions.Lookup.Result.E_FUNCTION_NOT_FOUND;
@@ -14,6 +19,7 @@ import static com.webmbt.mscript.Functions.Lookup.Result.E_PLUGIN_NOT_FOUND;
 import static com.webmbt.mscript.Functions.Lookup.Result.E_WRONG_NUMBER_OF_ARGUMENTS;
 import static com.webmbt.mscript.Functions.Lookup.Result.FOUND;
 import static com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD;
+import static java.util.logging.Level.WARNING;
 
 /**
  * <p>A (caching) lookup service for MScript {@link Function functions}.</p>
@@ -23,6 +29,19 @@ import static com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD;
  * scanned for {@link MSCRIPT_METHOD}-annotated and public methods (that are cached upon scanning) and if an
  * appropriate definition is found, it is retrieved.
  * </p>
+ * <p>
+ * Misses are cached as well: a class is only scanned again if another class shows up under the same plugin name.
+ * Functions called without a plugin name are furthermore resolved through an index from function names (and arities)
+ * to lookup results, one per plugin set (shape) lookups come in for, so that calling a plugin function without a
+ * plugin name costs the same as calling a system function.
+ * </p>
+ * <p>
+ * Cached functions do not hold on to the system functions objects or plugins they have been discovered on: function
+ * implementations are invoked on whatever objects are available at call time (see {@link Function#invoke(Object,
+ * String...)}) so that a single instance can be shared by any number of threads, each with its own objects. Successful
+ * lookups are bound to the system functions object or plugin the function has been found on, which {@link
+ * Lookup#call(String...)} invokes it on.
+ * </p>
  *
  * @author TestOptimal, LLC
  * @version 1.0, Mar 09, 2015
@@ -43,6 +62,21 @@ public class Functions {
      */
     private final ConcurrentMap<String, ConcurrentMap<String, Function>> cache = new ConcurrentHashMap<>();
 
+    /**
+     * The classes already scanned for functions, by plugin name; other classes get scanned (once). Several classes can
+     * be used under the same name (e.g. different system functions classes) without being scanned over and over.
+     */
+    private final ConcurrentMap<String, Set<Class<?>>> scannedClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Copy on write, plugin sets are expected to come in (very) few shapes: finding the index of a plugin set is a
+     * linear search which does not allocate.
+     */
+    private volatile UnqualifiedIndex[] unqualifiedIndexes = {};
+
+    /** Plugin sets are expected to come in (very) few shapes so this cache is not bounded either. */
+    private final ConcurrentMap<PluginSet, DispatchTable> dispatchTables = new ConcurrentHashMap<>();
+
     /**
      * @param pluginName   use <code>null</code> or an empty string as <code>pluginName</code> in order to get a
      *                     <em>{@link Function#isSystemFunction() system}</em> function
@@ -106,42 +140,178 @@ public class Functions {
 
         Function function = null;
         Result result = E_FUNCTION_NOT_FOUND;
-        for (Method method : klass.getMethods()) { // Class#getMethods() returns only public methods!
-            Function fn = null;
+        for (Discovered discovered : implementationsOf(klass)) {
+            Function fn = getOrCreateFunction(pluginName, discovered.name).addImplementation(discovered.implementation);
+
+            if (fn.getName().equals(functionName) && result != FOUND) {
+                // We've just found a function named like the one we were looking for and we don't have a best match yet
+                function = fn;
+                result = fn.hasImplementation(argsNumber) ? FOUND : E_WRONG_NUMBER_OF_ARGUMENTS;
+            }
+        }
 
-            if (method.isAnnotationPresent(MSCRIPT_METHOD.class)) {
+        return new Lookup(result, function);
+    }
 
-                // MSCRIPT_METHOD-annotated methods become implementations of MScript functions with the same name:
-                fn = getOrCreateFunction(pluginName, method.getName()).addImplementation(method, targetOrClass);
+    /**
+     * <p>
+     * Discovers the function implementations of a system functions or plugin class: {@link MSCRIPT_METHOD}-annotated
+     * methods become implementations of MScript functions with the same name and other public, not inherited methods
+     * become implementations of functions with their name prefixed by <code>_</code>.
+     * </p>
+     * <p>
+     * If a {@link FunctionRegistry registry} has been generated for the class at build time, it is used instead of
+     * reflection. Either way, the outcome is cached per class.
+     * </p>
+     *
+     * @return the function implementations, in discovery order (later implementations of a function with the same
+     * arity replace earlier ones)
+     */
+    static List<Discovered> implementationsOf(Class<?> klass) { return DISCOVERED.get(klass); }
 
-            } else if (method.getDeclaringClass() == klass) {
+    private static final ClassValue<List<Discovered>> DISCOVERED = new ClassValue<List<Discovered>>() {
 
-                // Other public, not inherited methods become implementations with their name prefixed by _:
-                fn = getOrCreateFunction(pluginName, "_" + method.getName()).addImplementation(method);
+        @Override
+        protected List<Discovered> computeValue(Class<?> klass) {
+            List<Discovered> discovered = new ArrayList<>();
 
+            FunctionRegistry registry = registryOf(klass);
+            if (registry != null) {
+                for (int i = 0; i < registry.size(); i++) {
+                    discovered.add(new Discovered(registry.name(i), new Function.Implementation(registry, i)));
+                }
+                return Collections.unmodifiableList(discovered);
             }
 
-            if (fn != null && fn.getName().equals(functionName) && result != FOUND) {
-                // We've just found a function named like the one we were looking for and we don't have a best match yet
-                function = fn;
-                result = fn.hasImplementation(argsNumber) ? FOUND : E_WRONG_NUMBER_OF_ARGUMENTS;
+            for (Method method : klass.getMethods()) { // Class#getMethods() returns only public methods!
+                String name = functionName(method, klass);
+                if (name != null) {
+                    Function.checkParameterTypes(method);
+                    discovered.add(new Discovered(name, new Function.Implementation(method)));
+                }
             }
+            return Collections.unmodifiableList(discovered);
         }
+    };
 
-        return new Lookup(result, function);
+    /**
+     * @return the name of the MScript function <code>method</code> implements when discovered on <code>klass</code>
+     * or <code>null</code> if it does not implement any
+     */
+    private static String functionName(Method method, Class<?> klass) {
+        if (method.isAnnotationPresent(MSCRIPT_METHOD.class)) {
+            return method.getName();
+        }
+        return method.getDeclaringClass() == klass ? "_" + method.getName() : null;
     }
 
+    /**
+     * @return the {@link FunctionRegistry registry} generated for <code>klass</code> at build time or
+     * <code>null</code> if there is none or if it is out of date (e.g. left behind by an incremental build), i.e. if
+     * it does not describe exactly the function implementations reflection would discover
+     */
+    static FunctionRegistry registryOf(Class<?> klass) {
+        ClassLoader classLoader = klass.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+
+        try {
+            Class<?> registryClass = Class.forName(klass.getName() + FunctionRegistry.SUFFIX, true, classLoader);
+            if (FunctionRegistry.class.isAssignableFrom(registryClass)) {
+                FunctionRegistry registry = (FunctionRegistry) registryClass.getDeclaredConstructor().newInstance();
+                if (registry.type() != klass) {
+                    LOG.warning("Ignoring function registry " + registryClass.getName() + ", not generated for " +
+                                klass);
+                } else if (!isUpToDate(registry, klass)) {
+                    LOG.warning("Ignoring out of date function registry " + registryClass.getName() + " of " + klass);
+                } else {
+                    return registry;
+                }
+            } else {
+                LOG.warning("Ignoring " + registryClass.getName() + ", not a function registry");
+            }
+        } catch (ClassNotFoundException cnfe) {
+            // no registry, fall back on reflection
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOG.log(WARNING, "Cannot load the function registry of " + klass, e);
+        }
+        return null;
+    }
+
+    /**
+     * Compares the function implementations described by <code>registry</code> to the public methods of
+     * <code>klass</code>: listing the methods of a class is cheap, unlike turning every one of them into a method
+     * handle, which registries avoid.
+     */
+    private static boolean isUpToDate(FunctionRegistry registry, Class<?> klass) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < registry.size(); i++) {
+            described.add(registry.name(i) + " " + registry.methodName(i) + "/" + registry.arity(i));
+        }
+
+        List<String> discovered = new ArrayList<>();
+        for (Method method : klass.getMethods()) {
+            String name = functionName(method, klass);
+            if (name != null) {
+                discovered.add(name + " " + method.getName() + "/" + method.getParameterTypes().length);
+            }
+        }
+
+        Collections.sort(described);
+        Collections.sort(discovered);
+        return described.equals(discovered);
+    }
+
+    /** A function implementation discovered on a system functions or plugin class. */
+    static final class Discovered {
+
+        final String name; // of the implemented function
+
+        final Function.Implementation implementation;
+
+        Discovered(String name, Function.Implementation implementation) {
+            this.name = name;
+            this.implementation = implementation;
+        }
+    }
+
+    private static final Logger LOG = Logger.getLogger(Functions.class.getName());
+
     protected Lookup lookupOrCache(String pluginName, String functionName, int argsNumber, Object targetOrClass) {
         // Look up in the internal cache first since reflection-based lookup is generally slower.
         Function function = getFunction(pluginName, functionName);
         if (function != null && function.hasImplementation(argsNumber)) {
+            if (FunctionMetrics.enabled) {
+                FunctionMetrics.lookupCache(true);
+            }
             return new Lookup(function);
         }
 
+        // If the very same class has already been scanned, scanning it again would not find anything new:
+        String scannedKey =
+            pluginName == null || (pluginName = pluginName.trim()).length() == 0 ? "__SYS__" : pluginName;
+        Class<?> klass = targetOrClass instanceof Class ? (Class<?>) targetOrClass : targetOrClass.getClass();
+        Set<Class<?>> classes = scannedClasses.get(scannedKey);
+        boolean scanned = classes != null && classes.contains(klass);
+        if (FunctionMetrics.enabled) {
+            FunctionMetrics.lookupCache(scanned);
+        }
+        if (scanned) {
+            return function == null ? FUNCTION_NOT_FOUND : new Lookup(E_WRONG_NUMBER_OF_ARGUMENTS, function);
+        }
+
         // NOTE: even if the plugin has already been cached, if we can't find the requested function (either at
         // all or having a corresponding implementation for the provided arity, we re-cache the whole plugin in
         // case the plugin list or object reference has dynamically changed over the course of the program.
-        return lookupAndCache(pluginName, functionName, argsNumber, targetOrClass);
+        Lookup lookup = lookupAndCache(pluginName, functionName, argsNumber, targetOrClass);
+        if (classes == null) {
+            scannedClasses.putIfAbsent(scannedKey,
+                                       Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>()));
+            classes = scannedClasses.get(scannedKey);
+        }
+        classes.add(klass);
+        return lookup;
     }
 
     /**
@@ -154,6 +324,9 @@ public class Functions {
      */
     public Lookup lookup(String pluginName, String functionName, int argsNumber, MbtScriptExecutor systemFunctions,
                          List<PluginAncestor> availablePlugins) {
+        if (FunctionMetrics.enabled) {
+            FunctionMetrics.lookedUp();
+        }
 
         if (pluginName != null && (pluginName = pluginName.trim()).length() > 0) {
             // Probably a faster lookup...
@@ -173,11 +346,68 @@ public class Functions {
 
             // The plugin might exist in the internal cache but it is not available, at least for this lookup:
             return plugin == null ? new Lookup(E_PLUGIN_NOT_FOUND)
-                                  : lookupOrCache(pluginName, functionName, argsNumber, plugin);
+                                  : lookupOrCache(pluginName, functionName, argsNumber, plugin).bind(plugin);
+        }
+
+        // No plugin name - check the index first:
+        UnqualifiedIndex index = unqualifiedIndex(systemFunctions, availablePlugins);
+        Lookup lookup = index.get(functionName, argsNumber);
+        if (lookup == null) {
+            lookup = lookupUnqualified(functionName, argsNumber, systemFunctions, availablePlugins);
+            if (lookup != null) {
+                index.put(functionName, argsNumber, lookup);
+            }
+        }
+        // Indexed lookups are shared by all the objects of the same shape, bind the one at hand to the actual target:
+        return lookup != null && lookup.result == FOUND ?
+               lookup.bind(targetOf(lookup.function, systemFunctions, availablePlugins)) : lookup;
+    }
+
+    /**
+     * @return the system functions object or the (first) plugin a function found without a plugin name belongs to
+     */
+    private static Object targetOf(Function function, MbtScriptExecutor systemFunctions,
+                                   List<PluginAncestor> availablePlugins) {
+        if (function.isSystemFunction()) {
+            return systemFunctions;
+        }
+        for (PluginAncestor availablePlugin : availablePlugins) {
+            if (availablePlugin != null && function.getPluginName().equals(availablePlugin.getPluginID())) {
+                return availablePlugin;
+            }
+        }
+        return null;
+    }
+
+    private UnqualifiedIndex unqualifiedIndex(MbtScriptExecutor systemFunctions,
+                                              List<PluginAncestor> availablePlugins) {
+        for (UnqualifiedIndex index : unqualifiedIndexes) {
+            if (index.pluginSet.matches(systemFunctions, availablePlugins)) {
+                return index;
+            }
         }
 
-        // No plugin name - look up system functions and eventually fall back on provided plugins (slower lookup):
+        synchronized (this) {
+            UnqualifiedIndex[] indexes = unqualifiedIndexes;
+            for (UnqualifiedIndex index : indexes) { // some other thread may have just added it
+                if (index.pluginSet.matches(systemFunctions, availablePlugins)) {
+                    return index;
+                }
+            }
+
+            UnqualifiedIndex index = new UnqualifiedIndex(PluginSet.of(systemFunctions, availablePlugins));
+            indexes = Arrays.copyOf(indexes, indexes.length + 1);
+            indexes[indexes.length - 1] = index;
+            unqualifiedIndexes = indexes;
+            return index;
+        }
+    }
 
+    /**
+     * Looks up system functions and eventually falls back on provided plugins (slower lookup).
+     */
+    protected Lookup lookupUnqualified(String functionName, int argsNumber, MbtScriptExecutor systemFunctions,
+                                       List<PluginAncestor> availablePlugins) {
         Lookup prevLookup = null;
 
         if (systemFunctions != null) {
@@ -209,7 +439,74 @@ public class Functions {
         return prevLookup;
     }
 
-    public void clearCache() { cache.clear(); }
+    /**
+     * @return the (cached) {@link DispatchTable dispatch table} of the functions callable against plugin sets of the
+     * given shape
+     */
+    public DispatchTable dispatchTable(PluginSet pluginSet) {
+        DispatchTable dispatchTable = dispatchTables.get(pluginSet);
+        if (FunctionMetrics.enabled) {
+            FunctionMetrics.dispatchTableCache(dispatchTable != null);
+        }
+        if (dispatchTable == null) {
+            DispatchTable created = new DispatchTable(pluginSet);
+            dispatchTable = dispatchTables.putIfAbsent(pluginSet, created);
+            if (dispatchTable == null) {
+                dispatchTable = created;
+            }
+        }
+        return dispatchTable;
+    }
+
+    /**
+     * Equivalent to {@link #dispatchTable(PluginSet) dispatchTable(PluginSet.of(systemFunctions,
+     * availablePlugins))}.
+     */
+    public DispatchTable dispatchTable(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        return dispatchTable(PluginSet.of(systemFunctions, availablePlugins));
+    }
+
+    public void clearCache() {
+        cache.clear();
+        scannedClasses.clear();
+        synchronized (this) {
+            unqualifiedIndexes = new UnqualifiedIndex[0];
+        }
+        dispatchTables.clear();
+    }
+
+    private static final Lookup FUNCTION_NOT_FOUND = new Lookup(E_FUNCTION_NOT_FOUND);
+
+    /**
+     * Lookup results for functions called without a plugin name, by function name and arity, for a given plugin set.
+     */
+    private static final class UnqualifiedIndex {
+
+        final PluginSet pluginSet;
+
+        final ConcurrentMap<String, Lookup[]> lookups = new ConcurrentHashMap<>();
+
+        UnqualifiedIndex(PluginSet pluginSet) { this.pluginSet = pluginSet; }
+
+        Lookup get(String functionName, int argsNumber) {
+            Lookup[] byArity = lookups.get(functionName);
+            return byArity != null && argsNumber >= 0 && argsNumber < byArity.length ? byArity[argsNumber] : null;
+        }
+
+        void put(String functionName, int argsNumber, Lookup lookup) {
+            if (argsNumber < 0) {
+                return;
+            }
+
+            // Copy on write; concurrent puts for the same name may lose each other's updates, which merely costs
+            // another lookup later on:
+            Lookup[] byArity = lookups.get(functionName);
+            Lookup[] updated = Arrays.copyOf(byArity == null ? new Lookup[0] : byArity,
+                                             Math.max(argsNumber + 1, byArity == null ? 0 : byArity.length));
+            updated[argsNumber] = lookup;
+            lookups.put(functionName, updated);
+        }
+    }
 
     public static class Lookup {
 
@@ -217,16 +514,43 @@ public class Functions {
 
         public final Function function;
 
+        /** The object to invoke the function on, if the lookup is bound to one; can be <code>null</code>. */
+        public final Object target;
+
         public Lookup(Result result) { this(result, null); }
 
         public Lookup(Function function) { this(FOUND, function); }
 
-        public Lookup(Result result, Function function) {
+        public Lookup(Result result, Function function) { this(result, function, null); }
+
+        public Lookup(Result result, Function function, Object target) {
             if (result == null) {
                 throw new IllegalArgumentException("lookup result cannot be null");
             }
             this.result = result;
             this.function = function;
+            this.target = target;
+        }
+
+        /**
+         * @return a lookup with the same outcome, bound to <code>target</code>; cached lookups are shared and never
+         * bound themselves
+         */
+        Lookup bind(Object target) {
+            return result == FOUND && target != this.target ? new Lookup(result, function, target) : this;
+        }
+
+        /**
+         * Invokes the found function on the object this lookup is bound to.
+         *
+         * @throws IllegalStateException  if the function has not been found
+         * @throws Function.CallException if the function implementation fails
+         */
+        public String call(String... args) {
+            if (result != FOUND) {
+                throw new IllegalStateException("cannot call a function that has not been found: " + result);
+            }
+            return function.invoke(target, args);
         }
 
         public static enum Result {
@@ -0,0 +1,480 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptErrorStrategy;
+import com.webmbt.mscript.parse.MScriptLexer;
+import com.webmbt.mscript.parse.MScriptParser;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.NotNull;
+import org.antlr.v4.runtime.misc.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static com.webmbt.mscript.parse.MScriptLexer.BREAK;
+import static com.webmbt.mscript.parse.MScriptLexer.COMM;
+import static com.webmbt.mscript.parse.MScriptLexer.CONTINUE;
+import static com.webmbt.mscript.parse.MScriptLexer.ID;
+import static com.webmbt.mscript.parse.MScriptLexer.IF;
+import static com.webmbt.mscript.parse.MScriptLexer.NL;
+import static com.webmbt.mscript.parse.MScriptLexer.SEMI;
+import static com.webmbt.mscript.parse.MScriptLexer.SIGIL;
+import static com.webmbt.mscript.parse.MScriptLexer.WHILE;
+
+/**
+ * <p>
+ * Parses MScript scripts being edited (e.g. in the test rig) incrementally, one top-level statement at a time: the
+ * script is split in {@link Segment segments}, each made of the separators, newlines and comments preceding a
+ * top-level statement and the statement itself. On every {@link #update(String) update}, the whole script is lexed
+ * again (which is cheap) but only the segments touched by the edit are parsed again; parse trees and errors of the
+ * other segments are reused.
+ * </p>
+ * <p>
+ * The segments to parse again are widened as long as reusing their neighbours could yield a different outcome than
+ * parsing the whole script: when a neighbour has syntax errors, when the edited statements could extend into a
+ * neighbour (e.g. an <code>else</code> or an operator following a newline). If the edited statements have syntax
+ * errors themselves, the whole script is parsed again: how the parser recovers from errors depends on what follows
+ * them as well as on where the erroneous statement stands in the script.
+ * </p>
+ * <p>
+ * Updates can be cancelled by interrupting the updating thread, in which case a {@link CancellationException} is thrown
+ * and the parser state is left untouched. Instances are thread-safe; {@link Result results} are immutable.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class IncrementalParser {
+
+    private final DispatchTable dispatchTable; // null if function calls are not to be validated
+
+    private String text = "";
+
+    private List<Token> tokens = Collections.emptyList();
+
+    private List<Segment> segments = Collections.singletonList(new Segment(0, null, NO_ERRORS));
+
+    /**
+     * @param dispatchTable the functions to validate function calls against or <code>null</code> to only check syntax
+     */
+    public IncrementalParser(DispatchTable dispatchTable) {
+        this.dispatchTable = dispatchTable;
+    }
+
+    /**
+     * Parses a new version of the script, reusing as much as possible of the previous parse.
+     *
+     * @throws CancellationException if the current thread gets interrupted in the meantime
+     */
+    public synchronized Result update(String newText) {
+        List<Token> newTokens = new ArrayList<>();
+        Token eof = lex(newText, newTokens);
+
+        int oldSize = tokens.size(), newSize = newTokens.size(), minSize = Math.min(oldSize, newSize);
+        int prefix = 0;
+        while (prefix < minSize && same(tokens.get(prefix), newTokens.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < minSize - prefix &&
+               same(tokens.get(oldSize - 1 - suffix), newTokens.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        int last = segments.size() - 1; // the tail, trailing tokens only
+        int[] starts = new int[segments.size() + 1];
+        for (int k = 0; k <= last; k++) {
+            starts[k + 1] = starts[k] + segments.get(k).size;
+        }
+
+        int reparsed = 0;
+        List<Segment> newSegments = segments;
+        if (prefix < oldSize || prefix < newSize) {
+            int i = segmentAt(starts, Math.max(prefix - 1, 0));
+            int j = Math.max(i, segmentAt(starts, oldSize - suffix));
+
+            Window window;
+            for (; ; ) {
+                while (i > 0 && segments.get(i - 1).hasSyntaxErrors) {
+                    i--;
+                }
+                while (j < last && segments.get(j + 1).hasSyntaxErrors) {
+                    j++;
+                }
+
+                int from = starts[i], to = starts[j + 1] + newSize - oldSize;
+                if (i > 0 && !isBoundary(newTokens, from - 1, nextSignificant(newTokens, from))) {
+                    i--;
+                    continue;
+                }
+                if (j < last && !isBoundary(newTokens, previousSignificant(newTokens, to - 1),
+                                            to + segments.get(j + 1).gap)) {
+                    j++;
+                    continue;
+                }
+
+                window = parse(newText, newTokens.subList(from, to), eof);
+                reparsed += to - from;
+                if (window.hasSyntaxErrors && (i > 0 || j < last)) {
+                    i = 0; // error recovery depends on anything that follows, as well as on the statement's position
+                    j = last;
+                    continue;
+                }
+                break;
+            }
+
+            newSegments = new ArrayList<>(segments.subList(0, i));
+            newSegments.addAll(window.segments);
+            if (j < last) { // tokens trailing the window now lead the next segment
+                newSegments.add(segments.get(j + 1).prepend(window.trailing, window.trailingErrors));
+                newSegments.addAll(segments.subList(j + 2, segments.size()));
+            } else {
+                newSegments.add(new Segment(window.trailing, null, window.trailingErrors));
+            }
+        }
+
+        text = newText;
+        tokens = newTokens;
+        segments = Collections.unmodifiableList(newSegments);
+        return new Result(text, tokens, eof, segments, reparsed);
+    }
+
+    private static Token lex(String text, List<Token> tokens) {
+        MScriptLexer mScriptLexer = new MScriptLexer(new ANTLRInputStream(text));
+        mScriptLexer.removeErrorListeners();
+        for (Token token = mScriptLexer.nextToken(); ; token = mScriptLexer.nextToken()) {
+            checkInterrupted();
+            if (token.getType() == Token.EOF) {
+                return token;
+            }
+            tokens.add(token);
+        }
+    }
+
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("incremental parse cancelled");
+        }
+    }
+
+    private static boolean same(Token t1, Token t2) {
+        return t1.getType() == t2.getType() && t1.getText().equals(t2.getText());
+    }
+
+    private static int segmentAt(int[] starts, int token) {
+        int k = 0;
+        while (k < starts.length - 2 && starts[k + 1] <= token) {
+            k++;
+        }
+        return k;
+    }
+
+    private static boolean isSignificant(Token token) {
+        int type = token.getType();
+        return type != COMM && type != NL && type != SEMI;
+    }
+
+    private static int nextSignificant(List<Token> tokens, int from) {
+        for (int k = from; k < tokens.size(); k++) {
+            if (isSignificant(tokens.get(k))) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static int previousSignificant(List<Token> tokens, int from) {
+        for (int k = from; k >= 0; k--) {
+            if (isSignificant(tokens.get(k))) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether the statements ending at <code>before</code> and starting at <code>after</code> are necessarily
+     * separate statements, whatever their neighbours.
+     */
+    private static boolean isBoundary(List<Token> tokens, int before, int after) {
+        if (before < 0 || after < 0 || after >= tokens.size()) {
+            return true; // nothing to extend or to be extended
+        }
+
+        int type = tokens.get(after).getType();
+        if (type != ID && type != SIGIL && type != IF && type != WHILE && type != BREAK && type != CONTINUE) {
+            return false; // e.g. else, operators, etc. continuing the previous statement
+        }
+
+        boolean hasNewline = false, hasSemicolon = false;
+        for (int k = before + 1; k < after; k++) {
+            hasNewline |= tokens.get(k).getType() == NL;
+            hasSemicolon |= tokens.get(k).getType() == SEMI;
+        }
+        int beforeType = tokens.get(before).getType();
+        return hasSemicolon || hasNewline && !(type == ID && (beforeType == BREAK || beforeType == CONTINUE));
+    }
+
+    private Window parse(String text, List<Token> windowTokens, Token eof) {
+        List<Token> source = new ArrayList<>(windowTokens.size() + 1);
+        source.addAll(windowTokens);
+        source.add(eof); // rather than a made up one, so that errors at EOF read the same as when parsing in one go
+        MScriptParser mScriptParser = new MScriptParser(new CommonTokenStream(new ListTokenSource(source) {
+
+            @Override
+            public Token nextToken() {
+                checkInterrupted();
+                return super.nextToken();
+            }
+        }));
+        mScriptParser.removeErrorListeners();
+        mScriptParser.setErrorHandler(new MScriptErrorStrategy()); // like MScriptEngine, see MScriptEngine#createParser
+        ErrorCollector errors = new ErrorCollector(text, windowTokens.size());
+        mScriptParser.addErrorListener(errors);
+
+        MScriptParser.ScriptContext script = mScriptParser.script();
+        boolean hasSyntaxErrors = !errors.errors.isEmpty();
+        if (dispatchTable != null) {
+            errors.syntax = false;
+            new MScriptValidator(dispatchTable).validate(mScriptParser, script);
+        }
+
+        Window window = new Window(hasSyntaxErrors);
+        int start = 0;
+        MScriptParser.StatsContext stats = script.stats();
+        if (stats != null) {
+            for (MScriptParser.StatContext stat : stats.stat()) {
+                Token first = stat.getStart(), last = stat.getStop();
+                if (first == null || last == null || first.getType() == Token.EOF ||
+                    first.getTokenIndex() < start || last.getTokenIndex() < first.getTokenIndex()) {
+                    continue; // (partially) recovered from errors, left in the gap of the next segment
+                }
+
+                int end = last.getTokenIndex() + 1;
+                window.segments.add(new Segment(first.getTokenIndex() - start, stat, errors.between(start, end)));
+                start = end;
+            }
+        }
+        window.trailing = windowTokens.size() - start;
+        window.trailingErrors = errors.between(start, windowTokens.size() + 1); // EOF included
+        return window;
+    }
+
+    /** The outcome of parsing a range of segments. */
+    private static final class Window {
+
+        final boolean hasSyntaxErrors;
+
+        final List<Segment> segments = new ArrayList<>();
+
+        int trailing; // the number of tokens after the last statement
+
+        List<SegmentError> trailingErrors;
+
+        Window(boolean hasSyntaxErrors) {
+            this.hasSyntaxErrors = hasSyntaxErrors;
+        }
+    }
+
+    /** Records errors along with the position of their offending tokens, relative to the parsed window. */
+    private static final class ErrorCollector extends MScriptErrorListener {
+
+        private final int eofIndex;
+
+        private final List<MScriptError> mScriptErrors;
+
+        final List<SegmentError> errors = new ArrayList<>();
+
+        boolean syntax = true;
+
+        ErrorCollector(String mScript, int eofIndex) {
+            this(mScript, eofIndex, new ArrayList<MScriptError>());
+        }
+
+        private ErrorCollector(String mScript, int eofIndex, List<MScriptError> mScriptErrors) {
+            super(mScript, mScriptErrors);
+            this.eofIndex = eofIndex;
+            this.mScriptErrors = mScriptErrors;
+        }
+
+        @Override
+        public <T extends Token> void syntaxError(@NotNull Recognizer<T, ?> recognizer, @Nullable T offendingSymbol,
+                                                  int line, int charPositionInLine, @NotNull String message,
+                                                  @Nullable RecognitionException exception) {
+            super.syntaxError(recognizer, offendingSymbol, line, charPositionInLine, message, exception);
+
+            int index = offendingSymbol == null || offendingSymbol.getType() == Token.EOF ? eofIndex :
+                        offendingSymbol.getTokenIndex();
+            errors.add(new SegmentError(index, mScriptErrors.get(mScriptErrors.size() - 1), syntax, errors.size()));
+        }
+
+        /** @return the errors in <code>[from, to)</code>, relative to <code>from</code> and sorted by position */
+        List<SegmentError> between(int from, int to) {
+            List<SegmentError> between = new ArrayList<>();
+            for (SegmentError error : errors) {
+                if (error.offset >= from && error.offset < to) {
+                    between.add(error.moveBy(-from));
+                }
+            }
+            if (between.isEmpty()) {
+                return NO_ERRORS;
+            }
+
+            Collections.sort(between); // stable, errors on the same token are kept in reporting order
+            return between;
+        }
+    }
+
+    private static final List<SegmentError> NO_ERRORS = Collections.emptyList();
+
+    private static final Comparator<SegmentError> IN_REPORTING_ORDER = new Comparator<SegmentError>() {
+
+        @Override
+        public int compare(SegmentError e1, SegmentError e2) {
+            return e1.sequence < e2.sequence ? -1 : e1.sequence == e2.sequence ? 0 : 1;
+        }
+    };
+
+    /** An error located relatively to the start of a segment, so that segments can move around. */
+    private static final class SegmentError implements Comparable<SegmentError> {
+
+        final int offset;
+
+        final MScriptError error;
+
+        final boolean syntax;
+
+        final int sequence; // the order the error has been reported in, by the parse that found it
+
+        SegmentError(int offset, MScriptError error, boolean syntax, int sequence) {
+            this.offset = offset;
+            this.error = error;
+            this.syntax = syntax;
+            this.sequence = sequence;
+        }
+
+        SegmentError moveBy(int tokens) { return new SegmentError(offset + tokens, error, syntax, sequence); }
+
+        @Override
+        public int compareTo(SegmentError that) { return offset < that.offset ? -1 : offset == that.offset ? 0 : 1; }
+    }
+
+    /**
+     * A top-level statement along with the separators, newlines and comments preceding it. The last segment of a script
+     * has no statement but the tokens following the last statement, if any.
+     */
+    public static final class Segment {
+
+        /** The number of separators, newlines and comments (or unparseable tokens) before the statement. */
+        public final int gap;
+
+        /** The number of tokens in the segment, the statement included. */
+        public final int size;
+
+        /**
+         * The parse tree of the statement, <code>null</code> for the last segment. Tokens in the parse trees of reused
+         * segments are the ones they have been parsed from, use the {@link Result#tokens tokens} of the result for
+         * up-to-date positions.
+         */
+        public final MScriptParser.StatContext statement;
+
+        final List<SegmentError> errors;
+
+        final boolean hasSyntaxErrors;
+
+        Segment(int gap, MScriptParser.StatContext statement, List<SegmentError> errors) {
+            this(gap, statement == null ? gap :
+                      gap + statement.getStop().getTokenIndex() - statement.getStart().getTokenIndex() + 1, statement,
+                 errors);
+        }
+
+        private Segment(int gap, int size, MScriptParser.StatContext statement, List<SegmentError> errors) {
+            this.gap = gap;
+            this.size = size;
+            this.statement = statement;
+            this.errors = errors;
+
+            boolean hasSyntaxErrors = false;
+            for (SegmentError error : errors) {
+                hasSyntaxErrors |= error.syntax;
+            }
+            this.hasSyntaxErrors = hasSyntaxErrors;
+        }
+
+        Segment prepend(int tokens, List<SegmentError> leadingErrors) {
+            if (tokens == 0 && leadingErrors.isEmpty()) {
+                return this;
+            }
+
+            List<SegmentError> shifted = new ArrayList<>(leadingErrors);
+            for (SegmentError error : errors) {
+                shifted.add(error.moveBy(tokens));
+            }
+            return new Segment(gap + tokens, size + tokens, statement, shifted);
+        }
+    }
+
+    /** A snapshot of an incrementally parsed script. */
+    public static final class Result {
+
+        public final String text;
+
+        /** All the tokens of the script (but <code>EOF</code>). */
+        public final List<Token> tokens;
+
+        public final List<Segment> segments;
+
+        /**
+         * The errors of the whole script, in the order {@link MScriptEngine#checkMScript(String,
+         * com.webmbt.plugin.MbtScriptExecutor, List) MScriptEngine} reports them: the syntax errors first, in the order
+         * the parser has reported them, then the invalid function calls, in source order.
+         */
+        public final List<MScriptError> errors;
+
+        /** The number of tokens parsed by the update (possibly more than once, as the parsed range grew). */
+        public final int reparsedTokens;
+
+        Result(String text, List<Token> tokens, Token eof, List<Segment> segments, int reparsedTokens) {
+            this.text = text;
+            this.tokens = Collections.unmodifiableList(tokens);
+            this.segments = segments;
+            this.reparsedTokens = reparsedTokens;
+
+            // Syntax errors are only ever reused from parses of the whole script (see update()) so they all come from
+            // the same parse and can be put back in the order they have been reported in:
+            List<SegmentError> syntaxErrors = new ArrayList<>(), callErrors = new ArrayList<>();
+            int start = 0;
+            for (Segment segment : segments) {
+                for (SegmentError error : segment.errors) {
+                    (error.syntax ? syntaxErrors : callErrors).add(error.moveBy(start));
+                }
+                start += segment.size;
+            }
+            Collections.sort(syntaxErrors, IN_REPORTING_ORDER);
+            syntaxErrors.addAll(callErrors); // function calls are validated after parsing
+
+            List<MScriptError> errors = new ArrayList<>();
+            for (SegmentError error : syntaxErrors) {
+                Token token = error.offset < tokens.size() ? tokens.get(error.offset) : eof;
+                errors.add(error.error.moveTo(text, token.getLine(), token.getCharPositionInLine()));
+            }
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        /** @return the index (in {@link #tokens}) of the first token of the <code>segment</code>-th segment */
+        public int start(int segment) {
+            int start = 0;
+            for (int k = 0; k < segment; k++) {
+                start += segments.get(k).size;
+            }
+            return start;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * Derives, from a compiled expression / script tree, a copy that notifies the {@link MScriptContext#listener listener}
+ * of the context it is executed in of every statement, function call, variable read / write and condition outcome.
+ * </p>
+ * <p>
+ * Instrumentation happens once per {@link CompiledMScript compiled script}, the first time it is executed with a
+ * listener, so that the original tree keeps running without any listener check. Instrumented trees expect a listener
+ * to be set on the context and should only be executed with one.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+class Instrumenter implements Node.Visitor<Node> {
+
+    Node instrument(Node node) {
+        return node.accept(this);
+    }
+
+    Statement instrument(Statement statement) {
+        if (statement instanceof Statement.Block) { // blocks merely group statements and are not notified
+            Statement[] statements = ((Statement.Block) statement).statements.clone();
+            for (int i = 0; i < statements.length; i++) {
+                statements[i] = instrument(statements[i]);
+            }
+            return new Statement.Block(statement.line, statement.column, statements);
+        }
+
+        Statement instrumented = statement;
+        if (statement instanceof Statement.Assign) {
+            Statement.Assign assign = (Statement.Assign) statement;
+            instrumented = new ListenedAssign(assign, instrument(assign.value));
+        } else if (statement instanceof Statement.Eval) {
+            instrumented = new Statement.Eval(statement.line, statement.column,
+                                              instrument(((Statement.Eval) statement).expression));
+        } else if (statement instanceof Statement.If) {
+            Statement.If ifStat = (Statement.If) statement;
+            instrumented = new Statement.If(ifStat.line, ifStat.column,
+                                            new ListenedCondition(ifStat, instrument(ifStat.condition), null, -1),
+                                            instrument(ifStat.then),
+                                            ifStat.otherwise == null ? null : instrument(ifStat.otherwise));
+        } else if (statement instanceof Statement.While) {
+            Statement.While whileStat = (Statement.While) statement;
+            instrumented = new Statement.While(whileStat.line, whileStat.column,
+                                               new ListenedCondition(whileStat, instrument(whileStat.condition),
+                                                                     whileStat.index, whileStat.indexSlot),
+                                               whileStat.index, whileStat.maxLoopNum, whileStat.label,
+                                               instrument(whileStat.body));
+        }
+        return new ListenedStatement(instrumented);
+    }
+
+    @Override
+    public Node visitConst(Node.Const node) { return node; }
+
+    @Override
+    public Node visitVar(Node.Var node) { return new ListenedVar(node); }
+
+    @Override
+    public Node visitNegate(Node.Negate node) {
+        return new Node.Negate(node.line, node.column, instrument(node.operand));
+    }
+
+    @Override
+    public Node visitArithmetic(Node.Arithmetic node) {
+        return new Node.Arithmetic(node.line, node.column, node.op, instrument(node.left), instrument(node.right),
+                                   node.typed);
+    }
+
+    @Override
+    public Node visitComparison(Node.Comparison node) {
+        return new Node.Comparison(node.line, node.column, node.op, instrument(node.left), instrument(node.right));
+    }
+
+    @Override
+    public Node visitCall(Node.Call node) {
+        return new ListenedCall(new Node.Call(node.line, node.column, node.function, node.plugin,
+                                              instrumentAll(node.args)));
+    }
+
+    @Override
+    public Node visitConcat(Node.Concat node) {
+        return new Node.Concat(node.line, node.column, instrumentAll(node.parts));
+    }
+
+    protected Node[] instrumentAll(Node[] nodes) {
+        Node[] instrumented = new Node[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            instrumented[i] = instrument(nodes[i]);
+        }
+        return instrumented;
+    }
+
+    static final class ListenedVar extends Node {
+
+        final Node.Var var;
+
+        ListenedVar(Node.Var var) {
+            super(var.line, var.column);
+            this.var = var;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return var.accept(visitor); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            Value value = var.eval(ctx);
+            ctx.listener.variableRead(ctx, line, column, var.name, value.asString());
+            return value;
+        }
+    }
+
+    static final class ListenedCall extends Node {
+
+        final Node.Call call;
+
+        final String function;
+
+        ListenedCall(Node.Call call) {
+            super(call.line, call.column);
+            this.call = call;
+            this.function = call.function.getQualifiedName();
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return call.accept(visitor); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            MScriptListener listener = ctx.listener;
+            listener.enterCall(ctx, line, column, function);
+            Value result = null;
+            try {
+                result = call.eval(ctx);
+                return result;
+            } finally {
+                listener.exitCall(ctx, line, column, function, result == null ? null : result.asString());
+            }
+        }
+    }
+
+    /**
+     * The condition of an <code>if</code> / <code>while</code> statement; loop index variables, set right before the
+     * loop condition gets evaluated, are notified as written from here.
+     */
+    static final class ListenedCondition extends Node {
+
+        final Node condition;
+
+        final String index; // can be null
+
+        final int indexSlot;
+
+        /**
+         * @param statement the statement <code>condition</code> belongs to, giving the position of notifications
+         */
+        ListenedCondition(Statement statement, Node condition, String index, int indexSlot) {
+            super(statement.line, statement.column);
+            this.condition = condition;
+            this.index = index;
+            this.indexSlot = indexSlot;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return condition.accept(visitor); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            MScriptListener listener = ctx.listener;
+            if (index != null) {
+                listener.variableWritten(ctx, line, column, index, ctx.getVar(indexSlot, index));
+            }
+
+            Value value = condition.eval(ctx);
+            listener.conditionEvaluated(ctx, line, column, value.isTrue());
+            return value;
+        }
+    }
+
+    static final class ListenedAssign extends Statement {
+
+        final Statement.Assign assign;
+
+        final Node value;
+
+        ListenedAssign(Statement.Assign assign, Node value) {
+            super(assign.line, assign.column);
+            this.assign = assign;
+            this.value = value;
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            String value = this.value.eval(ctx).asString();
+            ctx.assign(this, assign.slot, assign.name, value);
+            ctx.listener.variableWritten(ctx, line, column, assign.name, value);
+            return NORMAL;
+        }
+
+        @Override
+        String kind() { return assign.kind(); }
+
+        @Override
+        int nodes() { return assign.nodes(); }
+    }
+
+    static final class ListenedStatement extends Statement {
+
+        final Statement statement;
+
+        final String kind;
+
+        ListenedStatement(Statement statement) {
+            super(statement.line, statement.column);
+            this.statement = statement;
+            this.kind = statement.kind();
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            MScriptListener listener = ctx.listener;
+            listener.enterStatement(ctx, line, column, kind);
+            try {
+                return statement.exec(ctx);
+            } finally {
+                listener.exitStatement(ctx, line, column, kind);
+            }
+        }
+
+        @Override
+        String kind() { return kind; }
+
+        @Override
+        int nodes() { return statement.nodes(); }
+    }
+}
@@ -0,0 +1,725 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptLexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * A versioned, binary file of {@link CompiledMScript compiled MScript code}, meant to spare parsing all of a model's
+ * scripts again every time the JVM is restarted. Archives are {@link #write(Path, Collection) written} once and then
+ * {@link #open(Path) opened} (memory-mapped) by {@link MScriptEngine#setArchive(MScriptArchive) engines}, which load
+ * compiled code from them on script cache misses instead of parsing it.
+ * </p>
+ * <p>
+ * An archive holds a string table (sources, interned names and constants), the {@link PluginSet shapes} of the
+ * system functions objects and plugins the code has been compiled against (by class name), a table of the function
+ * signatures called by the code and, for every piece of code, its {@link Node expression tree} or {@link Statement
+ * script tree}. Opening an archive only reads the tables and the index of its content; trees are decoded on demand.
+ * </p>
+ * <p>
+ * Function calls are not trusted blindly: before the first tree is loaded against a given {@link DispatchTable
+ * dispatch table}, every signature is looked up again in it and code calling any function that is no longer callable
+ * the same way (e.g. since a plugin has changed) is not loaded, it then gets parsed (and its errors reported) as
+ * usual. Only valid code is archived; bytecode is not archived either, hot expressions get compiled again.
+ * </p>
+ * <p>
+ * Operators are stored as MScript token types, so archives written by a different version of the MScript grammar are
+ * rejected, as are archives with a different format {@link #VERSION version}. Instances are thread-safe.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class MScriptArchive {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4D534152; // "MSAR"
+
+    private static final int GRAMMAR = Arrays.hashCode(MScriptLexer.tokenNames);
+
+    private static final int NONE = -1; // null string, system functions, etc.
+
+    // Node and statement tags:
+    private static final byte CONST = 1, VAR = 2, NEGATE = 3, ARITHMETIC = 4, COMPARISON = 5, CALL = 6, CONCAT = 7;
+
+    private static final byte BLOCK = 16, ASSIGN = 17, EVAL = 18, IF = 19, WHILE = 20, JUMP = 21;
+
+    private final Path file;
+
+    private final ByteBuffer body; // read-only, shared; every decoding works on a duplicate
+
+    private final String[] strings;
+
+    private final PluginSetShape[] pluginSets;
+
+    private final Signature[] signatures;
+
+    private final Map<Key, Integer> index; // tree offsets in the body
+
+    /** Signatures resolved against the dispatch tables code has been loaded against so far. */
+    private final ConcurrentMap<DispatchTable, Binding> bindings = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    private MScriptArchive(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not an MScript archive");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " is an MScript archive of version " + version + ", not " + VERSION);
+            }
+            if (buffer.getInt() != GRAMMAR) {
+                throw new IOException(file + " has been written by another version of the MScript grammar");
+            }
+
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            pluginSets = new PluginSetShape[buffer.getInt()];
+            for (int i = 0; i < pluginSets.length; i++) {
+                String systemFunctionsClass = string(buffer.getInt());
+                String[] pluginIds = new String[buffer.getInt()], pluginClasses = new String[pluginIds.length];
+                for (int j = 0; j < pluginIds.length; j++) {
+                    pluginIds[j] = string(buffer.getInt());
+                    pluginClasses[j] = string(buffer.getInt());
+                }
+                pluginSets[i] = new PluginSetShape(systemFunctionsClass, pluginIds, pluginClasses);
+            }
+
+            signatures = new Signature[buffer.getInt()];
+            for (int i = 0; i < signatures.length; i++) {
+                signatures[i] = new Signature(string(buffer.getInt()), string(buffer.getInt()), buffer.getInt(),
+                                              buffer.getInt(), buffer.get() != 0);
+            }
+
+            int scripts = buffer.getInt();
+            index = new HashMap<>(scripts * 4 / 3 + 1);
+            for (int i = 0; i < scripts; i++) {
+                index.put(new Key(string(buffer.getInt()), buffer.get() != 0, buffer.getInt()), buffer.getInt());
+            }
+
+            int length = buffer.getInt();
+            if (length != buffer.remaining()) {
+                throw new IOException(file + " is truncated or corrupted");
+            }
+            body = buffer.slice().asReadOnlyBuffer();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException(file + " is truncated or corrupted", e);
+        }
+    }
+
+    /**
+     * Memory-maps an archive and reads its tables.
+     *
+     * @throws IOException if the file cannot be read, is not an archive or has been written by an incompatible version
+     */
+    public static MScriptArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MScriptArchive(file, buffer); // mappings outlive their channels
+        }
+    }
+
+    /**
+     * Writes compiled MScript code to an archive, replacing <code>file</code> (atomically, if the file system allows
+     * it) if it exists. Code with errors is skipped.
+     *
+     * @return the number of pieces of code actually archived
+     */
+    public static int write(Path file, Collection<CompiledMScript> compiledCode) throws IOException {
+        Encoder encoder = new Encoder();
+        Output entries = new Output(); // source, expression, plugin set, offset
+        int count = 0;
+        for (CompiledMScript compiled : compiledCode) {
+            if (compiled.hasErrors() || compiled.getRoot() == null && compiled.getScript() == null) {
+                continue;
+            }
+            int offset = encoder.encode(compiled);
+            entries.putInt(encoder.string(compiled.getSource())).put(compiled.isExpression() ? 1 : 0)
+                   .putInt(encoder.pluginSets.get(compiled.getPluginSet())).putInt(offset);
+            count++;
+        }
+
+        Output out = new Output();
+        out.putInt(MAGIC).putInt(VERSION).putInt(GRAMMAR);
+
+        out.putInt(encoder.strings.size());
+        for (String string : encoder.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length).put(bytes, bytes.length);
+        }
+
+        out.putInt(encoder.pluginSets.size());
+        for (PluginSet pluginSet : encoder.pluginSets.keySet()) {
+            out.putInt(encoder.string(name(pluginSet.getSystemFunctionsClass()))).putInt(pluginSet.size());
+            for (int i = 0; i < pluginSet.size(); i++) {
+                out.putInt(encoder.string(pluginSet.getPluginId(i)))
+                   .putInt(encoder.string(name(pluginSet.getPluginClass(i))));
+            }
+        }
+
+        out.putInt(encoder.signatures.size());
+        for (Signature signature : encoder.signatures.keySet()) {
+            out.putInt(encoder.string(signature.pluginName)).putInt(encoder.string(signature.name))
+               .putInt(signature.arity).putInt(signature.plugin).put(signature.unqualified ? 1 : 0);
+        }
+
+        out.putInt(count).put(entries.bytes(), entries.size());
+        out.putInt(encoder.body.size()).put(encoder.body.bytes(), encoder.body.size());
+
+        Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream stream = Files.newOutputStream(temporary)) {
+                stream.write(out.bytes(), 0, out.size());
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicMoveNotSupported) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return count;
+    }
+
+    /**
+     * Loads compiled code from the archive, resolving its function calls through <code>dispatchTable</code>.
+     *
+     * @return the compiled code or <code>null</code> if the code has not been archived for the plugin set of
+     * <code>dispatchTable</code> or if it calls functions that cannot be called the same way anymore
+     */
+    CompiledMScript load(String mScript, boolean expression, DispatchTable dispatchTable, int compileThreshold) {
+        Binding binding = bindings.get(dispatchTable);
+        if (binding == null) {
+            Binding bound = bind(dispatchTable);
+            binding = bindings.putIfAbsent(dispatchTable, bound);
+            if (binding == null) {
+                binding = bound;
+            }
+        }
+        if (binding.pluginSet < 0) {
+            return null;
+        }
+
+        Integer offset = index.get(new Key(mScript, expression, binding.pluginSet));
+        if (offset == null) {
+            return null;
+        }
+
+        ByteBuffer in = body.duplicate();
+        in.position(offset);
+        int calls = in.getInt();
+        for (int i = 0; i < calls; i++) {
+            if (binding.entries[in.getInt()] == null) {
+                rejections.incrementAndGet();
+                return null; // parsing reports the error, if any
+            }
+        }
+
+        Decoder decoder = new Decoder(in, binding);
+        PluginSet pluginSet = dispatchTable.getPluginSet();
+        CompiledMScript compiled = expression ?
+                                   new CompiledMScript(mScript, pluginSet, decoder.node(), null, null,
+                                                       compileThreshold) :
+                                   new CompiledMScript(mScript, pluginSet, null, decoder.statement(), null,
+                                                       compileThreshold);
+        loads.incrementAndGet();
+        return compiled;
+    }
+
+    private Binding bind(DispatchTable dispatchTable) {
+        PluginSet pluginSet = dispatchTable.getPluginSet();
+
+        int shape = NONE;
+        for (int i = 0; i < pluginSets.length && shape == NONE; i++) {
+            if (pluginSets[i].matches(pluginSet)) {
+                shape = i;
+            }
+        }
+
+        DispatchTable.Entry[] entries = new DispatchTable.Entry[signatures.length];
+        if (shape != NONE) {
+            for (int i = 0; i < signatures.length; i++) {
+                entries[i] = signatures[i].resolve(dispatchTable);
+            }
+        }
+        return new Binding(shape, entries, Node.Arithmetic.isTyped(pluginSet.getSystemFunctionsClass()));
+    }
+
+    private String string(int index) { return index == NONE ? null : strings[index]; }
+
+    private static String name(Class<?> c) { return c == null ? null : c.getName(); }
+
+    public Path getFile() { return file; }
+
+    /**
+     * @return the number of pieces of compiled code in the archive
+     */
+    public int size() { return index.size(); }
+
+    /**
+     * @return the number of times compiled code has been loaded from the archive so far
+     */
+    public long getLoadCount() { return loads.get(); }
+
+    /**
+     * @return the number of times archived code has not been loaded since it called functions which cannot be called
+     * the same way anymore
+     */
+    public long getRejectionCount() { return rejections.get(); }
+
+    @Override
+    public String toString() {
+        return "MScriptArchive[" + file + ", size=" + size() + ", loads=" + getLoadCount() + ", rejections=" +
+               getRejectionCount() + "]";
+    }
+
+    /** The shape of a plugin set, by class name: classes may have been reloaded or changed since archiving. */
+    private static final class PluginSetShape {
+
+        final String systemFunctionsClass;
+
+        final String[] pluginIds, pluginClasses;
+
+        PluginSetShape(String systemFunctionsClass, String[] pluginIds, String[] pluginClasses) {
+            this.systemFunctionsClass = systemFunctionsClass;
+            this.pluginIds = pluginIds;
+            this.pluginClasses = pluginClasses;
+        }
+
+        boolean matches(PluginSet pluginSet) {
+            if (pluginSet.size() != pluginIds.length ||
+                !equals(systemFunctionsClass, name(pluginSet.getSystemFunctionsClass()))) {
+                return false;
+            }
+            for (int i = 0; i < pluginIds.length; i++) {
+                if (!equals(pluginIds[i], pluginSet.getPluginId(i)) ||
+                    !equals(pluginClasses[i], name(pluginSet.getPluginClass(i)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean equals(String s1, String s2) { return s1 == null ? s2 == null : s1.equals(s2); }
+    }
+
+    /**
+     * A called function: the plugin it belongs to, its name, the number of arguments and where its implementation has
+     * been found. Whether calls without a plugin name would resolve to it is recorded as well since, unlike function
+     * call nodes, signatures do not know how functions have been called.
+     */
+    private static final class Signature {
+
+        final String pluginName, name;
+
+        final int arity, plugin;
+
+        final boolean unqualified;
+
+        Signature(String pluginName, String name, int arity, int plugin, boolean unqualified) {
+            this.pluginName = pluginName;
+            this.name = name;
+            this.arity = arity;
+            this.plugin = plugin;
+            this.unqualified = unqualified;
+        }
+
+        static Signature of(Function function, int arity, int plugin, DispatchTable dispatchTable) {
+            DispatchTable.Entry entry = dispatchTable.entry(function.getPluginName(), function.getName(), arity);
+            return new Signature(function.getPluginName(), function.getName(), arity, plugin,
+                                 entry != null && resolvesUnqualified(entry, dispatchTable));
+        }
+
+        private static boolean resolvesUnqualified(DispatchTable.Entry entry, DispatchTable dispatchTable) {
+            DispatchTable.Entry unqualified = dispatchTable.entry(null, entry.function.getName(),
+                                                                  entry.implementation.getArity());
+            return unqualified != null && unqualified.function == entry.function && unqualified.plugin == entry.plugin;
+        }
+
+        /**
+         * @return the entry the function resolves to in <code>dispatchTable</code> or <code>null</code> if the
+         * function cannot be called the same way there
+         */
+        DispatchTable.Entry resolve(DispatchTable dispatchTable) {
+            DispatchTable.Entry entry = dispatchTable.entry(pluginName, name, arity);
+            if (entry == null || entry.plugin != plugin || !name.equals(entry.function.getName())) {
+                return null;
+            }
+            return resolvesUnqualified(entry, dispatchTable) == unqualified ? entry : null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Signature)) {
+                return false;
+            }
+            Signature that = (Signature) other;
+            return arity == that.arity && plugin == that.plugin && unqualified == that.unqualified &&
+                   name.equals(that.name) &&
+                   (pluginName == null ? that.pluginName == null : pluginName.equals(that.pluginName));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * name.hashCode() + arity) + plugin;
+        }
+    }
+
+    /** The signatures of an archive resolved against a dispatch table. */
+    private static final class Binding {
+
+        final int pluginSet; // the index of the archived plugin set of the same shape, NONE if there is none
+
+        final DispatchTable.Entry[] entries; // by signature, null if a signature does not resolve
+
+        final boolean typedArithmetic;
+
+        Binding(int pluginSet, DispatchTable.Entry[] entries, boolean typedArithmetic) {
+            this.pluginSet = pluginSet;
+            this.entries = entries;
+            this.typedArithmetic = typedArithmetic;
+        }
+    }
+
+    /** Encodes trees to the body of an archive, collecting the strings, plugin sets and signatures they refer to. */
+    private static final class Encoder implements Node.Visitor<Void> {
+
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        final Map<PluginSet, Integer> pluginSets = new LinkedHashMap<>();
+
+        final Map<Signature, Integer> signatures = new LinkedHashMap<>();
+
+        final Output body = new Output();
+
+        private Output tree;
+
+        private Set<Integer> calls; // the signatures called by the tree being encoded
+
+        private PluginSet pluginSet;
+
+        private DispatchTable dispatchTable;
+
+        /**
+         * @return the offset of the encoded code in the body
+         */
+        int encode(CompiledMScript compiled) {
+            pluginSet = compiled.getPluginSet();
+            if (!pluginSets.containsKey(pluginSet)) {
+                pluginSets.put(pluginSet, pluginSets.size());
+                string(name(pluginSet.getSystemFunctionsClass())); // the string table has to be complete up front
+                for (int i = 0; i < pluginSet.size(); i++) {
+                    string(pluginSet.getPluginId(i));
+                    string(name(pluginSet.getPluginClass(i)));
+                }
+            }
+            // Tables are shape-based, any Functions instance yields the same:
+            dispatchTable = Functions.DEFAULT_INSTANCE.dispatchTable(pluginSet);
+
+            tree = new Output();
+            calls = new LinkedHashSet<>();
+            if (compiled.isExpression()) {
+                node(compiled.getRoot());
+            } else {
+                statement(compiled.getScript());
+            }
+
+            int offset = body.size();
+            body.putInt(calls.size());
+            for (int call : calls) {
+                body.putInt(call);
+            }
+            body.put(tree.bytes(), tree.size());
+            return offset;
+        }
+
+        int string(String string) {
+            if (string == null) {
+                return NONE;
+            }
+            Integer index = strings.get(string);
+            if (index == null) {
+                strings.put(string, index = strings.size());
+            }
+            return index;
+        }
+
+        private void node(Node node) {
+            node.accept(this);
+        }
+
+        private Output header(byte tag, Node node) { return tree.put(tag).putInt(node.line).putInt(node.column); }
+
+        private Output header(byte tag, Statement statement) {
+            return tree.put(tag).putInt(statement.line).putInt(statement.column);
+        }
+
+        private void statement(Statement statement) {
+            if (statement instanceof Statement.Block) {
+                Statement[] statements = ((Statement.Block) statement).statements;
+                header(BLOCK, statement).putInt(statements.length);
+                for (Statement child : statements) {
+                    statement(child);
+                }
+            } else if (statement instanceof Statement.Assign) {
+                Statement.Assign assign = (Statement.Assign) statement;
+                header(ASSIGN, statement).putInt(string(assign.name));
+                node(assign.value);
+            } else if (statement instanceof Statement.Eval) {
+                header(EVAL, statement);
+                node(((Statement.Eval) statement).expression);
+            } else if (statement instanceof Statement.If) {
+                Statement.If ifStat = (Statement.If) statement;
+                header(IF, statement).put(ifStat.otherwise == null ? 0 : 1);
+                node(ifStat.condition);
+                statement(ifStat.then);
+                if (ifStat.otherwise != null) {
+                    statement(ifStat.otherwise);
+                }
+            } else if (statement instanceof Statement.While) {
+                Statement.While whileStat = (Statement.While) statement;
+                header(WHILE, statement).putInt(string(whileStat.index)).putInt(whileStat.maxLoopNum)
+                                        .putInt(string(whileStat.label));
+                node(whileStat.condition);
+                statement(whileStat.body);
+            } else if (statement instanceof Statement.Jump) {
+                Statement.Jump jump = (Statement.Jump) statement;
+                header(JUMP, statement).put(jump.status).putInt(string(jump.label));
+            } else {
+                throw new IllegalArgumentException("Unsupported statement: " + statement);
+            }
+        }
+
+        @Override
+        public Void visitConst(Node.Const node) {
+            header(CONST, node).putInt(string(node.value.asString()));
+            return null;
+        }
+
+        @Override
+        public Void visitVar(Node.Var node) {
+            header(VAR, node).putInt(string(node.name));
+            return null;
+        }
+
+        @Override
+        public Void visitNegate(Node.Negate node) {
+            header(NEGATE, node);
+            node(node.operand);
+            return null;
+        }
+
+        @Override
+        public Void visitArithmetic(Node.Arithmetic node) {
+            header(ARITHMETIC, node).putInt(node.op); // whether typed depends on the system functions class loaded
+            node(node.left);
+            node(node.right);
+            return null;
+        }
+
+        @Override
+        public Void visitComparison(Node.Comparison node) {
+            header(COMPARISON, node).putInt(node.op);
+            node(node.left);
+            node(node.right);
+            return null;
+        }
+
+        @Override
+        public Void visitCall(Node.Call node) {
+            Signature signature = Signature.of(node.function, node.args.length, node.plugin, dispatchTable);
+            Integer index = signatures.get(signature);
+            if (index == null) {
+                signatures.put(signature, index = signatures.size());
+                string(signature.pluginName);
+                string(signature.name);
+            }
+            calls.add(index);
+
+            header(CALL, node).putInt(index).putInt(node.args.length);
+            for (Node arg : node.args) {
+                node(arg);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitConcat(Node.Concat node) {
+            header(CONCAT, node).putInt(node.parts.length);
+            for (Node part : node.parts) {
+                node(part);
+            }
+            return null;
+        }
+    }
+
+    /** Decodes trees from the body of an archive. */
+    private final class Decoder {
+
+        private final ByteBuffer in;
+
+        private final Binding binding;
+
+        Decoder(ByteBuffer in, Binding binding) {
+            this.in = in;
+            this.binding = binding;
+        }
+
+        Node node() {
+            byte tag = in.get();
+            int line = in.getInt(), column = in.getInt();
+            switch (tag) {
+            case CONST:
+                return new Node.Const(line, column, string(in.getInt()));
+            case VAR:
+                return new Node.Var(line, column, string(in.getInt()));
+            case NEGATE:
+                return new Node.Negate(line, column, node());
+            case ARITHMETIC:
+                return new Node.Arithmetic(line, column, in.getInt(), node(), node(), binding.typedArithmetic);
+            case COMPARISON:
+                return new Node.Comparison(line, column, in.getInt(), node(), node());
+            case CALL:
+                DispatchTable.Entry entry = binding.entries[in.getInt()];
+                return new Node.Call(line, column, entry.function, entry.plugin, nodes(in.getInt()));
+            case CONCAT:
+                return new Node.Concat(line, column, nodes(in.getInt()));
+            default:
+                throw new IllegalStateException(file + " is corrupted, unknown node tag " + tag);
+            }
+        }
+
+        private Node[] nodes(int count) {
+            Node[] nodes = new Node[count];
+            for (int i = 0; i < count; i++) {
+                nodes[i] = node();
+            }
+            return nodes;
+        }
+
+        Statement statement() {
+            byte tag = in.get();
+            int line = in.getInt(), column = in.getInt();
+            switch (tag) {
+            case BLOCK:
+                Statement[] statements = new Statement[in.getInt()];
+                for (int i = 0; i < statements.length; i++) {
+                    statements[i] = statement();
+                }
+                return new Statement.Block(line, column, statements);
+            case ASSIGN:
+                return new Statement.Assign(line, column, string(in.getInt()), node());
+            case EVAL:
+                return new Statement.Eval(line, column, node());
+            case IF:
+                boolean hasOtherwise = in.get() != 0;
+                return new Statement.If(line, column, node(), statement(), hasOtherwise ? statement() : null);
+            case WHILE:
+                String index = string(in.getInt());
+                int maxLoopNum = in.getInt();
+                String label = string(in.getInt());
+                return new Statement.While(line, column, node(), index, maxLoopNum, label, statement());
+            case JUMP:
+                return new Statement.Jump(line, column, in.get(), string(in.getInt()));
+            default:
+                throw new IllegalStateException(file + " is corrupted, unknown statement tag " + tag);
+            }
+        }
+    }
+
+    /** A growable, heap-based output buffer. */
+    private static final class Output {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private void reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+        }
+
+        Output put(int b) {
+            reserve(1);
+            buffer.put((byte) b);
+            return this;
+        }
+
+        Output putInt(int i) {
+            reserve(4);
+            buffer.putInt(i);
+            return this;
+        }
+
+        Output put(byte[] bytes, int length) {
+            reserve(length);
+            buffer.put(bytes, 0, length);
+            return this;
+        }
+
+        int size() { return buffer.position(); }
+
+        byte[] bytes() { return buffer.array(); }
+    }
+
+    private static final class Key {
+
+        final String source;
+
+        final boolean expression;
+
+        final int pluginSet;
+
+        Key(String source, boolean expression, int pluginSet) {
+            this.source = source;
+            this.expression = expression;
+            this.pluginSet = pluginSet;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return expression == that.expression && pluginSet == that.pluginSet && source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() { return 31 * (31 * source.hashCode() + (expression ? 1 : 0)) + pluginSet; }
+    }
+}
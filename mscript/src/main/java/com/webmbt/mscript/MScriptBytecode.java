@@ -0,0 +1,62 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+
+import java.util.List;
+
+/**
+ * Base class of the classes {@link BytecodeCompiler generated} for hot MScript expressions. It has to be public since
+ * generated classes are defined by their own class loaders (and therefore live in different runtime packages); it is
+ * not meant to be used directly.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public abstract class MScriptBytecode {
+
+    /** The (classified) values of the constants in the expression, in the order the generated code refers to them. */
+    protected final Value[] constants;
+
+    /** The functions the expression calls, in the order the generated code refers to them. */
+    protected final Function[] functions;
+
+    protected MScriptBytecode(Value[] constants, Function[] functions) {
+        this.constants = constants;
+        this.functions = functions;
+    }
+
+    /**
+     * Evaluates the expression this class has been generated for.
+     *
+     * @param variables        the variables frame of the system functions object, <code>null</code> if it cannot be
+     *                         accessed directly
+     * @param availablePlugins expected to have the same {@link PluginSet shape} as the plugins the expression has been
+     *                         compiled against
+     */
+    public abstract Value eval(MbtScriptExecutor systemFunctions, Variables variables,
+                               List<PluginAncestor> availablePlugins);
+
+    /**
+     * If one hasn't provided a system functions implementation, we try to be forgiving and simply return 'null'.
+     *
+     * @param variables the variables frame of the system functions object if it can be accessed directly (see {@link
+     *                  MbtScriptExecutor#getVariables()}), <code>null</code> otherwise
+     */
+    protected static Value getVar(MbtScriptExecutor systemFunctions, Variables variables, int slot, String name) {
+        if (systemFunctions == null) {
+            return Value.NULL_STRING;
+        }
+        if (variables != null && variables.isDefined(slot)) {
+            return Value.of(variables.get(slot));
+        }
+        return Value.of(systemFunctions.getVar(name));
+    }
+
+    /**
+     * Reports the failure of a function implementation the same way {@link Function} does when it is interpreted.
+     */
+    protected static Function.CallException callFailed(Function function, Throwable throwable) {
+        return function.callException(throwable);
+    }
+}
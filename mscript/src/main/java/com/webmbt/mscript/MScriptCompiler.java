@@ -0,0 +1,310 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptParser;
+import com.webmbt.mscript.parse.MScriptParserBaseVisitor;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.NotNull;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.webmbt.mscript.parse.MScriptLexer.ELSE;
+import static com.webmbt.mscript.parse.MScriptLexer.ID;
+import static com.webmbt.mscript.parse.MScriptLexer.INTEGER;
+import static com.webmbt.mscript.parse.MScriptLexer.IN_STR_LBRACK;
+import static com.webmbt.mscript.parse.MScriptLexer.RBRACK;
+import static com.webmbt.mscript.parse.MScriptLexer.SUB;
+
+/**
+ * <p>
+ * Lowers (valid) MScript parse trees to compact, immutable {@link Node} trees and, for whole scripts, {@link Statement}
+ * trees.
+ * </p>
+ * <p>
+ * Function calls are resolved at compile time through the {@link DispatchTable dispatch table} the MScript code has
+ * been validated against; only the position of the plugin to call a function on is kept, so that a compiled tree can
+ * later be evaluated with any system functions object and plugins of the same {@link PluginSet shape}.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+class MScriptCompiler extends MScriptParserBaseVisitor<Node> {
+
+    protected Functions functions;
+
+    protected MbtScriptExecutor systemFunctions;
+
+    protected List<PluginAncestor> availablePlugins;
+
+    protected DispatchTable dispatchTable;
+
+    protected boolean typedArithmetic;
+
+    protected ConstantFolder constantFolder = new ConstantFolder();
+
+    public MScriptCompiler(Functions functions, MbtScriptExecutor systemFunctions,
+                           List<PluginAncestor> availablePlugins) {
+        this.functions = functions == null ? Functions.DEFAULT_INSTANCE : functions;
+        this.systemFunctions = systemFunctions;
+        this.availablePlugins = availablePlugins;
+        this.dispatchTable = this.functions.dispatchTable(systemFunctions, availablePlugins);
+        this.typedArithmetic = Node.Arithmetic.isTyped(systemFunctions == null ? null : systemFunctions.getClass());
+    }
+
+    /**
+     * Lowers a (valid) expression / condition and {@link ConstantFolder folds} its constant parts.
+     */
+    public Node compileExpression(@NotNull MScriptParser.CondContext ctx) {
+        return expression(ctx);
+    }
+
+    /**
+     * Lowers a whole (valid) script, {@link ConstantFolder folding} the constant parts of its expressions.
+     */
+    public Statement compileScript(@NotNull MScriptParser.ScriptContext ctx) {
+        MScriptParser.StatsContext stats = ctx.stats();
+        return stats == null ? new Statement.Block(ctx.start.getLine(), ctx.start.getCharPositionInLine(),
+                                                   new Statement[0]) : compileStats(stats);
+    }
+
+    protected Statement.Block compileStats(MScriptParser.StatsContext ctx) {
+        List<? extends MScriptParser.StatContext> stats = ctx.stat();
+
+        Statement[] statements = new Statement[stats.size()];
+        for (int i = 0; i < statements.length; i++) {
+            statements[i] = compileStat(stats.get(i));
+        }
+        return new Statement.Block(ctx.start.getLine(), ctx.start.getCharPositionInLine(), statements);
+    }
+
+    protected Statement compileStat(MScriptParser.StatContext ctx) {
+        int line = ctx.start.getLine(), column = ctx.start.getCharPositionInLine();
+
+        if (ctx.assign() != null) {
+            MScriptParser.AssignContext assign = ctx.assign();
+            return new Statement.Assign(line, column, assign.ID().getText(), expression(assign.expr()));
+        }
+        if (ctx.fncall() != null) {
+            return new Statement.Eval(line, column, expression(ctx.fncall()));
+        }
+        if (ctx.ifStat() != null) {
+            return compileIf(ctx.ifStat());
+        }
+        if (ctx.whileStat() != null) {
+            return compileWhile(ctx.whileStat());
+        }
+        if (ctx.breakStat() != null) {
+            TerminalNode label = ctx.breakStat().ID();
+            return new Statement.Jump(line, column, Statement.BREAK, label == null ? null : label.getText());
+        }
+
+        TerminalNode label = ctx.continueStat().ID();
+        return new Statement.Jump(line, column, Statement.CONTINUE, label == null ? null : label.getText());
+    }
+
+    protected Statement compileIf(MScriptParser.IfStatContext ctx) {
+        Statement then = null, otherwise = null;
+
+        boolean inElse = false;
+        for (ParseTree child : ctx.children) {
+            if (child instanceof TerminalNode && ((TerminalNode) child).getSymbol().getType() == ELSE) {
+                inElse = true;
+            } else if (child instanceof MScriptParser.StatsContext || child instanceof MScriptParser.StatContext) {
+                if (inElse) {
+                    otherwise = compileBranch(child);
+                } else {
+                    then = compileBranch(child);
+                }
+            }
+        }
+
+        int line = ctx.start.getLine(), column = ctx.start.getCharPositionInLine();
+        if (then == null) { // empty braces
+            then = new Statement.Block(line, column, new Statement[0]);
+        }
+        return new Statement.If(line, column, expression(ctx.cond()), then, otherwise);
+    }
+
+    protected Statement compileWhile(MScriptParser.WhileStatContext ctx) {
+        String index = null, label = null;
+        int maxLoopNum = -1;
+
+        MScriptParser.WhileOptsContext options = ctx.whileOpts();
+        if (options != null) {
+            for (ParseTree option : options.children) {
+                if (option instanceof TerminalNode) { // positional options: index [; maxLoopNum] [; label]
+                    Token token = ((TerminalNode) option).getSymbol();
+                    if (token.getType() == INTEGER) {
+                        maxLoopNum = Integer.parseInt(token.getText());
+                    } else if (token.getType() == ID) {
+                        if (index == null) {
+                            index = token.getText();
+                        } else {
+                            label = token.getText();
+                        }
+                    }
+                } else if (option instanceof MScriptParser.NamedWhileOptsContext) {
+                    for (MScriptParser.NamedWhileOptContext namedOption :
+                        ((MScriptParser.NamedWhileOptsContext) option).namedWhileOpt()) {
+                        switch (namedOption.optionName.getText()) {
+                        case "index":
+                            index = namedOption.optionVal.getText();
+                            break;
+                        case "maxLoopNum":
+                            maxLoopNum = Integer.parseInt(namedOption.optionIntVal.getText());
+                            break;
+                        case "label":
+                            label = namedOption.optionVal.getText();
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        Statement body = null;
+        MScriptParser.StatsContext stats = ctx.stats();
+        if (stats != null) {
+            body = compileStats(stats);
+        } else if (ctx.stat() != null) {
+            body = compileStat(ctx.stat());
+        }
+
+        int line = ctx.start.getLine(), column = ctx.start.getCharPositionInLine();
+        if (body == null) { // empty braces
+            body = new Statement.Block(line, column, new Statement[0]);
+        }
+        return new Statement.While(line, column, expression(ctx.cond()), index, maxLoopNum, label, body);
+    }
+
+    /**
+     * @return the number of nodes {@link ConstantFolder folded} so far by this compiler
+     */
+    public int getFoldedNodes() { return constantFolder.getFoldedNodes(); }
+
+    protected Node expression(ParseTree ctx) {
+        return constantFolder.fold(visit(ctx));
+    }
+
+    protected Statement compileBranch(ParseTree branch) {
+        return branch instanceof MScriptParser.StatsContext ? compileStats((MScriptParser.StatsContext) branch)
+                                                             : compileStat((MScriptParser.StatContext) branch);
+    }
+
+    @Override
+    public Node visitCond(@NotNull MScriptParser.CondContext ctx) {
+        if (ctx.condOp == null) { // no operator specified, simply evaluate and return the expression
+            return visit(ctx.expr(0));
+        }
+
+        return new Node.Comparison(ctx.condOp.getLine(), ctx.condOp.getCharPositionInLine(), ctx.condOp.getType(),
+                                   visit(ctx.expr(0)), visit(ctx.expr(1)));
+    }
+
+    @Override
+    public Node visitMulDivMod(@NotNull MScriptParser.MulDivModContext ctx) {
+        return new Node.Arithmetic(ctx.binOp.getLine(), ctx.binOp.getCharPositionInLine(), ctx.binOp.getType(),
+                                   visit(ctx.expr(0)), visit(ctx.expr(1)), typedArithmetic);
+    }
+
+    @Override
+    public Node visitAddSub(@NotNull MScriptParser.AddSubContext ctx) {
+        return new Node.Arithmetic(ctx.binOp.getLine(), ctx.binOp.getCharPositionInLine(), ctx.binOp.getType(),
+                                   visit(ctx.expr(0)), visit(ctx.expr(1)), typedArithmetic);
+    }
+
+    @Override
+    public Node visitParens(@NotNull MScriptParser.ParensContext ctx) {
+        return negateIfNeeded(ctx.unaryOp, visit(ctx.expr()));
+    }
+
+    @Override
+    public Node visitExAtom(@NotNull MScriptParser.ExAtomContext ctx) {
+        return negateIfNeeded(ctx.unaryOp, visit(ctx.atom()));
+    }
+
+    @Override
+    public Node visitAtom(@NotNull MScriptParser.AtomContext ctx) {
+        TerminalNode terminal = ctx.FLOAT();
+        if (terminal == null) {
+            terminal = ctx.INTEGER();
+        }
+        if (terminal == null) {
+            terminal = ctx.BOOLEAN();
+        }
+        if (terminal != null) {
+            Token token = terminal.getSymbol();
+            return new Node.Const(token.getLine(), token.getCharPositionInLine(), token.getText());
+        }
+
+        terminal = ctx.ID();
+        if (terminal != null) {
+            Token token = terminal.getSymbol();
+            return new Node.Var(token.getLine(), token.getCharPositionInLine(), token.getText());
+        }
+
+        return visit(ctx.getChild(0));
+    }
+
+    @Override
+    public Node visitFncall(@NotNull MScriptParser.FncallContext ctx) {
+        String pnName = ctx.plugin == null ? null : ctx.plugin.getText();
+        String fnName = ctx.function.getText();
+
+        Node[] args = new Node[ctx.argc];
+        List<? extends MScriptParser.ExprContext> arguments = ctx.expr();
+        for (int i = 0; i < ctx.argc; i++) {
+            args[i] = visit(arguments.get(i));
+        }
+
+        // The function has already been validated at parse time:
+        DispatchTable.Entry entry = dispatchTable.entry(pnName, fnName, ctx.argc);
+
+        // Should not happen but we're trying to stay defensive here; calling a function with no implementations fails:
+        return entry == null ? new Node.Call(ctx.start.getLine(), ctx.start.getCharPositionInLine(),
+                                             new Function(fnName, pnName), -1, args)
+                             : new Node.Call(ctx.start.getLine(), ctx.start.getCharPositionInLine(), entry.function,
+                                             entry.plugin, args);
+    }
+
+    @Override
+    public Node visitString(@NotNull MScriptParser.StringContext ctx) {
+        List<Node> parts = new ArrayList<>();
+
+        int partsCount = ctx.getChildCount() - 1; // ignore opening and closing quotation marks
+        for (int i = 1; i < partsCount; i++) {
+            ParseTree part = ctx.getChild(i);
+
+            if (part instanceof TerminalNode) { // translate an MScript string part to Java, escaping it
+                Token token = ((TerminalNode) part).getSymbol();
+                int tokenType = token.getType();
+                if (tokenType != IN_STR_LBRACK && tokenType != RBRACK) {
+                    parts.add(new Node.Const(token.getLine(), token.getCharPositionInLine(),
+                                             MScriptEvalVisitor.unescape(token.getText())));
+                }
+            } else {
+                parts.add(visit(part));
+            }
+        }
+
+        int line = ctx.start.getLine(), column = ctx.start.getCharPositionInLine();
+        if (parts.isEmpty()) {
+            return new Node.Const(line, column, "");
+        }
+        if (parts.size() == 1 && parts.get(0) instanceof Node.Const) { // no interpolation
+            Node.Const literal = (Node.Const) parts.get(0);
+            return new Node.Const(line, column, literal.value.asString());
+        }
+        return new Node.Concat(line, column, parts.toArray(new Node[parts.size()]));
+    }
+
+    protected Node negateIfNeeded(Token unaryOp, Node operand) {
+        return unaryOp != null && unaryOp.getType() == SUB ?
+               new Node.Negate(unaryOp.getLine(), unaryOp.getCharPositionInLine(), operand) : operand;
+    }
+}
@@ -0,0 +1,165 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Everything {@link CompiledMScript compiled MScript code} needs in order to be executed (the system functions object,
+ * the available plugins, etc.) but which is not known at compile time.
+ * </p>
+ * <p>
+ * A context is created per execution and as such, is not meant to be shared between threads: while compiled code can
+ * be executed by several threads at the same time, every thread executes it in its own context.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptContext {
+
+    final MbtScriptExecutor systemFunctions;
+
+    final List<PluginAncestor> availablePlugins;
+
+    final PluginSet pluginSet;
+
+    /**
+     * The variables frame of the system functions object, if variables can be accessed directly (i.e. if the system
+     * functions class does not override {@link MbtScriptExecutor#getVar(String) getVar} / {@link
+     * MbtScriptExecutor#setVar(String, String) setVar}), <code>null</code> otherwise.
+     */
+    final Variables variables;
+
+    /** The label of the loop targeted by a pending {@link Statement.Jump break or continue}, if any. */
+    String label;
+
+    /** The call tree recorder of the current thread, if execution is being profiled. */
+    MScriptProfiler.Recorder profiler;
+
+    /** The listener notified of the execution, if any; executions with a listener run instrumented trees. */
+    MScriptListener listener;
+
+    private MScriptLimits limits;
+
+    private CancellationToken cancellationToken;
+
+    /** What is left of the limits of the execution, if it has limits or can be cancelled. */
+    MScriptLimits.Budget budget;
+
+    /**
+     * @param systemFunctions  can be <code>null</code>
+     * @param availablePlugins can be <code>null</code>
+     */
+    public MScriptContext(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        this.systemFunctions = systemFunctions;
+        this.availablePlugins = availablePlugins;
+        this.pluginSet = PluginSet.of(systemFunctions, availablePlugins);
+        this.variables = systemFunctions != null && DIRECT_VARIABLE_ACCESS.get(systemFunctions.getClass()) ?
+                         systemFunctions.getVariables() : null;
+    }
+
+    public MbtScriptExecutor getSystemFunctions() { return systemFunctions; }
+
+    public List<PluginAncestor> getAvailablePlugins() { return availablePlugins; }
+
+    public PluginSet getPluginSet() { return pluginSet; }
+
+    /**
+     * Profiles executions in this context (the context should not be used by threads other than the current one).
+     *
+     * @param profiler <code>null</code> to stop profiling
+     */
+    public MScriptContext setProfiler(MScriptProfiler profiler) {
+        this.profiler = profiler == null ? null : profiler.recorder();
+        return this;
+    }
+
+    /**
+     * Notifies <code>listener</code> of executions in this context, see {@link MScriptListener}.
+     *
+     * @param listener <code>null</code> to stop notifying
+     */
+    public MScriptContext setListener(MScriptListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Enforces <code>limits</code> on executions in this context, see {@link MScriptLimits}. The timeout, if any,
+     * starts running right away.
+     *
+     * @param limits <code>null</code> to lift all limits
+     */
+    public MScriptContext setLimits(MScriptLimits limits) {
+        this.limits = limits;
+        this.budget = limits == null && cancellationToken == null ? null :
+                      new MScriptLimits.Budget(limits, cancellationToken);
+        return this;
+    }
+
+    /**
+     * Stops executions in this context as soon as <code>cancellationToken</code> is cancelled.
+     *
+     * @param cancellationToken can be <code>null</code>
+     */
+    public MScriptContext setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return setLimits(limits);
+    }
+
+    /**
+     * @param plugin the position of a plugin in the list of available plugins or a negative number for the system
+     *               functions object
+     * @return the object on which to invoke a function implementation
+     */
+    final Object target(int plugin) {
+        return plugin < 0 ? systemFunctions : availablePlugins.get(plugin);
+    }
+
+    /**
+     * Reads a variable, directly from the variables frame if possible. Undefined variables are always read through
+     * {@link MbtScriptExecutor#getVar(String) getVar}, which reports them.
+     */
+    final String getVar(int slot, String name) {
+        if (variables != null && variables.isDefined(slot)) {
+            return variables.get(slot);
+        }
+        return systemFunctions.getVar(name);
+    }
+
+    /**
+     * Assigns a variable on behalf of <code>statement</code>, within the {@link #budget limits} of the execution.
+     */
+    final void assign(Statement statement, int slot, String name, String value) {
+        if (budget != null) {
+            budget.assign(slot, value, statement.line, statement.column);
+        }
+        setVar(slot, name, value);
+    }
+
+    final void setVar(int slot, String name, String value) {
+        if (variables != null) {
+            variables.set(slot, value);
+        } else {
+            systemFunctions.setVar(name, value);
+        }
+    }
+
+    private static final ClassValue<Boolean> DIRECT_VARIABLE_ACCESS = new ClassValue<Boolean>() {
+
+        @Override
+        protected Boolean computeValue(Class<?> systemFunctionsClass) {
+            try {
+                return systemFunctionsClass.getMethod("getVar", String.class).getDeclaringClass() ==
+                       MbtScriptExecutor.class &&
+                       systemFunctionsClass.getMethod("setVar", String.class, String.class).getDeclaringClass() ==
+                       MbtScriptExecutor.class;
+            } catch (NoSuchMethodException nsme) {
+                return false;
+            }
+        }
+    };
+}
@@ -1,39 +1,292 @@
 package com.webmbt.mscript;
 
+import com.webmbt.mscript.parse.MScriptErrorStrategy;
 import com.webmbt.mscript.parse.MScriptLexer;
 import com.webmbt.mscript.parse.MScriptParser;
 import com.webmbt.plugin.MbtScriptExecutor;
 import com.webmbt.plugin.PluginAncestor;
+import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.FINE;
 
 /**
+ * <p>
+ * Checks and executes MScript code.
+ * </p>
+ * <p>
+ * Since the same (relatively few) MScript guards and actions are typically checked and executed over and over again,
+ * the outcome of parsing and validating a script is {@link ScriptCache cached}, keyed by the script source and the
+ * {@link PluginSet shape} of the system functions object and plugins it has been validated against. Repeatedly
+ * executing the same script against the same kind of plugins thus skips lexing and parsing altogether. Hot
+ * expressions are furthermore {@link #setCompileThreshold(int) compiled to bytecode}.
+ * </p>
+ * <p>
+ * Engines are thread-safe and meant to be shared: any number of threads can check, compile and execute MScript code
+ * at the same time, each against its own system functions object and plugins. {@link CompiledMScript Compiled code}
+ * is immutable and every execution gets its own {@link MScriptContext context}; executing cached code takes no locks
+ * at all (locks are only ever taken when compiling code or discovering functions, i.e. on cache misses).
+ * </p>
+ *
  * @author TestOptimal, LLC
  * @version 1.0, Mar 06, 2015
  */
 public class MScriptEngine {
 
+    public static final int DEFAULT_SCRIPT_CACHE_SIZE = 4096;
+
+    public static final int DEFAULT_COMPILE_THRESHOLD = 1000;
+
     private Functions functions = new Functions();
 
+    private final ScriptCache<ScriptKey, CompiledMScript> scriptCache;
+
+    private volatile int compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+
+    private volatile boolean fastParse;
+
+    private final AtomicLong sllParses = new AtomicLong();
+
+    private final AtomicLong llFallbacks = new AtomicLong();
+
+    private volatile ForkJoinPool checkPool; // created on first use
+
+    private volatile MScriptArchive archive;
+
+    private volatile MScriptProfiler profiler;
+
+    private volatile MScriptListener listener;
+
+    private volatile MScriptLimits limits;
+
+    private volatile CancellationToken cancellationToken;
+
+    public MScriptEngine() {
+        this(DEFAULT_SCRIPT_CACHE_SIZE);
+    }
+
+    /**
+     * @param scriptCacheSize the maximum number of parsed scripts to cache; <code>0</code> disables script caching
+     */
+    public MScriptEngine(int scriptCacheSize) {
+        scriptCache = new ScriptCache<>(scriptCacheSize);
+    }
+
     public MScriptEngine clearFunctionCache() {
         functions.clearCache();
         return this;
     }
 
+    public MScriptEngine clearScriptCache() {
+        scriptCache.clear();
+        return this;
+    }
+
+    /**
+     * Expressions executed more than <code>compileThreshold</code> times get {@link BytecodeCompiler compiled to
+     * bytecode}, which is much faster to execute than interpreting them but costly to generate. So do the expressions
+     * of the scripts executed more than <code>compileThreshold</code> times. Expressions that cannot be compiled keep
+     * being interpreted.
+     *
+     * @param compileThreshold <code>0</code> compiles expressions right away, negative values disable compilation
+     */
+    public MScriptEngine setCompileThreshold(int compileThreshold) {
+        this.compileThreshold = compileThreshold;
+        return this;
+    }
+
+    public int getCompileThreshold() { return compileThreshold; }
+
+    /**
+     * <p>
+     * In fast parse mode, MScript code is first parsed using the (much cheaper) <code>SLL</code> prediction mode and
+     * an error strategy that bails out at the first syntax error, without reporting anything. Only if that fails is
+     * the code parsed again, using full <code>LL</code> prediction and the usual error reporting and recovery, so that
+     * invalid code gets exactly the same errors in both modes. Since the vast majority of the code is valid, most
+     * parses only pay for the first stage.
+     * </p>
+     * <p>
+     * See {@link #getSllParseCount()} and {@link #getLlFallbackCount()} for how often the second stage is needed.
+     * </p>
+     */
+    public MScriptEngine setFastParse(boolean fastParse) {
+        this.fastParse = fastParse;
+        return this;
+    }
+
+    public boolean isFastParse() { return fastParse; }
+
+    /**
+     * @return the number of fast mode parses that succeeded using <code>SLL</code> prediction only
+     */
+    public long getSllParseCount() { return sllParses.get(); }
+
+    /**
+     * @return the number of fast mode parses that had to fall back to full <code>LL</code> prediction
+     */
+    public long getLlFallbackCount() { return llFallbacks.get(); }
+
+    /**
+     * Compiled code missing from the script cache is looked up in <code>archive</code> before being parsed; archived
+     * code is {@link MScriptArchive revalidated} against the plugin set it is compiled against but not parsed again.
+     *
+     * @param archive <code>null</code> to stop loading compiled code from an archive
+     */
+    public MScriptEngine setArchive(MScriptArchive archive) {
+        this.archive = archive;
+        return this;
+    }
+
+    public MScriptArchive getArchive() { return archive; }
+
+    /**
+     * Profiles every expression / script executed by the engine, see {@link MScriptProfiler}.
+     *
+     * @param profiler <code>null</code> to stop profiling
+     */
+    public MScriptEngine setProfiler(MScriptProfiler profiler) {
+        this.profiler = profiler;
+        return this;
+    }
+
+    public MScriptProfiler getProfiler() { return profiler; }
+
+    /**
+     * Notifies <code>listener</code> of every expression / script executed by the engine, see {@link
+     * MScriptListener}; the listener is called by all the threads executing code and should be thread-safe.
+     *
+     * @param listener <code>null</code> to stop notifying
+     */
+    public MScriptEngine setListener(MScriptListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public MScriptListener getListener() { return listener; }
+
+    /**
+     * Enforces <code>limits</code> on every expression / script executed by the engine, each execution getting a
+     * budget of its own; see {@link MScriptLimits}.
+     *
+     * @param limits <code>null</code> to lift all limits
+     */
+    public MScriptEngine setLimits(MScriptLimits limits) {
+        this.limits = limits;
+        return this;
+    }
+
+    public MScriptLimits getLimits() { return limits; }
+
+    /**
+     * Stops every execution of the engine, ongoing or not, as soon as <code>cancellationToken</code> is cancelled;
+     * see {@link CancellationToken}.
+     *
+     * @param cancellationToken <code>null</code> to stop checking for cancellation
+     */
+    public MScriptEngine setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+        return this;
+    }
+
+    public CancellationToken getCancellationToken() { return cancellationToken; }
+
+    /**
+     * @return the parsed script cache, mainly for monitoring purposes (hit, miss and eviction counts, etc.)
+     */
+    public ScriptCache<?, ?> getScriptCache() { return scriptCache; }
+
     public List<MScriptError> checkMScript(String mScript, MbtScriptExecutor systemFunctions,
                                            List<PluginAncestor> availablePlugins) {
         if (mScript == null) {
             return Collections.emptyList();
         }
 
-        List<MScriptError> mScriptErrors = new ArrayList<>();
-        createParser(mScript, systemFunctions, availablePlugins, mScriptErrors).script();
-        return mScriptErrors;
+        return new ArrayList<>(compile(mScript, false, false, PluginSet.of(systemFunctions, availablePlugins),
+                                       systemFunctions, availablePlugins).getErrors());
+    }
+
+    /**
+     * Equivalent to <code>checkMScripts(mScripts, systemFunctions, availablePlugins, pool)</code> where
+     * <code>pool</code> is a fork-join pool owned by the engine, as parallel as the number of available processors.
+     */
+    public List<List<MScriptError>> checkMScripts(Collection<String> mScripts, MbtScriptExecutor systemFunctions,
+                                                  List<PluginAncestor> availablePlugins) {
+        return checkMScripts(mScripts, systemFunctions, availablePlugins, checkPool());
+    }
+
+    /**
+     * Checks many scripts at once (e.g. all the state and transition scripts of a model), in parallel. Functions are
+     * only resolved once, up front, for all the scripts; scripts checked before (or appearing several times) are only
+     * parsed once, as with {@link #checkMScript(String, MbtScriptExecutor, List)}.
+     *
+     * @return the errors of every script, in the order of <code>mScripts</code>
+     */
+    public List<List<MScriptError>> checkMScripts(Collection<String> mScripts, MbtScriptExecutor systemFunctions,
+                                                  List<PluginAncestor> availablePlugins, ForkJoinPool pool) {
+        PluginSet pluginSet = PluginSet.of(systemFunctions, availablePlugins);
+        functions.dispatchTable(pluginSet); // resolve functions before forking rather than in competing tasks
+
+        String[] scripts = mScripts.toArray(new String[mScripts.size()]);
+        @SuppressWarnings("unchecked")
+        List<MScriptError>[] errors = new List[scripts.length];
+        pool.invoke(new CheckTask(scripts, errors, 0, scripts.length, pluginSet, systemFunctions, availablePlugins));
+        return Arrays.asList(errors);
+    }
+
+    private ForkJoinPool checkPool() {
+        ForkJoinPool pool = checkPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = checkPool;
+                if (pool == null) {
+                    checkPool = pool = new ForkJoinPool(); // worker threads are daemons, nothing to shut down
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Compiles (or retrieves from the script cache) an MScript expression / condition for repeated {@link
+     * CompiledMScript#execute(MScriptContext) execution}, possibly by several threads at the same time.
+     *
+     * @param systemFunctions  the system functions object to validate the expression against; the expression can then
+     *                         be executed against any system functions object of the same class
+     * @param availablePlugins the plugins to validate the expression against; the expression can then be executed
+     *                         against any list of plugins with the same IDs and classes, in the same order
+     */
+    public CompiledMScript compileMScript(String mScriptExpression, MbtScriptExecutor systemFunctions,
+                                          List<PluginAncestor> availablePlugins) {
+        return compile(mScriptExpression, true, true, PluginSet.of(systemFunctions, availablePlugins), systemFunctions,
+                       availablePlugins);
+    }
+
+    /**
+     * Same as {@link #compileMScript(String, MbtScriptExecutor, List)} but for whole scripts, to be {@link
+     * CompiledMScript#run(MScriptContext) run}.
+     */
+    public CompiledMScript compileScript(String mScript, MbtScriptExecutor systemFunctions,
+                                         List<PluginAncestor> availablePlugins) {
+        return compile(mScript, false, true, PluginSet.of(systemFunctions, availablePlugins), systemFunctions,
+                       availablePlugins);
     }
 
     public String executeMScript(String mScriptExpression, MbtScriptExecutor systemFunctions,
@@ -42,39 +295,277 @@ public class MScriptEngine {
             return "";
         }
 
-        // Parse the MScript source:
-        List<MScriptError> mScriptErrors = new ArrayList<>();
-        ParseTree mScriptParseTree =
-            createParser(mScriptExpression, systemFunctions, availablePlugins, mScriptErrors).cond();
+        MScriptContext ctx = newContext(systemFunctions, availablePlugins);
+
+        // Parse the MScript source (or reuse a previous parse):
+        CompiledMScript compiled =
+            compile(mScriptExpression, true, true, ctx.pluginSet, systemFunctions, availablePlugins);
 
         // Handle / return any eventual parsing errors:
-        if (!mScriptErrors.isEmpty()) {
-            StringBuilder errors = new StringBuilder(mScriptErrors.get(0).toString());
-            for (int i = 1; i < mScriptErrors.size(); i++) {
-                errors.append(" ; ").append(mScriptErrors.get(i).toString());
-            }
-            return errors.toString();
+        if (compiled.hasErrors()) {
+            return compiled.getErrorsAsString();
         }
 
-        // Execute / interpret the resulting MScript parse tree:
+        // Execute / interpret the resulting compiled MScript tree:
         try {
-            return new MScriptEvalVisitor(systemFunctions, availablePlugins).visit(mScriptParseTree);
+            return compiled.execute(ctx, compileThreshold);
         } catch (Function.CallException ce) { // execution / interpretation stops at the first call exception
             Throwable cause = ce.getCause();
             throw cause == null ? ce : cause;
+        } catch (MScriptLimits.LimitException le) {
+            return le.toError(mScriptExpression).toString();
         }
     }
 
-    protected MScriptParser createParser(String mScript, MbtScriptExecutor systemFunctions,
-                                         List<PluginAncestor> availablePlugins, List<MScriptError> mScriptErrors) {
-        MScriptLexer mScriptLexer = new MScriptLexer(new ANTLRInputStream(mScript));
+    /**
+     * Executes a whole MScript script (assignments, function calls, <code>if</code> / <code>while</code> statements,
+     * etc.) in one go.
+     *
+     * @return an empty string if the script has been executed, its parse errors (formatted on one line, like {@link
+     * #executeMScript(String, MbtScriptExecutor, List)} does) if it could not be or the limit error if its execution
+     * exceeded the {@link #setLimits(MScriptLimits) limits} of the engine
+     */
+    public String executeScript(String mScript, MbtScriptExecutor systemFunctions,
+                                List<PluginAncestor> availablePlugins) throws Throwable {
+        if (mScript == null) {
+            return "";
+        }
+
+        MScriptContext ctx = newContext(systemFunctions, availablePlugins);
 
-        MScriptParser mScriptParser =
-            new MScriptParser(new CommonTokenStream(mScriptLexer), functions, systemFunctions, availablePlugins);
+        CompiledMScript compiled = compile(mScript, false, true, ctx.pluginSet, systemFunctions, availablePlugins);
+        if (compiled.hasErrors()) {
+            return compiled.getErrorsAsString();
+        }
+
+        try {
+            compiled.run0(ctx, compileThreshold);
+            return "";
+        } catch (Function.CallException ce) { // execution stops at the first call exception
+            Throwable cause = ce.getCause();
+            throw cause == null ? ce : cause;
+        } catch (MScriptLimits.LimitException le) {
+            return le.toError(mScript).toString();
+        }
+    }
+
+    private MScriptContext newContext(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        MScriptContext ctx = new MScriptContext(systemFunctions, availablePlugins).setProfiler(profiler)
+                                                                                  .setListener(listener);
+        MScriptLimits limits = this.limits;
+        CancellationToken cancellationToken = this.cancellationToken;
+        return limits == null && cancellationToken == null ? ctx :
+               ctx.setLimits(limits).setCancellationToken(cancellationToken);
+    }
+
+    /**
+     * Parses, validates and compiles MScript code or retrieves the outcome of a previous compilation from the script
+     * cache or, failing that, from the {@link #setArchive(MScriptArchive) archive}. Valid expressions / conditions
+     * are lowered to {@link Node expression trees} and valid scripts to {@link Statement script trees}.
+     *
+     * @param expression   whether to parse <code>mScript</code> as an expression / condition or as a whole script
+     * @param forExecution whether <code>mScript</code> is only compiled to be executed, in which case comments (and
+     *                     newlines in expressions) are {@link MScriptLexer#setHiddenTrivia(boolean, boolean) hidden}
+     *                     from the parser, or also checked on behalf of tooling, which may want to see them
+     * @param pluginSet    the shape of <code>systemFunctions</code> and <code>availablePlugins</code>
+     */
+    protected CompiledMScript compile(String mScript, boolean expression, boolean forExecution, PluginSet pluginSet,
+                                      MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        ScriptKey key = new ScriptKey(mScript, expression, forExecution, pluginSet);
+
+        CompiledMScript compiled = scriptCache.get(key);
+        MScriptArchive archive = this.archive;
+        if (compiled == null && archive != null) {
+            compiled = archive.load(mScript, expression, functions.dispatchTable(pluginSet), compileThreshold);
+            if (compiled != null) {
+                compiled = scriptCache.putIfAbsent(key, compiled);
+            }
+        }
+        if (compiled == null) {
+            List<MScriptError> mScriptErrors = new ArrayList<>();
+            MScriptParser mScriptParser = forExecution ? createParser(mScript, mScriptErrors, true, expression) :
+                                          createParser(mScript, mScriptErrors);
+
+            // Parse (independently of any plugins), then validate function calls against the plugin set:
+            ParserRuleContext mScriptParseTree = parse(mScriptParser, expression);
+            new MScriptValidator(functions.dispatchTable(pluginSet)).validate(mScriptParser, mScriptParseTree);
+
+            Node root = null;
+            Statement script = null;
+            MScriptCompiler compiler = new MScriptCompiler(functions, systemFunctions, availablePlugins);
+            if (mScriptErrors.isEmpty()) {
+                if (expression) {
+                    root = compiler.compileExpression((MScriptParser.CondContext) mScriptParseTree);
+                } else {
+                    script = compiler.compileScript((MScriptParser.ScriptContext) mScriptParseTree);
+                }
+            }
+            if (compiler.getFoldedNodes() > 0 && LOG.isLoggable(FINE)) {
+                LOG.log(FINE, "Folded " + compiler.getFoldedNodes() + " constant node(s) in " + mScript);
+            }
+
+            compiled = new CompiledMScript(mScript, pluginSet, root, script, mScriptErrors, compileThreshold);
+            compiled = scriptCache.putIfAbsent(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Parses MScript code as an expression / condition or as a whole script, in one or two stages depending on whether
+     * {@link #setFastParse(boolean) fast parse mode} is on.
+     */
+    protected ParserRuleContext parse(MScriptParser mScriptParser, boolean expression) {
+        if (!fastParse) {
+            return expression ? mScriptParser.cond() : mScriptParser.script();
+        }
+
+        // Stage 1: SLL prediction, bailing out (silently) at the first error:
+        List<ANTLRErrorListener<? super Token>> errorListeners = new ArrayList<>();
+        errorListeners.addAll(mScriptParser.getErrorListeners());
+        mScriptParser.removeErrorListeners();
+        mScriptParser.setErrorHandler(new SilentBailErrorStrategy());
+        mScriptParser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        ParserRuleContext mScriptParseTree = null;
+        try {
+            mScriptParseTree = expression ? mScriptParser.cond() : mScriptParser.script();
+            sllParses.incrementAndGet();
+        } catch (ParseCancellationException | RecognitionException e) {
+            // either a genuine syntax error or SLL prediction not being powerful enough, stage 2 will tell
+        }
+
+        // Error listeners are needed anyway by the semantic analysis pass:
+        for (ANTLRErrorListener<? super Token> errorListener : errorListeners) {
+            mScriptParser.addErrorListener(errorListener);
+        }
+        mScriptParser.setErrorHandler(new MScriptErrorStrategy());
+        mScriptParser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        if (mScriptParseTree != null) {
+            return mScriptParseTree;
+        }
+
+        // Stage 2: full LL prediction, with the usual error reporting and recovery:
+        llFallbacks.incrementAndGet();
+        mScriptParser.reset();
+        return expression ? mScriptParser.cond() : mScriptParser.script();
+    }
+
+    protected MScriptParser createParser(String mScript, List<MScriptError> mScriptErrors) {
+        return createParser(mScript, mScriptErrors, false, false);
+    }
+
+    /**
+     * @see MScriptLexer#setHiddenTrivia(boolean, boolean)
+     */
+    protected MScriptParser createParser(String mScript, List<MScriptError> mScriptErrors, boolean hideComments,
+                                         boolean hideNewlines) {
+        MScriptLexer mScriptLexer =
+            new MScriptLexer(new ANTLRInputStream(mScript)).setHiddenTrivia(hideComments, hideNewlines);
+
+        MScriptParser mScriptParser = new MScriptParser(new CommonTokenStream(mScriptLexer));
+        mScriptParser.setErrorHandler(new MScriptErrorStrategy());
         mScriptParser.addErrorListener(new MScriptErrorListener(mScript, mScriptErrors));
         return mScriptParser;
     }
 
+    /** Checks a range of scripts, splitting it in halves as long as it is worth it. */
+    private final class CheckTask extends RecursiveAction {
+
+        private static final int THRESHOLD = 16; // scripts checked sequentially, amortizing the cost of forking
+
+        private final String[] scripts;
+
+        private final List<MScriptError>[] errors;
+
+        private final int from;
+
+        private final int to;
+
+        private final PluginSet pluginSet;
+
+        private final MbtScriptExecutor systemFunctions;
+
+        private final List<PluginAncestor> availablePlugins;
+
+        CheckTask(String[] scripts, List<MScriptError>[] errors, int from, int to, PluginSet pluginSet,
+                  MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+            this.scripts = scripts;
+            this.errors = errors;
+            this.from = from;
+            this.to = to;
+            this.pluginSet = pluginSet;
+            this.systemFunctions = systemFunctions;
+            this.availablePlugins = availablePlugins;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    errors[i] = scripts[i] == null ? new ArrayList<MScriptError>() : new ArrayList<>(
+                        compile(scripts[i], false, false, pluginSet, systemFunctions, availablePlugins).getErrors());
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CheckTask(scripts, errors, from, middle, pluginSet, systemFunctions, availablePlugins),
+                      new CheckTask(scripts, errors, middle, to, pluginSet, systemFunctions, availablePlugins));
+        }
+    }
+
+    /**
+     * Script cache key: the same source parsed as an expression or as a whole script, for execution or for tooling,
+     * or validated against plugin sets of different shapes yields different outcomes.
+     */
+    protected static final class ScriptKey {
+
+        private final String source;
+
+        private final boolean expression;
+
+        private final boolean forExecution;
+
+        private final PluginSet pluginSet;
+
+        private final int hashCode;
+
+        ScriptKey(String source, boolean expression, boolean forExecution, PluginSet pluginSet) {
+            this.source = source;
+            this.expression = expression;
+            this.forExecution = forExecution;
+            this.pluginSet = pluginSet;
+            this.hashCode =
+                31 * (31 * source.hashCode() + (expression ? 1 : 0) + (forExecution ? 2 : 0)) + pluginSet.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ScriptKey)) {
+                return false;
+            }
+
+            ScriptKey that = (ScriptKey) other;
+            return hashCode == that.hashCode && expression == that.expression &&
+                   forExecution == that.forExecution && source.equals(that.source) &&
+                   pluginSet.equals(that.pluginSet);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+    }
+
+    /** Bails out at the first error, MScript-specific ones included, without reporting anything. */
+    private static final class SilentBailErrorStrategy extends BailErrorStrategy {
+
+        @Override
+        public void reportError(Parser recognizer, RecognitionException e) {}
+    }
+
+    protected static final Logger LOG = Logger.getLogger(MScriptEngine.class.getName());
+
     public static void main(String[] args) throws Throwable {
         MbtScriptExecutor systemFunctions = new MbtScriptExecutor();
         List<PluginAncestor> availablePlugins = new ArrayList<>();
@@ -50,14 +50,36 @@ public class MScriptError {
         }
         this.description = description;
 
-        // Cache the toString() message:
+        stringified = stringify();
+    }
+
+    private MScriptError(MScriptError error, String mScript, int lineNumber, int charNumber) {
+        this.mScript = mScript;
+        this.context = error.context;
+        this.lineNumber = lineNumber;
+        this.charNumber = charNumber;
+        this.code = error.code;
+        this.description = error.description;
+
+        stringified = stringify();
+    }
+
+    /**
+     * @return the same error, at another location in (another version of) the MScript source code
+     */
+    MScriptError moveTo(String mScript, int lineNumber, int charNumber) {
+        return lineNumber == this.lineNumber && charNumber == this.charNumber && mScript.equals(this.mScript) ? this :
+               new MScriptError(this, mScript, lineNumber, charNumber);
+    }
+
+    private String stringify() { // caches the toString() message
         StringBuilder builder =
             new StringBuilder(this.context != null ? this.context + " @" : "@").append(this.lineNumber).append(':')
                                                                                .append(this.charNumber).append(' ')
                                                                                .append('[').append(this.code)
                                                                                .append(']');
-        stringified = "".equals(this.description.trim()) ? builder.toString()
-                                                         : builder.append(" ").append(this.description).toString();
+        return "".equals(this.description.trim()) ? builder.toString()
+                                                  : builder.append(" ").append(this.description).toString();
     }
 
     @Override
@@ -9,16 +9,17 @@ import org.antlr.v4.runtime.misc.NotNull;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
 
-import static com.webmbt.mscript.Functions.Lookup.Result.FOUND;
 import static com.webmbt.mscript.Types.asNumber;
 import static com.webmbt.mscript.Types.asString;
+import static com.webmbt.mscript.Types.isEqual;
+import static com.webmbt.mscript.Types.isGreater;
+import static com.webmbt.mscript.Types.isGreaterOrEqual;
+import static com.webmbt.mscript.Types.isLess;
+import static com.webmbt.mscript.Types.isLessOrEqual;
+import static com.webmbt.mscript.Types.isNotEqual;
 import static com.webmbt.mscript.parse.MScriptLexer.*;
-import static java.util.regex.Pattern.compile;
 
 /**
  * <p>
@@ -26,6 +27,10 @@ import static java.util.regex.Pattern.compile;
  * zero, one or more <em>comparison</em> or <em>arithmetic</em> unary or binary operators.
  * </p>
  * <p>
+ * The {@link MScriptEngine engine} does not evaluate parse trees directly but {@link MScriptCompiler lowers} them to
+ * compact {@link Node} trees first; this visitor remains the reference, straightforward parse tree interpreter.
+ * </p>
+ * <p>
  * If a {@link Functions lookup service / cache} is reused between the parser and the visitor, the function lookup in
  * the visitor will be much faster since the functions have already been validated.
  * </p>
@@ -41,6 +46,8 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
 
     protected List<PluginAncestor> availablePlugins;
 
+    protected DispatchTable dispatchTable; // resolved on first use
+
     public MScriptEvalVisitor(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
         this(null, systemFunctions, availablePlugins);
     }
@@ -64,41 +71,17 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
 
         switch (opType) {
         case EQ:
-            try {
-                return asString(asNumber(val1) == asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(val1.equals(val2));
-            }
+            return asString(isEqual(val1, val2));
         case NE:
-            try {
-                return asString(asNumber(val1) != asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(!val1.equals(val2));
-            }
+            return asString(isNotEqual(val1, val2));
         case LE:
-            try {
-                return asString(asNumber(val1) <= asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(val1.compareTo(val2) <= 0);
-            }
+            return asString(isLessOrEqual(val1, val2));
         case LT:
-            try {
-                return asString(asNumber(val1) < asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(val1.compareTo(val2) < 0);
-            }
+            return asString(isLess(val1, val2));
         case GE:
-            try {
-                return asString(asNumber(val1) >= asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(val1.compareTo(val2) >= 0);
-            }
+            return asString(isGreaterOrEqual(val1, val2));
         case GT:
-            try {
-                return asString(asNumber(val1) > asNumber(val2));
-            } catch (NumberFormatException nfe) {
-                return asString(val1.compareTo(val2) > 0);
-            }
+            return asString(isGreater(val1, val2));
         default:
             throw new RuntimeException("Unsupported comparison operator: " + ctx.condOp.getText());
         }
@@ -182,10 +165,9 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
         String pnName = ctx.plugin == null ? null : ctx.plugin.getText();
         String fnName = ctx.function.getText();
 
-        // If the lookup service / cache is reused between the parser and the visitor,
-        // the function would have already been validated so this new lookup is much faster:
-        Functions.Lookup lookup = functions.lookup(pnName, fnName, ctx.argc, systemFunctions, availablePlugins);
-        if (lookup.result != FOUND) { // should not happen but we're trying to stay defensive here...
+        // The function has already been validated at parse time so this lookup is only a couple of map accesses:
+        DispatchTable.Entry entry = dispatchTable().entry(pnName, fnName, ctx.argc);
+        if (entry == null) { // should not happen but we're trying to stay defensive here...
             throw new Function.CallException(null, "Cannot invoke function $" +
                                                    (pnName == null ? "" : pnName + ".") + fnName);
         }
@@ -200,7 +182,14 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
             }
         }
 
-        return lookup.function.call(args);
+        return entry.invoke(systemFunctions, availablePlugins, args);
+    }
+
+    protected DispatchTable dispatchTable() {
+        if (dispatchTable == null) {
+            dispatchTable = functions.dispatchTable(systemFunctions, availablePlugins);
+        }
+        return dispatchTable;
     }
 
     @Override
@@ -215,14 +204,7 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
                 Token token = ((TerminalNode) part).getSymbol();
                 int tokenType = token.getType();
                 if (tokenType != IN_STR_LBRACK && tokenType != RBRACK) {
-                    String tx = token.getText();
-
-                    // Could we do better / faster here, like in only one string traversal?
-                    for (Map.Entry<Pattern, String> esc : ESC.entrySet()) {
-                        tx = esc.getKey().matcher(tx).replaceAll(esc.getValue());
-                    }
-
-                    acc.append(tx);
+                    acc.append(unescape(token.getText()));
                 }
             } else {
                 acc.append(visit(part));
@@ -232,17 +214,46 @@ class MScriptEvalVisitor extends MScriptParserBaseVisitor<String> {
         return acc.toString();
     }
 
-    protected static final Map<Pattern, String> ESC = new LinkedHashMap<>();
-
-    // Avoid re-compiling the escape character patterns for each string translation from MScript to Java:
-    static {
-        ESC.put(compile("\\\\\\\\"), "\\\\");
-        ESC.put(compile("\\\\'"), "'");
-        ESC.put(compile("\\\\\\$"), "\\$");
-        ESC.put(compile("\\\\\\["), "[");
-        ESC.put(compile("\\\\\\]"), "]");
-        ESC.put(compile("\\\\n"), "\n");
-        ESC.put(compile("\\\\r"), "\r");
-        ESC.put(compile("\\\\t"), "\t");
+    /**
+     * Translates the escape sequences in an MScript string part to the characters they stand for, in one traversal.
+     * The lexer only lets through the escape sequences listed below; a backslash followed by anything else is kept.
+     */
+    static String unescape(String tx) {
+        int backslash = tx.indexOf('\\');
+        if (backslash < 0) {
+            return tx;
+        }
+
+        StringBuilder unescaped = new StringBuilder(tx.length());
+        unescaped.append(tx, 0, backslash);
+        for (int i = backslash, length = tx.length(); i < length; i++) {
+            char c = tx.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                char escaped = tx.charAt(++i);
+                switch (escaped) {
+                case '\\':
+                case '\'':
+                case '$':
+                case '[':
+                case ']':
+                    c = escaped;
+                    break;
+                case 'n':
+                    c = '\n';
+                    break;
+                case 'r':
+                    c = '\r';
+                    break;
+                case 't':
+                    c = '\t';
+                    break;
+                default:
+                    unescaped.append(c);
+                    c = escaped;
+                }
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
     }
 }
@@ -0,0 +1,209 @@
+package com.webmbt.mscript;
+
+import java.util.BitSet;
+
+/**
+ * <p>
+ * Per-execution budgets, keeping badly written scripts (endless loops, ever-growing strings, etc.) from pinning the
+ * executing thread: the maximum number of evaluated expression nodes, of loop iterations (over all the loops of a
+ * script), of characters in a string value and of distinct variables assigned, as well as a wall-clock timeout.
+ * Limits which are not set (or set to <code>0</code> or less) are not enforced.
+ * </p>
+ * <p>
+ * Limits are set on an {@link MScriptEngine#setLimits(MScriptLimits) engine} or on a {@link
+ * MScriptContext#setLimits(MScriptLimits) context}, along with an optional {@link CancellationToken cancellation
+ * token}. Timeouts run from the moment limits / tokens are set on the context, i.e. from the start of the execution
+ * when set on an engine. Time and cancellation are checked cooperatively, at loop back-edges and function call
+ * boundaries: a function call that never returns cannot be interrupted.
+ * </p>
+ * <p>
+ * An execution exceeding a limit stops right away (leaving the effects of the statements executed so far in place)
+ * and evaluates to an error rather than to a value, with one of the <code>E_LIMIT_*</code> / <code>E_CANCELLED</code>
+ * codes. Expressions calling functions are interpreted rather than run as bytecode when limits are set, so that
+ * function call boundaries can be checked.
+ * </p>
+ * <p>
+ * Limits are meant to be configured once and then shared, by any number of engines, contexts and threads.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptLimits {
+
+    private long maxNodes;
+
+    private long maxLoopIterations;
+
+    private long timeoutMillis;
+
+    private int maxStringLength;
+
+    private int maxVariables;
+
+    /**
+     * @param maxNodes the maximum number of expression nodes (constants, variables, operators, function calls, etc.)
+     *                 an execution may evaluate
+     */
+    public MScriptLimits setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+        return this;
+    }
+
+    public long getMaxNodes() { return maxNodes; }
+
+    /**
+     * @param maxLoopIterations the maximum number of loop iterations (loop condition evaluations, actually) an
+     *                          execution may perform, over all its loops; unlike the <code>maxLoopNum</code> option
+     *                          of <code>while</code> statements, exceeding it is an error
+     */
+    public MScriptLimits setMaxLoopIterations(long maxLoopIterations) {
+        this.maxLoopIterations = maxLoopIterations;
+        return this;
+    }
+
+    public long getMaxLoopIterations() { return maxLoopIterations; }
+
+    public MScriptLimits setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    public long getTimeoutMillis() { return timeoutMillis; }
+
+    /**
+     * @param maxStringLength the maximum length of the values assigned to variables, returned by function calls and
+     *                        expressions
+     */
+    public MScriptLimits setMaxStringLength(int maxStringLength) {
+        this.maxStringLength = maxStringLength;
+        return this;
+    }
+
+    public int getMaxStringLength() { return maxStringLength; }
+
+    /**
+     * @param maxVariables the maximum number of distinct variables (loop indexes included) an execution may assign
+     */
+    public MScriptLimits setMaxVariables(int maxVariables) {
+        this.maxVariables = maxVariables;
+        return this;
+    }
+
+    public int getMaxVariables() { return maxVariables; }
+
+    /**
+     * What is left of the limits of an execution. Budgets are checked by compiled code only if set on the {@link
+     * MScriptContext#budget context}: executions without limits or cancellation token pay a mere <code>null</code>
+     * check per statement, loop iteration and function call.
+     */
+    static final class Budget {
+
+        private static final long UNLIMITED = Long.MAX_VALUE;
+
+        private final long maxNodes, maxLoopIterations, deadline, timeoutMillis;
+
+        private final int maxStringLength, maxVariables;
+
+        private final CancellationToken cancellationToken; // can be null
+
+        private long nodes, loopIterations;
+
+        private BitSet assigned; // variable slots, allocated on first assignment
+
+        private int variables;
+
+        /**
+         * @param limits            can be <code>null</code>
+         * @param cancellationToken can be <code>null</code>
+         */
+        Budget(MScriptLimits limits, CancellationToken cancellationToken) {
+            if (limits == null) {
+                limits = new MScriptLimits();
+            }
+            this.maxNodes = limits.maxNodes > 0 ? limits.maxNodes : UNLIMITED;
+            this.maxLoopIterations = limits.maxLoopIterations > 0 ? limits.maxLoopIterations : UNLIMITED;
+            this.timeoutMillis = limits.timeoutMillis;
+            this.deadline = System.nanoTime() + Math.max(limits.timeoutMillis, 0) * 1000000;
+            this.maxStringLength = limits.maxStringLength > 0 ? limits.maxStringLength : Integer.MAX_VALUE;
+            this.maxVariables = limits.maxVariables > 0 ? limits.maxVariables : Integer.MAX_VALUE;
+            this.cancellationToken = cancellationToken;
+        }
+
+        /** Accounts for the evaluation of an expression, of <code>nodes</code> nodes. */
+        void evaluate(int nodes, int line, int column) {
+            if ((this.nodes += nodes) > maxNodes) {
+                throw new LimitException("E_LIMIT_NODES", line, column, maxNodes);
+            }
+        }
+
+        /** Accounts for a loop iteration, evaluating a condition of <code>nodes</code> nodes. */
+        void iterate(int nodes, int line, int column) {
+            if (++loopIterations > maxLoopIterations) {
+                throw new LimitException("E_LIMIT_LOOP_ITERATIONS", line, column, maxLoopIterations);
+            }
+            evaluate(nodes, line, column);
+            checkpoint(line, column);
+        }
+
+        /** Checks the timeout and the cancellation token. */
+        void checkpoint(int line, int column) {
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                throw new LimitException("E_CANCELLED", line, column);
+            }
+            if (timeoutMillis > 0 && System.nanoTime() - deadline > 0) {
+                throw new LimitException("E_LIMIT_TIMEOUT", line, column, timeoutMillis);
+            }
+        }
+
+        void checkLength(String value, int line, int column) {
+            if (value != null && value.length() > maxStringLength) {
+                throw new LimitException("E_LIMIT_STRING_LENGTH", line, column, maxStringLength);
+            }
+        }
+
+        void assign(int slot, String value, int line, int column) {
+            checkLength(value, line, column);
+            if (maxVariables == Integer.MAX_VALUE) {
+                return;
+            }
+
+            if (assigned == null) {
+                assigned = new BitSet();
+            }
+            if (!assigned.get(slot)) {
+                if (++variables > maxVariables) {
+                    throw new LimitException("E_LIMIT_VARIABLES", line, column, maxVariables);
+                }
+                assigned.set(slot);
+            }
+        }
+    }
+
+    /**
+     * Thrown by {@link Budget budgets} and caught where executions start, which turn it into an {@link MScriptError
+     * error}.
+     */
+    static final class LimitException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        final String code;
+
+        final int line, column;
+
+        private final Object[] arguments;
+
+        LimitException(String code, int line, int column, Object... arguments) {
+            super(code, null, false, false); // no stack trace, limits are an expected outcome
+            this.code = code;
+            this.line = line;
+            this.column = column;
+            this.arguments = arguments;
+        }
+
+        MScriptError toError(String mScript) {
+            return new MScriptError(mScript, null, line, column, code, arguments);
+        }
+    }
+}
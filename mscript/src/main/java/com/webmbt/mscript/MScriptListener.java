@@ -0,0 +1,84 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * Observes the execution of MScript code: statements, function calls, variable reads and writes and the outcome of
+ * <code>if</code> / <code>while</code> conditions, each identified by its line (starting at 1) and column (starting
+ * at 0) in the source. Useful for tracing, debugging, coverage, etc.
+ * </p>
+ * <p>
+ * Listeners are set on an {@link MScriptEngine#setListener(MScriptListener) engine} or on a {@link
+ * MScriptContext#setListener(MScriptListener) context}. Code executed with a listener runs an instrumented copy of
+ * its compiled tree, derived once per {@link CompiledMScript compiled script} and always interpreted (never {@link
+ * MScriptEngine#setCompileThreshold(int) compiled to bytecode}); code executed without a listener runs the plain tree,
+ * which holds no listener checks at all.
+ * </p>
+ * <p>
+ * Listeners are called by the executing threads, a listener set on an engine should therefore be thread-safe. Every
+ * <code>enter</code> notification is followed by the matching <code>exit</code> one, even if execution fails in
+ * between. Extend {@link Adapter} to only implement the notifications of interest.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public interface MScriptListener {
+
+    /**
+     * @param statement what the statement is: <code>x =</code>, <code>call</code>, <code>if</code>, <code>while
+     *                  [label]</code>, <code>break</code> or <code>continue</code>
+     */
+    void enterStatement(MScriptContext ctx, int line, int column, String statement);
+
+    void exitStatement(MScriptContext ctx, int line, int column, String statement);
+
+    /**
+     * Called before the arguments of the call are evaluated.
+     *
+     * @param function the qualified name of the function, e.g. <code>$dataGen.upperCase</code>
+     */
+    void enterCall(MScriptContext ctx, int line, int column, String function);
+
+    /**
+     * @param result the value returned by the function, <code>null</code> if the call failed
+     */
+    void exitCall(MScriptContext ctx, int line, int column, String function, String result);
+
+    void variableRead(MScriptContext ctx, int line, int column, String name, String value);
+
+    /**
+     * Called after assignments as well as after loop index variables are set.
+     */
+    void variableWritten(MScriptContext ctx, int line, int column, String name, String value);
+
+    /**
+     * Called whenever the condition of an <code>if</code> / <code>while</code> statement has been evaluated; the
+     * position is that of the statement.
+     */
+    void conditionEvaluated(MScriptContext ctx, int line, int column, boolean result);
+
+    /** A listener ignoring all notifications, meant to be extended. */
+    class Adapter implements MScriptListener {
+
+        @Override
+        public void enterStatement(MScriptContext ctx, int line, int column, String statement) {}
+
+        @Override
+        public void exitStatement(MScriptContext ctx, int line, int column, String statement) {}
+
+        @Override
+        public void enterCall(MScriptContext ctx, int line, int column, String function) {}
+
+        @Override
+        public void exitCall(MScriptContext ctx, int line, int column, String function, String result) {}
+
+        @Override
+        public void variableRead(MScriptContext ctx, int line, int column, String name, String value) {}
+
+        @Override
+        public void variableWritten(MScriptContext ctx, int line, int column, String name, String value) {}
+
+        @Override
+        public void conditionEvaluated(MScriptContext ctx, int line, int column, boolean result) {}
+    }
+}
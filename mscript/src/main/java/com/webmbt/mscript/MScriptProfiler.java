@@ -0,0 +1,349 @@
+package com.webmbt.mscript;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>
+ * Attributes the wall time spent executing MScript code, and the memory allocated meanwhile, to the statements and
+ * function calls of the code, identified by their line and column in the source. Loops are further broken down by
+ * iteration: iteration 1, iterations 2 to 10, 11 to 100, etc. Execution is profiled as a call tree whose root frames
+ * are the executed expressions / scripts.
+ * </p>
+ * <p>
+ * Profiling is enabled by setting a profiler on an {@link MScriptEngine#setProfiler(MScriptProfiler) engine} or on a
+ * {@link MScriptContext#setProfiler(MScriptProfiler) context}. Profiled expressions are interpreted, even if they have
+ * been compiled to bytecode. Allocations are measured through the per-thread allocation counters of the JVM, if it
+ * has any (HotSpot does).
+ * </p>
+ * <p>
+ * Profilers are thread-safe: every thread records its own call tree, merged when {@link #writeReport(Appendable)
+ * reporting}. Reports can be written at any time, even while code is being profiled.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptProfiler {
+
+    private static final int MAX_ROOT_NAME_LENGTH = 60;
+
+    private volatile Queue<Recorder> recorders = new ConcurrentLinkedQueue<>();
+
+    private volatile ThreadLocal<Recorder> threadRecorders = new ThreadLocal<>();
+
+    /** Discards everything profiled so far. */
+    public void reset() {
+        threadRecorders = new ThreadLocal<>();
+        recorders = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Writes the profile in collapsed stack format (one <code>frame;frame;...;frame value</code> line per call tree
+     * node), as expected by flame graph tools (e.g. <code>flamegraph.pl</code>).
+     *
+     * @param allocations whether the values should be the bytes allocated in every frame rather than the nanoseconds
+     *                    spent in it
+     */
+    public void writeCollapsedStacks(Appendable out, boolean allocations) throws IOException {
+        writeCollapsedStacks(out, "", merge(), allocations);
+    }
+
+    /**
+     * Writes a text report with one line per statement, function call and loop iteration range, the most time
+     * consuming (by self time) first.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        Map<String, long[]> lines = new LinkedHashMap<>(); // self nanos, total nanos, count, self bytes by location
+        for (Frame root : merge().children()) {
+            report(lines, root, root.name + " ", root.name);
+        }
+
+        List<Map.Entry<String, long[]>> sorted = new ArrayList<>(lines.entrySet());
+        Collections.sort(sorted, new Comparator<Map.Entry<String, long[]>>() {
+
+            @Override
+            public int compare(Map.Entry<String, long[]> line1, Map.Entry<String, long[]> line2) {
+                return Long.compare(line2.getValue()[0], line1.getValue()[0]);
+            }
+        });
+
+        out.append(String.format(Locale.ROOT, "%10s %10s %10s %10s  %s%n", "self ms", "total ms", "count",
+                                 "self KB", "location"));
+        for (Map.Entry<String, long[]> line : sorted) {
+            long[] values = line.getValue();
+            out.append(String.format(Locale.ROOT, "%10.3f %10.3f %10d %10.1f  %s%n", values[0] / 1e6, values[1] / 1e6,
+                                     values[2], values[3] / 1024., line.getKey()));
+        }
+    }
+
+    /**
+     * @return the call tree recorder of the current thread
+     */
+    Recorder recorder() {
+        ThreadLocal<Recorder> threadRecorders = this.threadRecorders;
+        Recorder recorder = threadRecorders.get();
+        if (recorder == null) {
+            threadRecorders.set(recorder = new Recorder());
+            recorders.add(recorder);
+        }
+        return recorder;
+    }
+
+    private Frame merge() {
+        Frame merged = new Frame(null, -1, true);
+        for (Recorder recorder : recorders) {
+            synchronized (recorder) {
+                merge(merged, recorder.frames[0]);
+            }
+        }
+        return merged;
+    }
+
+    private static void merge(Frame into, Frame from) {
+        into.count += from.count;
+        into.nanos += from.nanos;
+        into.bytes += from.bytes;
+        for (Frame child : from.children()) {
+            merge(into.child(child.name, child.name, child.bucket), child);
+        }
+    }
+
+    private static void writeCollapsedStacks(Appendable out, String stack, Frame frame, boolean allocations)
+        throws IOException {
+        for (Frame child : frame.children()) {
+            String childStack = stack + child.name;
+            long self = allocations ? child.selfBytes() : child.selfNanos();
+            if (self > 0) {
+                out.append(childStack).append(' ').append(Long.toString(self)).append('\n');
+            }
+            writeCollapsedStacks(out, childStack + ';', child, allocations);
+        }
+    }
+
+    /**
+     * @param prefix   what locations start with, i.e. the name of the root frame (the expression / script)
+     * @param location the location of <code>frame</code>, only used if it is a loop iteration range
+     */
+    private static void report(Map<String, long[]> lines, Frame frame, String prefix, String location) {
+        long[] line = lines.get(location);
+        if (line == null) {
+            lines.put(location, line = new long[4]);
+        }
+        line[0] += frame.selfNanos();
+        line[1] += frame.nanos; // statements are never nested within themselves, totals can be summed up
+        line[2] += frame.count;
+        line[3] += frame.selfBytes();
+
+        for (Frame child : frame.children()) {
+            report(lines, child, prefix, child.bucket < 0 ? prefix + child.name : location + " " + child.name);
+        }
+    }
+
+    static String name(Object frame) {
+        if (frame instanceof CompiledMScript) {
+            String source = ((CompiledMScript) frame).getSource().trim().replaceAll("\\s+", " ").replace(';', ',');
+            return "'" + (source.length() > MAX_ROOT_NAME_LENGTH ?
+                          source.substring(0, MAX_ROOT_NAME_LENGTH - 3) + "..." : source) + "'";
+        }
+        if (frame instanceof Node.Call) {
+            Node.Call call = (Node.Call) frame;
+            return "L" + call.line + ":" + call.column + " " + call.function.getQualifiedName() + "()";
+        }
+
+        Statement statement = (Statement) frame;
+        return "L" + statement.line + ":" + statement.column + " " + statement.kind();
+    }
+
+    /**
+     * @return <code>0</code> for iteration 1 (i.e. index 0), <code>1</code> for iterations 2 to 10, <code>2</code>
+     * for iterations 11 to 100, etc.
+     */
+    static int bucket(int index) {
+        int bucket = 0;
+        for (long last = 1; index >= last; last *= 10) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static String bucketName(int bucket) {
+        if (bucket == 0) {
+            return "iteration 1";
+        }
+        long last = 1;
+        for (int i = 1; i < bucket; i++) {
+            last *= 10;
+        }
+        return "iterations " + (last + 1) + "-" + last * 10;
+    }
+
+    /**
+     * The call tree recorded by one thread: the frames currently executing form a stack rooted in a frame standing for
+     * everything profiled.
+     */
+    static final class Recorder {
+
+        private Frame[] frames = {new Frame(null, -1, false)};
+
+        private long[] startNanos = new long[1];
+
+        private long[] startBytes = new long[1];
+
+        private int depth;
+
+        private final long threadId = Thread.currentThread().getId();
+
+        /**
+         * Enters the frame of an expression / script ({@link CompiledMScript}), statement or function call.
+         *
+         * @return the depth to {@link #exit(int) exit} back to
+         */
+        synchronized int enter(Object key) {
+            int depth = this.depth;
+            Frame parent = frames[depth];
+            Frame child = parent.child(key, null, -1);
+            push(child == null ? parent.child(key, name(key), -1) : child);
+            return depth;
+        }
+
+        /** Exits all the frames entered since the frame at <code>depth</code> was the current one. */
+        synchronized void exit(int depth) {
+            long nanos = System.nanoTime(), bytes = allocatedBytes();
+            for (; this.depth > depth; this.depth--) {
+                Frame frame = frames[this.depth];
+                frame.nanos += nanos - startNanos[this.depth];
+                frame.bytes += bytes - startBytes[this.depth];
+            }
+        }
+
+        /**
+         * Starts a loop iteration, attributing it to the frame of its iteration range.
+         *
+         * @param index starting at <code>0</code>, to be called from the frame of the loop or of its previous iteration
+         */
+        synchronized void iteration(int index) {
+            int bucket = bucket(index);
+            Frame current = frames[depth];
+            if (current.bucket == bucket) {
+                current.count++;
+                return;
+            }
+            if (current.bucket >= 0) {
+                exit(depth - 1);
+            }
+
+            Frame loop = frames[depth];
+            Integer key = bucket; // boxed values are cached, no allocation
+            Frame child = loop.child(key, null, bucket);
+            push(child == null ? loop.child(key, bucketName(bucket), bucket) : child);
+        }
+
+        private void push(Frame frame) {
+            if (++depth == frames.length) {
+                frames = Arrays.copyOf(frames, depth * 2);
+                startNanos = Arrays.copyOf(startNanos, depth * 2);
+                startBytes = Arrays.copyOf(startBytes, depth * 2);
+            }
+            frames[depth] = frame;
+            frame.count++;
+            startBytes[depth] = allocatedBytes();
+            startNanos[depth] = System.nanoTime();
+        }
+
+        private long allocatedBytes() {
+            return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(threadId);
+        }
+
+        private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocations();
+
+        private static com.sun.management.ThreadMXBean allocations() {
+            try {
+                ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+                if (threads instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported() &&
+                    ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled()) {
+                    return (com.sun.management.ThreadMXBean) threads;
+                }
+            } catch (LinkageError notHotSpot) {
+                // no allocation counters
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A call tree node: how many times it has been entered (or, for loop iteration ranges, how many iterations it
+     * covers) and the time spent / memory allocated in it, its children included. Children are looked up by identity
+     * (of the compiled code, statement or call they stand for) while recording and by name when merging.
+     */
+    private static final class Frame {
+
+        final String name;
+
+        final int bucket; // loop iteration range, negative for other frames
+
+        long count, nanos, bytes;
+
+        private final boolean byName;
+
+        private Map<Object, Frame> children; // created on first use
+
+        Frame(String name, int bucket, boolean byName) {
+            this.name = name;
+            this.bucket = bucket;
+            this.byName = byName;
+        }
+
+        /**
+         * @param name if <code>null</code>, only looks up the child frame (returning <code>null</code> if there is no
+         *             such frame) rather than creating it
+         */
+        Frame child(Object key, String name, int bucket) {
+            if (children == null) {
+                if (name == null) {
+                    return null;
+                }
+                children = byName ? new LinkedHashMap<Object, Frame>() : new IdentityHashMap<Object, Frame>();
+            }
+
+            Frame child = children.get(key);
+            if (child == null && name != null) {
+                children.put(key, child = new Frame(name, bucket, byName));
+            }
+            return child;
+        }
+
+        Iterable<Frame> children() {
+            return children == null ? Collections.<Frame>emptyList() : new ArrayList<>(children.values());
+        }
+
+        long selfNanos() {
+            long self = nanos;
+            for (Frame child : children()) {
+                self -= child.nanos;
+            }
+            return Math.max(0, self);
+        }
+
+        long selfBytes() {
+            long self = bytes;
+            for (Frame child : children()) {
+                self -= child.bytes;
+            }
+            return Math.max(0, self);
+        }
+    }
+}
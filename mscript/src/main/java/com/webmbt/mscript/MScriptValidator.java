@@ -0,0 +1,108 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptParser;
+import com.webmbt.mscript.parse.MScriptParserBaseVisitor;
+import com.webmbt.mscript.parse.MScriptRecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.NotNull;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.webmbt.mscript.Functions.Lookup;
+import static com.webmbt.mscript.Functions.Lookup.Result.E_PLUGIN_NOT_FOUND;
+import static com.webmbt.mscript.Functions.Lookup.Result.FOUND;
+
+/**
+ * <p>
+ * Semantic analysis pass validating the MScript function calls in a parse tree against the functions callable in a
+ * {@link DispatchTable dispatch table}. Parsing thus neither needs actual system functions and plugins nor depends on
+ * their shape; only this pass does.
+ * </p>
+ * <p>
+ * Call sites are grouped by plugin name, function name and number of arguments so that every distinct function is
+ * only looked up once per parse tree (dispatch tables themselves are shared by all the scripts validated against plugin
+ * sets of the same shape). Invalid calls are reported to the parser's error listeners as {@link
+ * MScriptRecognitionException}s, in source order, with the same error codes and offending tokens as when calls were
+ * validated at parse time.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class MScriptValidator extends MScriptParserBaseVisitor<Void> {
+
+    private static final Comparator<MScriptRecognitionException> SOURCE_ORDER =
+        new Comparator<MScriptRecognitionException>() {
+
+            @Override
+            public int compare(MScriptRecognitionException e1, MScriptRecognitionException e2) {
+                int i1 = e1.getOffendingToken().getTokenIndex(), i2 = e2.getOffendingToken().getTokenIndex();
+                return i1 < i2 ? -1 : i1 == i2 ? 0 : 1;
+            }
+        };
+
+    private final DispatchTable dispatchTable;
+
+    /** Function call sites by plugin name, function name and number of arguments, in order of first occurrence. */
+    private final Map<String, List<MScriptParser.FncallContext>> callSites = new LinkedHashMap<>();
+
+    public MScriptValidator(DispatchTable dispatchTable) {
+        if (dispatchTable == null) {
+            throw new IllegalArgumentException("the dispatch table to validate function calls against cannot be null");
+        }
+        this.dispatchTable = dispatchTable;
+    }
+
+    /**
+     * Validates the function calls in a tree produced by <code>mScriptParser</code>, reporting invalid ones to its
+     * error listeners.
+     *
+     * @return the number of invalid function calls
+     */
+    public int validate(MScriptParser mScriptParser, ParseTree tree) {
+        callSites.clear();
+        visit(tree);
+
+        List<MScriptRecognitionException> errors = new ArrayList<>();
+        for (List<MScriptParser.FncallContext> calls : callSites.values()) {
+            MScriptParser.FncallContext call = calls.get(0);
+            Lookup lookup = dispatchTable.lookup(call.plugin == null ? null : call.plugin.getText(),
+                                                 call.function.getText(), call.argc);
+            if (lookup.result != FOUND) {
+                for (MScriptParser.FncallContext invalidCall : calls) {
+                    errors.add(new MScriptRecognitionException(mScriptParser, lookup.result == E_PLUGIN_NOT_FOUND ?
+                                                                              invalidCall.plugin : invalidCall.function,
+                                                               lookup.result.toString()));
+                }
+            }
+        }
+        callSites.clear();
+
+        Collections.sort(errors, SOURCE_ORDER);
+        for (MScriptRecognitionException error : errors) {
+            mScriptParser.notifyErrorListeners(error.getOffendingToken(), error.getErrorCode(), error);
+        }
+        return errors.size();
+    }
+
+    @Override
+    public Void visitFncall(@NotNull MScriptParser.FncallContext ctx) {
+        Token function = ctx.function;
+        if (function != null && ctx.exception == null) { // calls that could not be matched are syntax errors already
+            String key = (ctx.plugin == null ? "" : ctx.plugin.getText()) + '.' + function.getText() + '/' + ctx.argc;
+
+            List<MScriptParser.FncallContext> calls = callSites.get(key);
+            if (calls == null) {
+                callSites.put(key, calls = new ArrayList<>(1));
+            }
+            calls.add(ctx);
+        }
+        return visitChildren(ctx);
+    }
+}
@@ -0,0 +1,446 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+
+import static com.webmbt.mscript.parse.MScriptLexer.ADD;
+import static com.webmbt.mscript.parse.MScriptLexer.DIV;
+import static com.webmbt.mscript.parse.MScriptLexer.EQ;
+import static com.webmbt.mscript.parse.MScriptLexer.GE;
+import static com.webmbt.mscript.parse.MScriptLexer.GT;
+import static com.webmbt.mscript.parse.MScriptLexer.LE;
+import static com.webmbt.mscript.parse.MScriptLexer.LT;
+import static com.webmbt.mscript.parse.MScriptLexer.MOD;
+import static com.webmbt.mscript.parse.MScriptLexer.MUL;
+import static com.webmbt.mscript.parse.MScriptLexer.NE;
+import static com.webmbt.mscript.parse.MScriptLexer.SUB;
+
+/**
+ * <p>
+ * A node in the compact, immutable tree an MScript parse tree is {@link MScriptCompiler lowered} to. Unlike parse
+ * trees, these trees hold no comments, newlines, parentheses or other tokens that do not matter at execution time.
+ * Literals are pre-processed (e.g. string escape sequences are translated once and for all), identifiers are interned
+ * and function calls are resolved, so that {@link #eval(MScriptContext) evaluation} never touches ANTLR objects.
+ * </p>
+ * <p>
+ * Evaluation semantics are those of {@link MScriptEvalVisitor} but nodes evaluate to (typed) {@link Value values}
+ * rather than to strings. Operators are identified by their MScript token types.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+abstract class Node {
+
+    /** Position of the node in the MScript source (line starting at 1, column at 0), for error reporting. */
+    final int line, column;
+
+    Node(int line, int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    abstract Value eval(MScriptContext ctx);
+
+    abstract <R> R accept(Visitor<R> visitor);
+
+    /**
+     * @return the number of nodes in the tree rooted at <code>node</code>, all of which get evaluated whenever the
+     * tree is (MScript has no short-circuiting operators)
+     */
+    static int size(Node node) {
+        return node.accept(SIZE);
+    }
+
+    /** Compile-time passes over node trees (bytecode generation, etc.) are implemented as visitors. */
+    interface Visitor<R> {
+
+        R visitConst(Const node);
+
+        R visitVar(Var node);
+
+        R visitNegate(Negate node);
+
+        R visitArithmetic(Arithmetic node);
+
+        R visitComparison(Comparison node);
+
+        R visitCall(Call node);
+
+        R visitConcat(Concat node);
+    }
+
+    private static final Visitor<Integer> SIZE = new Visitor<Integer>() {
+
+        @Override
+        public Integer visitConst(Const node) { return 1; }
+
+        @Override
+        public Integer visitVar(Var node) { return 1; }
+
+        @Override
+        public Integer visitNegate(Negate node) { return 1 + size(node.operand); }
+
+        @Override
+        public Integer visitArithmetic(Arithmetic node) { return 1 + size(node.left) + size(node.right); }
+
+        @Override
+        public Integer visitComparison(Comparison node) { return 1 + size(node.left) + size(node.right); }
+
+        @Override
+        public Integer visitCall(Call node) { return 1 + sizeAll(node.args); }
+
+        @Override
+        public Integer visitConcat(Concat node) { return 1 + sizeAll(node.parts); }
+
+        private int sizeAll(Node[] nodes) {
+            int size = 0;
+            for (Node node : nodes) {
+                size += size(node);
+            }
+            return size;
+        }
+    };
+
+    static final class Const extends Node {
+
+        final Value value; // classified, shared between threads
+
+        Const(int line, int column, String value) {
+            super(line, column);
+            this.value = Value.of(value).classify();
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitConst(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) { return value; }
+    }
+
+    static final class Var extends Node {
+
+        final String name; // interned
+
+        final int slot; // see Variables
+
+        Var(int line, int column, String name) {
+            super(line, column);
+            this.name = name.intern();
+            this.slot = Variables.slot(name);
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitVar(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            // If one hasn't provided a system functions implementation,
+            // we try to be forgiving and simply return 'null'
+            return ctx.systemFunctions == null ? Value.NULL_STRING : Value.of(ctx.getVar(slot, name));
+        }
+    }
+
+    static final class Negate extends Node {
+
+        final Node operand;
+
+        Negate(int line, int column, Node operand) {
+            super(line, column);
+            this.operand = operand;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitNegate(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) { return operand.eval(ctx).negate(); }
+    }
+
+    /**
+     * Arithmetic operators, implemented by the system functions object. When the system functions class does not
+     * override any of the {@link MbtScriptExecutor} operators, they are evaluated on {@link Value values} directly.
+     */
+    static final class Arithmetic extends Node {
+
+        final int op;
+
+        final Node left, right;
+
+        final boolean typed; // whether the standard operator implementations can be bypassed
+
+        Arithmetic(int line, int column, int op, Node left, Node right, boolean typed) {
+            super(line, column);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.typed = typed;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitArithmetic(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            Value val1 = left.eval(ctx);
+            Value val2 = right.eval(ctx);
+
+            if (typed) {
+                switch (op) {
+                case MUL:
+                    return val1.mul(val2);
+                case DIV:
+                    return val1.div(val2);
+                case MOD:
+                    return val1.mod(val2);
+                case ADD:
+                    return val1.add(val2);
+                case SUB:
+                    return val1.sub(val2);
+                default:
+                    throw new RuntimeException("Unsupported arithmetic operator: " + op);
+                }
+            }
+
+            switch (op) {
+            case MUL:
+                return Value.of(ctx.systemFunctions.mul(val1.asString(), val2.asString()));
+            case DIV:
+                return Value.of(ctx.systemFunctions.div(val1.asString(), val2.asString()));
+            case MOD:
+                return Value.of(ctx.systemFunctions.mod(val1.asString(), val2.asString()));
+            case ADD:
+                return Value.of(ctx.systemFunctions.add(val1.asString(), val2.asString()));
+            case SUB:
+                return Value.of(ctx.systemFunctions.sub(val1.asString(), val2.asString()));
+            default:
+                throw new RuntimeException("Unsupported arithmetic operator: " + op);
+            }
+        }
+
+        /**
+         * @return whether <code>systemFunctionsClass</code> inherits all the standard {@link MbtScriptExecutor}
+         * operator implementations, which are known to follow the {@link Types coercion rules}
+         */
+        static boolean isTyped(Class<?> systemFunctionsClass) {
+            if (systemFunctionsClass == null) {
+                return false;
+            }
+            for (String operator : OPERATORS) {
+                try {
+                    if (systemFunctionsClass.getMethod(operator, String.class, String.class).getDeclaringClass() !=
+                        MbtScriptExecutor.class) {
+                        return false;
+                    }
+                } catch (NoSuchMethodException nsme) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static final String[] OPERATORS = {"add", "sub", "mul", "div", "mod"};
+    }
+
+    /** Comparison operators: numeric comparison if both operands are numeric and string comparison otherwise. */
+    static final class Comparison extends Node {
+
+        final int op;
+
+        final Node left, right;
+
+        Comparison(int line, int column, int op, Node left, Node right) {
+            super(line, column);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitComparison(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            Value val1 = left.eval(ctx);
+            Value val2 = right.eval(ctx);
+
+            switch (op) {
+            case EQ:
+                return Value.of(val1.isEqual(val2));
+            case NE:
+                return Value.of(val1.isNotEqual(val2));
+            case LE:
+                return Value.of(val1.isLessOrEqual(val2));
+            case LT:
+                return Value.of(val1.isLess(val2));
+            case GE:
+                return Value.of(val1.isGreaterOrEqual(val2));
+            case GT:
+                return Value.of(val1.isGreater(val2));
+            default:
+                throw new RuntimeException("Unsupported comparison operator: " + op);
+            }
+        }
+    }
+
+    /**
+     * A resolved function call. The function implementation is invoked on the system functions object or on the
+     * plugin found at a given position in the list of available plugins, both of which are only known at run time.
+     * The implementation itself is captured at compile time so that (re-)caching other implementations of the function
+     * later on does not affect trees which are already compiled.
+     */
+    static final class Call extends Node {
+
+        final Function function;
+
+        final Function.Implementation implementation; // null if the function cannot be called with args.length args
+
+        final int plugin; // negative for system functions
+
+        final Node[] args;
+
+        Call(int line, int column, Function function, int plugin, Node[] args) {
+            super(line, column);
+            this.function = function;
+            this.implementation = function.implementation(args.length);
+            this.plugin = plugin;
+            this.args = args;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitCall(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            MScriptLimits.Budget budget = ctx.budget;
+            if (budget == null) {
+                return profiledCall(ctx);
+            }
+
+            budget.checkpoint(line, column);
+            Value result = profiledCall(ctx);
+            budget.checkpoint(line, column);
+            budget.checkLength(result.asString(), line, column);
+            return result;
+        }
+
+        private Value profiledCall(MScriptContext ctx) {
+            MScriptProfiler.Recorder profiler = ctx.profiler;
+            if (profiler == null) {
+                return call(ctx);
+            }
+
+            int depth = profiler.enter(this);
+            try {
+                return call(ctx);
+            } finally {
+                profiler.exit(depth);
+            }
+        }
+
+        private Value call(MScriptContext ctx) {
+            Object target = ctx.target(plugin);
+            if (implementation == null) {
+                return Value.of(function.invoke(target, new String[args.length])); // fails, reporting the function
+            }
+
+            // Go through the arity-specific entry points whenever possible, to avoid allocating argument arrays:
+            switch (args.length) {
+            case 0:
+                return Value.of(function.call0(implementation, target));
+            case 1:
+                return Value.of(function.call1(implementation, target, args[0].eval(ctx).asString()));
+            case 2:
+                return Value.of(function.call2(implementation, target, args[0].eval(ctx).asString(),
+                                               args[1].eval(ctx).asString()));
+            case 3:
+                return Value.of(function.call3(implementation, target, args[0].eval(ctx).asString(),
+                                               args[1].eval(ctx).asString(), args[2].eval(ctx).asString()));
+            default:
+                String[] values = new String[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    values[i] = args[i].eval(ctx).asString();
+                }
+                return Value.of(function.invoke(implementation, target, values));
+            }
+        }
+    }
+
+    /**
+     * An interpolated string, i.e. one containing function calls and / or bracketed expressions: a template made of
+     * (already unescaped) literal segments and of slots for the embedded expressions.
+     */
+    static final class Concat extends Node {
+
+        final Node[] parts;
+
+        /** The literal segments of the template, <code>null</code> at the positions of the slots. */
+        final String[] literals;
+
+        /** Length of all the literal segments plus an estimation of the length of the slot values. */
+        final int capacity;
+
+        Concat(int line, int column, Node[] parts) {
+            super(line, column);
+            this.parts = parts;
+            this.literals = new String[parts.length];
+
+            int capacity = 0;
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i] instanceof Const) {
+                    literals[i] = ((Const) parts[i]).value.asString();
+                    capacity += literals[i].length();
+                } else {
+                    capacity += SLOT_CAPACITY;
+                }
+            }
+            this.capacity = capacity;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return visitor.visitConcat(this); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            StringBuilder acc = new StringBuilder(capacity);
+            for (int i = 0; i < parts.length; i++) {
+                String literal = literals[i];
+                acc.append(literal != null ? literal : parts[i].eval(ctx).asString());
+            }
+            return Value.of(acc.toString());
+        }
+
+        static final int SLOT_CAPACITY = 16;
+    }
+
+    /**
+     * Evaluates an expression by means of the class {@link BytecodeCompiler generated} for it; compile-time passes
+     * still see the original expression tree.
+     */
+    static final class Compiled extends Node {
+
+        final Node original;
+
+        final MScriptBytecode bytecode;
+
+        final boolean callsFunctions;
+
+        Compiled(Node original, MScriptBytecode bytecode, boolean callsFunctions) {
+            super(original.line, original.column);
+            this.original = original;
+            this.bytecode = bytecode;
+            this.callsFunctions = callsFunctions;
+        }
+
+        @Override
+        <R> R accept(Visitor<R> visitor) { return original.accept(visitor); }
+
+        @Override
+        Value eval(MScriptContext ctx) {
+            // Bytecode calls function implementations directly, bypassing metrics, call boundary checks and profiles:
+            if (callsFunctions && (FunctionMetrics.enabled || ctx.budget != null || ctx.profiler != null)) {
+                return original.eval(ctx);
+            }
+            return bytecode.eval(ctx.systemFunctions, ctx.variables, ctx.availablePlugins);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Identifies the <em>shape</em> of a system functions object and a list of plugins, i.e. the system functions class
+ * as well as the ID and class of every plugin, in order. Two plugin sets with the same shape expose exactly the same
+ * MScript {@link Function functions} (function discovery is class-based) and therefore validate and resolve MScript
+ * code in exactly the same way, even if the actual plugin instances differ.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe and are meant to be used as (parts of) cache keys.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class PluginSet {
+
+    private final Class<?> systemFunctionsClass;
+
+    private final String[] pluginIds;
+
+    private final Class<?>[] pluginClasses;
+
+    private final int hashCode;
+
+    private PluginSet(Class<?> systemFunctionsClass, String[] pluginIds, Class<?>[] pluginClasses) {
+        this.systemFunctionsClass = systemFunctionsClass;
+        this.pluginIds = pluginIds;
+        this.pluginClasses = pluginClasses;
+
+        int hash = systemFunctionsClass == null ? 0 : systemFunctionsClass.hashCode();
+        hash = 31 * hash + Arrays.hashCode(pluginIds);
+        this.hashCode = 31 * hash + Arrays.hashCode(pluginClasses);
+    }
+
+    /**
+     * @param systemFunctions  can be <code>null</code>
+     * @param availablePlugins can be <code>null</code>; <code>null</code> plugins keep their position in the set
+     */
+    public static PluginSet of(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        int size = availablePlugins == null ? 0 : availablePlugins.size();
+
+        String[] pluginIds = new String[size];
+        Class<?>[] pluginClasses = new Class<?>[size];
+        for (int i = 0; i < size; i++) {
+            PluginAncestor plugin = availablePlugins.get(i);
+            if (plugin != null) {
+                pluginIds[i] = plugin.getPluginID();
+                pluginClasses[i] = plugin.getClass();
+            }
+        }
+
+        return new PluginSet(systemFunctions == null ? null : systemFunctions.getClass(), pluginIds, pluginClasses);
+    }
+
+    /**
+     * @return whether <code>systemFunctions</code> and <code>availablePlugins</code> have this shape; unlike comparing
+     * to {@link #of(MbtScriptExecutor, List) a new plugin set}, this does not allocate
+     */
+    public boolean matches(MbtScriptExecutor systemFunctions, List<PluginAncestor> availablePlugins) {
+        int size = availablePlugins == null ? 0 : availablePlugins.size();
+        if (size != pluginIds.length ||
+            systemFunctionsClass != (systemFunctions == null ? null : systemFunctions.getClass())) {
+            return false;
+        }
+
+        for (int i = 0; i < size; i++) {
+            PluginAncestor plugin = availablePlugins.get(i);
+            if (plugin == null ? pluginClasses[i] != null : plugin.getClass() != pluginClasses[i] ||
+                                                            !equals(plugin.getPluginID(), pluginIds[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(String s1, String s2) { return s1 == null ? s2 == null : s1.equals(s2); }
+
+    public Class<?> getSystemFunctionsClass() { return systemFunctionsClass; }
+
+    public int size() { return pluginIds.length; }
+
+    /**
+     * @return the ID of the plugin at the specified position or <code>null</code> if there was no plugin there
+     */
+    public String getPluginId(int index) { return pluginIds[index]; }
+
+    /**
+     * @return the class of the plugin at the specified position or <code>null</code> if there was no plugin there
+     */
+    public Class<?> getPluginClass(int index) { return pluginClasses[index]; }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PluginSet)) {
+            return false;
+        }
+
+        PluginSet that = (PluginSet) other;
+        return hashCode == that.hashCode && systemFunctionsClass == that.systemFunctionsClass &&
+               Arrays.equals(pluginIds, that.pluginIds) && Arrays.equals(pluginClasses, that.pluginClasses);
+    }
+
+    @Override
+    public int hashCode() { return hashCode; }
+
+    @Override
+    public String toString() {
+        return (systemFunctionsClass == null ? "null" : systemFunctionsClass.getName()) + Arrays.toString(pluginIds);
+    }
+}
@@ -0,0 +1,173 @@
+package com.webmbt.mscript;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * A size-bounded, thread-safe cache used to hold parsed / validated MScript code.
+ * </p>
+ * <p>
+ * Eviction follows the <a href="http://en.wikipedia.org/wiki/Page_replacement_algorithm#Clock">CLOCK</a>
+ * (second-chance) approximation of LRU: every hit marks an entry as <em>referenced</em> and, whenever the cache grows
+ * past its maximum size, a <em>clock hand</em> sweeps the entries, evicting the first unreferenced one and giving the
+ * referenced ones a second chance. Unlike an access-ordered {@link java.util.LinkedHashMap}, reads never lock nor
+ * restructure anything, which matters since the same few scripts are typically looked up over and over again from
+ * many threads.
+ * </p>
+ *
+ * @param <K> key type, should be immutable and implement {@link Object#equals(Object)} and {@link Object#hashCode()}
+ * @param <V> value type
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class ScriptCache<K, V> {
+
+    private final int maximumSize;
+
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private Iterator<Map.Entry<K, Entry<V>>> clockHand; // guarded by evictionLock
+
+    /**
+     * @param maximumSize the maximum number of entries to keep; <code>0</code> disables caching altogether
+     */
+    public ScriptCache(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("the maximum size of a cache cannot be negative");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    public int getMaximumSize() { return maximumSize; }
+
+    public int size() { return size.get(); }
+
+    public long getHitCount() { return hitCount.get(); }
+
+    public long getMissCount() { return missCount.get(); }
+
+    public long getEvictionCount() { return evictionCount.get(); }
+
+    /**
+     * @return the value cached under <code>key</code> or <code>null</code> if there is no such value
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        if (!entry.referenced) { // avoid needlessly writing to (and invalidating) a shared cache line
+            entry.referenced = true;
+        }
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Caches <code>value</code> under <code>key</code> unless another value has already been cached under the same
+     * key (in a concurrent environment, for example, several threads may have concurrently computed the same value).
+     *
+     * @return the value that ends up cached under <code>key</code> and which should be used from now on
+     */
+    public V putIfAbsent(K key, V value) {
+        if (maximumSize == 0) {
+            return value;
+        }
+
+        Entry<V> entry = new Entry<>(value);
+        Entry<V> previous = entries.putIfAbsent(key, entry);
+        if (previous != null) {
+            previous.referenced = true;
+            return previous.value;
+        }
+
+        if (size.incrementAndGet() > maximumSize) {
+            evict();
+        }
+        return value;
+    }
+
+    /**
+     * Clears the cache under the eviction lock, so that no sweep runs meanwhile. Like eviction, it only counts the
+     * entries it actually removes, so that the size stays accurate despite concurrent insertions.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (entries.remove(entry.getKey(), entry.getValue())) {
+                    size.decrementAndGet();
+                }
+            }
+            clockHand = null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Only one thread at a time sweeps the cache; others simply carry on (the cache may then temporarily hold a few
+     * more entries than its maximum size). Every full sweep clears all reference marks so eviction needs at most two
+     * sweeps to make room.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            while (size.get() > maximumSize) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = entries.entrySet().iterator();
+                    if (!clockHand.hasNext()) {
+                        break;
+                    }
+                }
+
+                Map.Entry<K, Entry<V>> candidate = clockHand.next();
+                Entry<V> entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (entries.remove(candidate.getKey(), entry)) {
+                    size.decrementAndGet();
+                    evictionCount.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScriptCache[size=" + size() + "/" + maximumSize + ", hits=" + getHitCount() + ", misses=" +
+               getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+
+        volatile boolean referenced;
+
+        Entry(V value) { this.value = value; }
+    }
+}
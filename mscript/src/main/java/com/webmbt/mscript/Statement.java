@@ -0,0 +1,272 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * A statement in the compact, immutable tree an MScript script is {@link MScriptCompiler lowered} to. Statements
+ * evaluate {@link Node expression trees} and assign variables of the system functions object, by {@link Variables
+ * slot} whenever possible.
+ * </p>
+ * <p>
+ * Loop control does not rely on exceptions: {@link #exec(MScriptContext) executing} a statement returns a status
+ * telling the enclosing statements whether to go on ({@link #NORMAL}) or to unwind up to the targeted loop ({@link
+ * #BREAK}, {@link #CONTINUE}); the label of the targeted loop, if any, is held by the {@link MScriptContext#label
+ * context}.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+abstract class Statement {
+
+    static final int NORMAL = 0, BREAK = 1, CONTINUE = 2;
+
+    /** Position of the statement in the MScript source (line starting at 1, column at 0), for error reporting. */
+    final int line, column;
+
+    Statement(int line, int column) {
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @return {@link #NORMAL}, {@link #BREAK} or {@link #CONTINUE}
+     */
+    abstract int exec(MScriptContext ctx);
+
+    /**
+     * @return what the statement is, for {@link MScriptProfiler profiles} and {@link MScriptListener listeners}:
+     * <code>x =</code>, <code>call</code>, <code>if</code>, <code>while [label]</code>, <code>break</code>, etc.
+     */
+    abstract String kind();
+
+    /**
+     * @return the number of expression nodes evaluated once per execution of the statement (loop conditions are
+     * accounted for per iteration), for {@link MScriptLimits limits}
+     */
+    int nodes() { return 0; }
+
+    /**
+     * Executes a nested statement, within the {@link MScriptLimits limits} of the execution if any and in a frame of
+     * its own if execution is being {@link MScriptProfiler profiled} (blocks merely group statements and get no
+     * frame).
+     */
+    static int exec(Statement statement, MScriptContext ctx) {
+        MScriptLimits.Budget budget = ctx.budget;
+        if (budget != null) {
+            budget.evaluate(statement.nodes(), statement.line, statement.column);
+        }
+
+        MScriptProfiler.Recorder profiler = ctx.profiler;
+        if (profiler == null || statement instanceof Block) {
+            return statement.exec(ctx);
+        }
+
+        int depth = profiler.enter(statement);
+        try {
+            return statement.exec(ctx);
+        } finally {
+            profiler.exit(depth);
+        }
+    }
+
+    static final class Block extends Statement {
+
+        final Statement[] statements;
+
+        Block(int line, int column, Statement[] statements) {
+            super(line, column);
+            this.statements = statements;
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            for (Statement statement : statements) {
+                int status = exec(statement, ctx);
+                if (status != NORMAL) {
+                    return status;
+                }
+            }
+            return NORMAL;
+        }
+
+        @Override
+        String kind() { return "block"; }
+    }
+
+    static final class Assign extends Statement {
+
+        final String name; // interned
+
+        final int slot; // see Variables
+
+        final Node value;
+
+        final int nodes;
+
+        Assign(int line, int column, String name, Node value) {
+            super(line, column);
+            this.name = name.intern();
+            this.slot = Variables.slot(name);
+            this.value = value;
+            this.nodes = Node.size(value);
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            ctx.assign(this, slot, name, value.eval(ctx).asString());
+            return NORMAL;
+        }
+
+        @Override
+        int nodes() { return nodes; }
+
+        @Override
+        String kind() { return name + " ="; }
+    }
+
+    /** A function call statement; the value returned by the function is ignored. */
+    static final class Eval extends Statement {
+
+        final Node expression;
+
+        final int nodes;
+
+        Eval(int line, int column, Node expression) {
+            super(line, column);
+            this.expression = expression;
+            this.nodes = Node.size(expression);
+        }
+
+        @Override
+        int nodes() { return nodes; }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            expression.eval(ctx);
+            return NORMAL;
+        }
+
+        @Override
+        String kind() { return "call"; }
+    }
+
+    static final class If extends Statement {
+
+        final Node condition;
+
+        final Statement then, otherwise; // otherwise can be null
+
+        final int nodes;
+
+        If(int line, int column, Node condition, Statement then, Statement otherwise) {
+            super(line, column);
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+            this.nodes = Node.size(condition);
+        }
+
+        @Override
+        int nodes() { return nodes; }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            if (condition.eval(ctx).isTrue()) {
+                return exec(then, ctx);
+            }
+            return otherwise == null ? NORMAL : exec(otherwise, ctx);
+        }
+
+        @Override
+        String kind() { return "if"; }
+    }
+
+    /**
+     * A (possibly labeled) loop. If an index variable is specified, it is set to the number of iterations performed so
+     * far (starting at <code>0</code>) before every evaluation of the loop condition. If a maximum number of loops is
+     * specified, the loop ends after that many iterations, even if its condition still holds.
+     */
+    static final class While extends Statement {
+
+        final Node condition;
+
+        final String index; // can be null
+
+        final int indexSlot; // see Variables
+
+        final int maxLoopNum; // negative if not specified
+
+        final String label; // can be null
+
+        final Statement body;
+
+        final int conditionNodes;
+
+        While(int line, int column, Node condition, String index, int maxLoopNum, String label, Statement body) {
+            super(line, column);
+            this.condition = condition;
+            this.index = index == null ? null : index.intern();
+            this.indexSlot = index == null ? -1 : Variables.slot(index);
+            this.maxLoopNum = maxLoopNum;
+            this.label = label;
+            this.body = body;
+            this.conditionNodes = Node.size(condition);
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            for (int i = 0; maxLoopNum < 0 || i < maxLoopNum; i++) {
+                if (ctx.budget != null) {
+                    ctx.budget.iterate(conditionNodes, line, column);
+                }
+                if (index != null) {
+                    ctx.assign(this, indexSlot, index, Integer.toString(i));
+                }
+                if (!condition.eval(ctx).isTrue()) {
+                    break;
+                }
+                if (ctx.profiler != null) {
+                    ctx.profiler.iteration(i); // the last condition check is part of the last iteration
+                }
+
+                int status = exec(body, ctx);
+                if (status != NORMAL) {
+                    if (ctx.label != null && !ctx.label.equals(label)) {
+                        return status; // targets an enclosing loop
+                    }
+                    ctx.label = null;
+                    if (status == BREAK) {
+                        break;
+                    }
+                }
+            }
+            return NORMAL;
+        }
+
+        @Override
+        String kind() { return label == null ? "while" : "while " + label; }
+    }
+
+    /** <code>break</code> or <code>continue</code>, optionally targeting a labeled loop. */
+    static final class Jump extends Statement {
+
+        final int status;
+
+        final String label; // can be null
+
+        Jump(int line, int column, int status, String label) {
+            super(line, column);
+            this.status = status;
+            this.label = label;
+        }
+
+        @Override
+        int exec(MScriptContext ctx) {
+            ctx.label = label;
+            return status;
+        }
+
+        @Override
+        String kind() { return status == BREAK ? "break" : "continue"; }
+    }
+}
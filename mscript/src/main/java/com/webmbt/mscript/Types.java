@@ -60,4 +60,151 @@ public class Types {
     public static boolean isFalse(String value) {
         return "false".equals(value);
     }
+
+    /**
+     * Non-throwing counterpart of {@link #asNumber(String)}: whether <code>value</code> represents a boolean value or
+     * a <code>double</code> in any of the forms {@link Double#valueOf(String)} accepts (surrounding whitespace, signs,
+     * exponents, <code>NaN</code>, <code>Infinity</code>, hexadecimal floating-point literals and type suffixes
+     * included). When it returns <code>true</code>, {@link #asNumber(String)} is guaranteed to succeed.
+     *
+     * @throws NullPointerException if {@code value} is {@code null}, exactly like {@link #asNumber(String)}
+     */
+    public static boolean isNumber(String value) {
+        if (isTrue(value) || isFalse(value)) {
+            return true;
+        }
+
+        // Double.valueOf(String) ignores leading and trailing whitespace (i.e. characters <= ' '):
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int i = 0;
+        while (i < end && value.charAt(i) <= ' ') {
+            i++;
+        }
+
+        if (i < end && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+
+        char c = value.charAt(i);
+        if (c == 'N') {
+            return value.startsWith("NaN", i) && i + 3 == end;
+        }
+        if (c == 'I') {
+            return value.startsWith("Infinity", i) && i + 8 == end;
+        }
+        if (c == '0' && i + 1 < end && (value.charAt(i + 1) == 'x' || value.charAt(i + 1) == 'X')) {
+            return isHexNumber(value, i + 2, end);
+        }
+
+        // Digits [. Digits] | . Digits, then an optional exponent and type suffix:
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i = skipSignedDigits(value, i + 1, end);
+            if (i < 0) {
+                return false;
+            }
+        }
+        return i == end || i == end - 1 && isTypeSuffix(value.charAt(i));
+    }
+
+    /**
+     * <code>0x</code> / <code>0X</code> followed by <code>HexDigits [.]</code> or <code>[HexDigits] . HexDigits</code>,
+     * a mandatory binary exponent and an optional type suffix.
+     */
+    private static boolean isHexNumber(String value, int i, int end) {
+        int digits = 0;
+        while (i < end && isHexDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isHexDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0 || i == end || value.charAt(i) != 'p' && value.charAt(i) != 'P') {
+            return false;
+        }
+
+        i = skipSignedDigits(value, i + 1, end);
+        return i >= 0 && (i == end || i == end - 1 && isTypeSuffix(value.charAt(i)));
+    }
+
+    /**
+     * @return the position right after <code>[+-] Digits</code> or <code>-1</code> if there are no digits
+     */
+    private static int skipSignedDigits(String value, int i, int end) {
+        if (i < end && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+            i++;
+        }
+        int start = i;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+        }
+        return i == start ? -1 : i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isTypeSuffix(char c) {
+        return c == 'd' || c == 'D' || c == 'f' || c == 'F';
+    }
+
+    //
+    // Comparison operators: if both operands can be coerced to numeric values they are compared as numbers, otherwise
+    // they are compared as strings.
+    //
+
+    public static boolean isEqual(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) == asNumber(val2) : val1.equals(val2);
+    }
+
+    public static boolean isNotEqual(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) != asNumber(val2) : !val1.equals(val2);
+    }
+
+    public static boolean isLessOrEqual(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) <= asNumber(val2) : val1.compareTo(val2) <= 0;
+    }
+
+    public static boolean isLess(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) < asNumber(val2) : val1.compareTo(val2) < 0;
+    }
+
+    public static boolean isGreaterOrEqual(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) >= asNumber(val2) : val1.compareTo(val2) >= 0;
+    }
+
+    public static boolean isGreater(String val1, String val2) {
+        return isNumber(val1) && isNumber(val2) ? asNumber(val1) > asNumber(val2) : val1.compareTo(val2) > 0;
+    }
 }
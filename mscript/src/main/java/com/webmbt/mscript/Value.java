@@ -0,0 +1,185 @@
+package com.webmbt.mscript;
+
+/**
+ * <p>
+ * A (tagged) MScript runtime value: <em>null</em>, a <em>boolean</em>, a <em>number</em> or a <em>string</em>. Values
+ * flow between the operators of a {@link Node compiled MScript tree} so that, for example, evaluating
+ * <code>1 + 2 * 3</code> does not format intermediate results as strings only to parse them back right away. Values
+ * are converted to strings only at the boundaries: when calling (string-only) function implementations, when
+ * interpolating strings and when returning the result of an evaluation.
+ * </p>
+ * <p>
+ * Operations on values follow the (string-based) {@link Types coercion rules} and {@link
+ * com.webmbt.plugin.MbtScriptExecutor operator implementations} to the letter, quirks included: whenever formatting a
+ * number would lose information (e.g. <code>1.0E20</code> is formatted as <code>1</code>), the number is re-parsed
+ * from its formatted version, exactly like in a string-everywhere evaluation.
+ * </p>
+ * <p>
+ * String values find out whether they are numeric lazily, at most once. Values are therefore not thread-safe, unless
+ * {@link #isNumber() classified} before being shared (safely published), as {@link Node.Const constants} are. The
+ * class is public only because {@link BytecodeCompiler generated code} has to be able to use it.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class Value {
+
+    public static final Value NULL = new Value(Kind.NULL, null, 0);
+
+    public static final Value TRUE = new Value(Kind.BOOLEAN, "true", 1);
+
+    public static final Value FALSE = new Value(Kind.BOOLEAN, "false", 0);
+
+    /** The value of variables read without a system functions object and of calls to void functions. */
+    public static final Value NULL_STRING = of("null").classify();
+
+    public enum Kind {NULL, BOOLEAN, NUMBER, STRING}
+
+    private static final byte UNKNOWN = 0, NUMERIC = 1, NOT_NUMERIC = 2;
+
+    private final Kind kind;
+
+    private String text; // lazily formatted for numbers
+
+    private double number; // lazily parsed for strings
+
+    private byte numeric; // for strings: UNKNOWN until classified
+
+    private Value(Kind kind, String text, double number) {
+        this.kind = kind;
+        this.text = text;
+        this.number = number;
+        this.numeric = kind == Kind.STRING ? UNKNOWN : kind == Kind.NULL ? NOT_NUMERIC : NUMERIC;
+    }
+
+    /**
+     * @param value can be <code>null</code>
+     */
+    public static Value of(String value) {
+        return value == null ? NULL : new Value(Kind.STRING, value, 0);
+    }
+
+    public static Value of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static Value of(double value) {
+        // Types.asString(double) drops everything after the decimal point of integral values, including exponents:
+        if (value % 1 == 0 && Math.abs(value) >= 1e7) {
+            return of(Types.asString(value));
+        }
+        return new Value(Kind.NUMBER, null, value);
+    }
+
+    public Kind getKind() { return kind; }
+
+    /**
+     * Classifies the value (see {@link #isNumber()}) right away, typically before sharing it between threads.
+     */
+    Value classify() {
+        if (kind != Kind.NULL) {
+            isNumber();
+        }
+        return this;
+    }
+
+    /**
+     * @return whether the value can be coerced to a number (booleans always can)
+     * @throws NullPointerException if the value is {@link #NULL}, since the string-based coercion rules do not define
+     *                              a numeric value for <code>null</code>
+     */
+    public boolean isNumber() {
+        if (numeric == UNKNOWN) {
+            if (Types.isNumber(text)) {
+                number = Types.asNumber(text);
+                numeric = NUMERIC;
+            } else {
+                numeric = NOT_NUMERIC;
+            }
+        } else if (kind == Kind.NULL) {
+            throw new NullPointerException("Cannot coerce a null value to a number");
+        }
+        return numeric == NUMERIC;
+    }
+
+    /**
+     * @return whether the value is <code>true</code> or a non-zero number, i.e. whether an MScript condition with this
+     * value holds; <code>null</code> and non-numeric strings never hold
+     */
+    public boolean isTrue() {
+        return kind != Kind.NULL && isNumber() && number != 0;
+    }
+
+    /**
+     * @throws NullPointerException  if the value is {@link #NULL}
+     * @throws NumberFormatException if the value cannot be coerced to a number (same message as {@link
+     *                               Types#asNumber(String)})
+     */
+    public double asNumber() {
+        return isNumber() ? number : Types.asNumber(text);
+    }
+
+    /**
+     * @return the value as a string, <code>null</code> for {@link #NULL}
+     */
+    public String asString() {
+        if (text == null && kind == Kind.NUMBER) {
+            text = Types.asString(number);
+        }
+        return text;
+    }
+
+    //
+    // Arithmetic operators, as implemented by MbtScriptExecutor:
+    //
+
+    /**
+     * @return the sum of the two values if both are numeric, their concatenation otherwise
+     */
+    public Value add(Value other) {
+        return isNumber() && other.isNumber() ? of(number + other.number) : of(asString() + other.asString());
+    }
+
+    public Value sub(Value other) { return of(asNumber() - other.asNumber()); }
+
+    public Value mul(Value other) { return of(asNumber() * other.asNumber()); }
+
+    public Value div(Value other) { return of(asNumber() / other.asNumber()); }
+
+    public Value mod(Value other) { return of(asNumber() % other.asNumber()); }
+
+    public Value negate() { return of(-asNumber()); }
+
+    //
+    // Comparison operators: if both operands can be coerced to numeric values they are compared as numbers, otherwise
+    // they are compared as strings.
+    //
+
+    public boolean isEqual(Value other) {
+        return isNumber() && other.isNumber() ? number == other.number : asString().equals(other.asString());
+    }
+
+    public boolean isNotEqual(Value other) {
+        return isNumber() && other.isNumber() ? number != other.number : !asString().equals(other.asString());
+    }
+
+    public boolean isLessOrEqual(Value other) {
+        return isNumber() && other.isNumber() ? number <= other.number : asString().compareTo(other.asString()) <= 0;
+    }
+
+    public boolean isLess(Value other) {
+        return isNumber() && other.isNumber() ? number < other.number : asString().compareTo(other.asString()) < 0;
+    }
+
+    public boolean isGreaterOrEqual(Value other) {
+        return isNumber() && other.isNumber() ? number >= other.number : asString().compareTo(other.asString()) >= 0;
+    }
+
+    public boolean isGreater(Value other) {
+        return isNumber() && other.isNumber() ? number > other.number : asString().compareTo(other.asString()) > 0;
+    }
+
+    @Override
+    public String toString() { return kind + ":" + asString(); }
+}
@@ -0,0 +1,172 @@
+package com.webmbt.mscript;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * An array-backed MScript variable frame. Every variable name is assigned a process-wide <em>slot</em> (see {@link
+ * #slot(String)}) once and for all so that {@link Node compiled MScript code} can resolve variable names to slots at
+ * compile time and read or write variables with plain array accesses, in any frame. Host code and plugins keep using
+ * variable names (see {@link #get(String)}, {@link #set(String, String)}, etc.).
+ * </p>
+ * <p>
+ * Slots are never reclaimed: the slot table is shared by all the engines and scripts loaded with this class and
+ * retains every distinct variable name ever used (and one slot per name) until the class itself is unloaded. This is
+ * cheap as long as scripts use a bounded set of names (the usual case, where names come from the script sources), but
+ * hosts that build variable names from unbounded data (e.g. <code>"row" + i</code>) will see the table, and the frames
+ * using those names, grow accordingly. The slot table grows geometrically and is thread-safe; frames are not (one
+ * frame is meant to be used by one execution at a time).
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class Variables {
+
+    private static final ConcurrentMap<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+    // Indexed by slot and guarded by SLOTS for writes; only the first SLOTS.size() entries are used. A name is
+    // stored before its slot is published in SLOTS so that whoever gets hold of a slot also sees its name.
+    private static volatile String[] names = new String[16];
+
+    /** Marks undefined variables, distinguishing them from variables explicitly set to <code>null</code>. */
+    private static final String UNDEFINED = new String("<undefined>");
+
+    private String[] values = new String[0];
+
+    /**
+     * @return the slot assigned to <code>name</code>, assigning a new one if needed
+     */
+    public static int slot(String name) {
+        Integer slot = SLOTS.get(name);
+        if (slot != null) {
+            return slot;
+        }
+
+        synchronized (SLOTS) {
+            slot = SLOTS.get(name);
+            if (slot == null) {
+                slot = SLOTS.size();
+                if (slot == names.length) {
+                    names = Arrays.copyOf(names, slot * 2);
+                }
+                names[slot] = name.intern();
+                SLOTS.put(name, slot);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * @return the slot assigned to <code>name</code> or <code>-1</code> if no slot has been assigned to it yet (in
+     * which case the variable is undefined in all frames)
+     */
+    public static int slotOf(String name) {
+        Integer slot = SLOTS.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    public boolean isDefined(int slot) {
+        return slot >= 0 && slot < values.length && values[slot] != UNDEFINED;
+    }
+
+    /**
+     * @return the value of the variable in <code>slot</code> or <code>null</code> if undefined
+     */
+    public String get(int slot) {
+        if (slot < 0 || slot >= values.length) {
+            return null;
+        }
+        String value = values[slot];
+        return value == UNDEFINED ? null : value;
+    }
+
+    public void set(int slot, String value) {
+        if (slot >= values.length) { // frames only grow as far as the slots actually assigned in them
+            int length = values.length;
+            values = Arrays.copyOf(values, Math.max(slot + 1, length * 2));
+            Arrays.fill(values, length, values.length, UNDEFINED);
+        }
+        values[slot] = value;
+    }
+
+    public boolean isDefined(String name) { return isDefined(slotOf(name)); }
+
+    public String get(String name) { return get(slotOf(name)); }
+
+    public void set(String name, String value) { set(slot(name), value); }
+
+    public void remove(String name) {
+        int slot = slotOf(name);
+        if (slot >= 0 && slot < values.length) {
+            values[slot] = UNDEFINED;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(values, UNDEFINED);
+    }
+
+    /**
+     * @return a snapshot of the variables defined in this frame, by name, in slot order
+     */
+    public Map<String, String> asMap() {
+        String[] names = Variables.names;
+
+        Map<String, String> variables = new LinkedHashMap<>();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != UNDEFINED) {
+                variables.put(names[slot], values[slot]);
+            }
+        }
+        return variables;
+    }
+
+    /**
+     * @return a live, name-based view of this frame: reads and writes through the view read and write the frame,
+     * while iterating over the view iterates over a {@link #asMap() snapshot}
+     */
+    public Map<String, String> asLiveMap() {
+        return new AbstractMap<String, String>() {
+
+            @Override
+            public boolean containsKey(Object name) { return name instanceof String && isDefined((String) name); }
+
+            @Override
+            public String get(Object name) { return name instanceof String ? Variables.this.get((String) name) : null; }
+
+            @Override
+            public String put(String name, String value) {
+                String previous = Variables.this.get(name);
+                set(name, value);
+                return previous;
+            }
+
+            @Override
+            public String remove(Object name) {
+                if (!(name instanceof String)) {
+                    return null;
+                }
+                String previous = Variables.this.get((String) name);
+                Variables.this.remove((String) name);
+                return previous;
+            }
+
+            @Override
+            public void clear() { Variables.this.clear(); }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() { return Collections.unmodifiableMap(asMap()).entrySet(); }
+        };
+    }
+
+    @Override
+    public String toString() { return asMap().toString(); }
+}
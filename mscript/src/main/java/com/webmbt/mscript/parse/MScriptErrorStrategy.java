@@ -0,0 +1,31 @@
+package com.webmbt.mscript.parse;
+
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+
+/**
+ * The error strategy MScript code is parsed with: ANTLR's default error reporting and recovery, except that {@link
+ * MScriptRecognitionException MScript-specific errors} (thrown by the parser's semantic checks) are reported to the
+ * error listeners like any other syntax error instead of being printed to <code>System.err</code> as unknown
+ * recognition errors first.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptErrorStrategy extends DefaultErrorStrategy {
+
+    @Override
+    public void reportError(Parser recognizer, RecognitionException e) {
+        if (!(e instanceof MScriptRecognitionException)) {
+            super.reportError(recognizer, e);
+            return;
+        }
+
+        if (inErrorRecoveryMode(recognizer)) {
+            return; // don't report spurious errors
+        }
+        beginErrorCondition(recognizer);
+        recognizer.notifyErrorListeners(e.getOffendingToken(), e.getMessage(), e);
+    }
+}
@@ -0,0 +1,73 @@
+package com.webmbt.mscript.parse;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Retrieves the comments {@link MScriptLexer#setHiddenTrivia(boolean, boolean) hidden} from the parser (as trivia)
+ * when MScript code is lexed for execution only. Such comments are not part of the parse tree anymore but remain in
+ * the token stream, on the {@link Token#HIDDEN_CHANNEL hidden channel}; a comment is attached to the parse tree node it
+ * immediately precedes ({@link #leadingComments(BufferedTokenStream, ParseTree) leading} comments) or follows ({@link
+ * #trailingComments(BufferedTokenStream, ParseTree) trailing} comments).
+ * </p>
+ * <p>
+ * Tooling (e.g. the test rig) normally keeps comments in the parse tree and does not need these.
+ * </p>
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public final class MScriptTrivia {
+
+    private MScriptTrivia() {}
+
+    /**
+     * @param tokens the (already filled) token stream <code>tree</code> has been parsed from
+     * @return the hidden comments between <code>tree</code> and the previous non-hidden token
+     */
+    public static List<Token> leadingComments(BufferedTokenStream tokens, ParseTree tree) {
+        Token first =
+            tree instanceof TerminalNode ? ((TerminalNode) tree).getSymbol() : ((ParserRuleContext) tree).start;
+        return first == null ? Collections.<Token>emptyList() :
+               comments(tokens.getHiddenTokensToLeft(first.getTokenIndex(), Token.HIDDEN_CHANNEL));
+    }
+
+    /**
+     * @param tokens the (already filled) token stream <code>tree</code> has been parsed from
+     * @return the hidden comments between <code>tree</code> and the next non-hidden token
+     */
+    public static List<Token> trailingComments(BufferedTokenStream tokens, ParseTree tree) {
+        Token last = tree instanceof TerminalNode ? ((TerminalNode) tree).getSymbol() : ((ParserRuleContext) tree).stop;
+        return last == null ? Collections.<Token>emptyList() :
+               comments(tokens.getHiddenTokensToRight(last.getTokenIndex(), Token.HIDDEN_CHANNEL));
+    }
+
+    /**
+     * @return all the comments in an (already filled) token stream, hidden or not
+     */
+    public static List<Token> comments(BufferedTokenStream tokens) {
+        return comments(tokens.getTokens());
+    }
+
+    private static List<Token> comments(List<Token> tokens) {
+        if (tokens == null) {
+            return Collections.emptyList();
+        }
+
+        List<Token> comments = new ArrayList<>();
+        for (Token token : tokens) {
+            if (token.getType() == MScriptLexer.COMM) {
+                comments.add(token);
+            }
+        }
+        return comments;
+    }
+}
@@ -1,11 +1,13 @@
 package com.webmbt.plugin;
 
-import java.util.HashMap;
+import com.webmbt.mscript.Variables;
+
 import java.util.Map;
 import java.util.logging.Logger;
 
 import static com.webmbt.mscript.Types.asNumber;
 import static com.webmbt.mscript.Types.asString;
+import static com.webmbt.mscript.Types.isNumber;
 import static java.util.logging.Level.WARNING;
 
 /**
@@ -18,28 +20,43 @@ public class MbtScriptExecutor implements MScriptInterface {
 
     protected static final Logger LOG = Logger.getLogger(MbtScriptExecutor.class.getName());
 
-    protected Map<String, String> symbolTable = new HashMap<>();
+    protected final Variables variables = new Variables();
+
+    /**
+     * A name-based view of the {@link #variables}, which used to be held by a plain map. No longer assignable.
+     *
+     * @deprecated use {@link #variables} or {@link #getVar(String)} / {@link #setVar(String, String)} instead
+     */
+    @Deprecated
+    protected final Map<String, String> symbolTable = variables.asLiveMap();
+
+    /**
+     * Compiled MScript code accesses the variables frame directly (by slot), unless {@link #getVar(String)} or {@link
+     * #setVar(String, String)} are overridden.
+     */
+    public Variables getVariables() { return variables; }
 
     @MSCRIPT_METHOD
     public void setVar(String name, String value) {
-        symbolTable.put(name, value);
+        variables.set(name, value);
     }
 
     @MSCRIPT_METHOD
     public String getVar(String name) {
-        if (!symbolTable.containsKey(name)) {
+        int slot = Variables.slotOf(name);
+        if (!variables.isDefined(slot)) {
             LOG.log(WARNING, "Accessing undefined variable: " + name);
+            return null;
         }
-        return symbolTable.get(name);
+        return variables.get(slot);
     }
 
     @MSCRIPT_METHOD
     public String add(String val1, String val2) {
-        try {
+        if (isNumber(val1) && isNumber(val2)) {
             return asString(asNumber(val1) + asNumber(val2));
-        } catch (NumberFormatException nfe) { // if any of the conversions fail, just concatenate strings...
-            return val1 + val2;
         }
+        return val1 + val2; // if any of the conversions would fail, just concatenate strings...
     }
 
     @MSCRIPT_METHOD
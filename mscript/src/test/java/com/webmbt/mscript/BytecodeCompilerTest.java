@@ -0,0 +1,253 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptLexer;
+import com.webmbt.mscript.parse.MScriptParser;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class BytecodeCompilerTest {
+
+    protected Functions functions;
+
+    protected FunctionsFixture functionsFixture; // provides test system functions and plugins
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functions = new Functions();
+        functionsFixture = new FunctionsFixture();
+
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        systemFunctions.setVar("one", "1.0");
+        systemFunctions.setVar("two", "2.");
+        systemFunctions.setVar("mOne", "-1");
+        systemFunctions.setVar("s", "abc");
+    }
+
+    @After
+    public void tearDown() {
+        functionsFixture.tearDown();
+        functionsFixture = null;
+        functions.clearCache();
+        functions = null;
+    }
+
+    @Test
+    public void givenValidExpressionsThenBytecodeEvaluatesLikeTrees() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        MScriptContext ctx = new MScriptContext(systemFunctions, availablePlugins);
+
+        for (String expression : MScriptCompilerTest.EXPRESSIONS) {
+            Node root = compile(expression, availablePlugins);
+
+            MScriptBytecode bytecode =
+                new BytecodeCompiler(PluginSet.of(systemFunctions, availablePlugins)).compile(root);
+            assertNotNull(expression, bytecode);
+
+            assertEquals(expression, root.eval(ctx).asString(),
+                         bytecode.eval(systemFunctions, systemFunctions.getVariables(), availablePlugins).asString());
+        }
+    }
+
+    @Test
+    public void givenFailingFunctionThenBytecodeFailsLikeTheTree() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        Node root = compile("'x' + $rand('not a number')", availablePlugins);
+        MScriptBytecode bytecode = new BytecodeCompiler(PluginSet.of(systemFunctions, availablePlugins)).compile(root);
+
+        Function.CallException expected = null;
+        try {
+            root.eval(new MScriptContext(systemFunctions, availablePlugins));
+            fail("the evaluation should have failed");
+        } catch (Function.CallException ce) {
+            expected = ce;
+        }
+
+        try {
+            bytecode.eval(systemFunctions, systemFunctions.getVariables(), availablePlugins);
+            fail("the evaluation should have failed");
+        } catch (Function.CallException ce) {
+            assertSame(expected.getFunction(), ce.getFunction());
+            assertEquals(expected.toString(), ce.toString());
+
+            Throwable cause = ce.getCause();
+            assertTrue(cause instanceof NumberFormatException);
+            assertEquals("MScript", cause.getStackTrace()[findGenerated(cause.getStackTrace())].getFileName());
+        }
+    }
+
+    @Test
+    public void givenPluginFromAnotherClassLoaderThenItsReturnTypesAreResolvedThere() throws Exception {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = new ArrayList<>(functionsFixture.getAvailablePlugins());
+        ClassLoader isolated = new IsolatingClassLoader(IsolatedPlugin.class.getName(), getClass().getClassLoader());
+        Class<?> pluginClass = isolated.loadClass(IsolatedPlugin.class.getName());
+        assertNotSame(IsolatedPlugin.class, pluginClass);
+        availablePlugins.add(0, (PluginAncestor) pluginClass.newInstance());
+
+        Node root = compile("$isolated.token() + '!'", availablePlugins);
+        MScriptBytecode bytecode = new BytecodeCompiler(PluginSet.of(systemFunctions, availablePlugins)).compile(root);
+
+        assertNotNull(bytecode);
+        assertEquals("token!", bytecode.eval(systemFunctions, systemFunctions.getVariables(), availablePlugins)
+                                       .asString());
+        // The generated code must see the very classes the plugin sees, not the ones its parent class loader sees:
+        String tokenName = IsolatedPlugin.Token.class.getName();
+        assertSame(isolated.loadClass(tokenName), bytecode.getClass().getClassLoader().loadClass(tokenName));
+    }
+
+    @Test
+    public void givenNonPublicPluginThenExpressionIsNotCompiled() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = new ArrayList<>(functionsFixture.getAvailablePlugins());
+        availablePlugins.add(0, new HiddenPlugin());
+
+        Node root = compile("$hidden.hello() + 1", availablePlugins);
+
+        assertNull(new BytecodeCompiler(PluginSet.of(systemFunctions, availablePlugins)).compile(root));
+    }
+
+    @Test
+    public void givenHotExpressionThenCompiledScriptSwitchesToBytecode() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        MScriptContext ctx = new MScriptContext(systemFunctions, availablePlugins);
+
+        Node root = compile("'[one + 1]$g(s)'", availablePlugins);
+        CompiledMScript compiled =
+            new CompiledMScript("'[one + 1]$g(s)'", PluginSet.of(systemFunctions, availablePlugins), root, null, null,
+                                2);
+
+        assertEquals("2abc", compiled.execute(ctx, 2));
+        assertEquals("2abc", compiled.execute(ctx, 2));
+        assertSame(root, compiled.getExecutable());
+
+        assertEquals("2abc", compiled.execute(ctx, 2));
+        assertTrue(compiled.getExecutable() instanceof Node.Compiled);
+    }
+
+    @Test
+    public void givenHotScriptThenItsExpressionsSwitchToBytecode() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        String script = "s = ''\nwhile (true | i; 3) { if (i > 0) s = s + ','; s = s + $g(i + 1) }";
+        MScriptEngine mScriptEngine = new MScriptEngine().setCompileThreshold(1);
+
+        CompiledMScript compiled = mScriptEngine.compileScript(script, systemFunctions, availablePlugins);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("", mScriptEngine.executeScript(script, systemFunctions, availablePlugins));
+            assertEquals("1,2,3", systemFunctions.getVar("s"));
+            assertEquals(i == 0, compiled.getExecutableScript() == compiled.getScript());
+        }
+
+        Statement.While loop = (Statement.While) ((Statement.Block) compiled.getExecutableScript()).statements[1];
+        assertTrue(loop.condition instanceof Node.Const); // not worth compiling
+        Statement[] body = ((Statement.Block) loop.body).statements;
+        assertTrue(((Statement.If) body[0]).condition instanceof Node.Compiled);
+        assertTrue(((Statement.Assign) body[1]).value instanceof Node.Compiled);
+    }
+
+    protected Node compile(String expression, List<PluginAncestor> availablePlugins) {
+        MScriptParser mScriptParser =
+            new MScriptParser(new CommonTokenStream(new MScriptLexer(new ANTLRInputStream(expression))));
+        return new MScriptCompiler(functions, functionsFixture.getSystemFunctions(), availablePlugins)
+            .visit(mScriptParser.cond());
+    }
+
+    private static int findGenerated(StackTraceElement[] stackTrace) {
+        for (int i = 0; i < stackTrace.length; i++) {
+            if (stackTrace[i].getClassName().startsWith("com.webmbt.mscript.generated.")) {
+                return i;
+            }
+        }
+        throw new AssertionError("no generated class in the stack trace");
+    }
+
+    public static class IsolatedPlugin extends PluginAncestor {
+
+        public static class Token {
+
+            @Override
+            public String toString() { return "token"; }
+        }
+
+        @Override
+        public String getPluginID() { return "isolated"; }
+
+        @MSCRIPT_METHOD
+        public Token token() { return new Token(); }
+    }
+
+    /**
+     * Loads the classes whose names start with a given prefix itself (rather than delegating to its parent first).
+     */
+    static class IsolatingClassLoader extends ClassLoader {
+
+        private final String prefix;
+
+        IsolatingClassLoader(String prefix, ClassLoader parent) {
+            super(parent);
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(prefix)) {
+                return super.loadClass(name, resolve);
+            }
+
+            Class<?> klass = findLoadedClass(name);
+            if (klass == null) {
+                try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    if (in == null) {
+                        throw new ClassNotFoundException(name);
+                    }
+                    ByteArrayOutputStream bytecode = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    for (int read; (read = in.read(buffer)) > 0; ) {
+                        bytecode.write(buffer, 0, read);
+                    }
+                    klass = defineClass(name, bytecode.toByteArray(), 0, bytecode.size());
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+            return klass;
+        }
+    }
+
+    static class HiddenPlugin extends PluginAncestor {
+
+        @Override
+        public String getPluginID() { return "hidden"; }
+
+        @MSCRIPT_METHOD
+        public String hello() { return "hello"; }
+    }
+}
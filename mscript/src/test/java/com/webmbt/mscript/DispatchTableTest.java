@@ -0,0 +1,159 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.DataGenPlugin;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.webmbt.mscript.Functions.Lookup;
+import static com.webmbt.plugin.MScriptInterface.MSCRIPT_METHOD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class DispatchTableTest {
+
+    protected Functions functions;
+
+    protected FunctionsFixture fixture;
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functions = new Functions();
+        fixture = new FunctionsFixture();
+    }
+
+    @After
+    public void tearDown() {
+        fixture.tearDown();
+        fixture = null;
+        functions.clearCache();
+        functions = null;
+    }
+
+    @Test
+    public void givenSamePluginSetShapeThenDispatchTableIsShared() throws IllegalAccessException,
+                                                                          InstantiationException {
+        DispatchTable dispatchTable =
+            functions.dispatchTable(fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+
+        FunctionsFixture other = new FunctionsFixture();
+        assertSame(dispatchTable, functions.dispatchTable(other.getSystemFunctions(), other.getAvailablePlugins()));
+        assertNotSame(dispatchTable, functions.dispatchTable(other.getSystemFunctions(), null));
+        other.tearDown();
+    }
+
+    @Test
+    public void givenDispatchTableThenLookupsMatchFunctionsLookups() {
+        List<PluginAncestor> availablePlugins = fixture.getAvailablePlugins();
+        DispatchTable dispatchTable = functions.dispatchTable(fixture.getSystemFunctions(), availablePlugins);
+
+        String[][] calls = {{null, "f", "0"}, {null, "h", "3"}, {null, "h", "4"}, {null, "lowerCase", "1"},
+                            {null, "getTitle", "1"}, {null, "fooBar", "0"}, {"dataGen", "lowerCase", "1"},
+                            {"dataGen", "lowerCase", "0"}, {"dataGen", "fooBar", "0"}, {"web", "_nativeFunc1", "0"},
+                            {"foo", "bar", "0"}};
+        for (String[] call : calls) {
+            int argc = Integer.parseInt(call[2]);
+            Lookup expected = functions.lookup(call[0], call[1], argc, fixture.getSystemFunctions(), availablePlugins);
+            Lookup actual = dispatchTable.lookup(call[0], call[1], argc);
+
+            assertEquals(call[0] + "." + call[1] + "/" + argc, expected.result, actual.result);
+            if (expected.function == null) {
+                assertNull(actual.function);
+            } else {
+                assertEquals(expected.function.toString(), actual.function.toString());
+            }
+        }
+    }
+
+    @Test
+    public void givenFoundFunctionThenEntryIsReusedAndInvokesTheRightTarget() {
+        List<PluginAncestor> availablePlugins = fixture.getAvailablePlugins();
+        DispatchTable dispatchTable = functions.dispatchTable(fixture.getSystemFunctions(), availablePlugins);
+
+        DispatchTable.Entry entry = dispatchTable.entry(null, "upperCase", 1);
+        assertSame(entry, dispatchTable.lookup("dataGen", "upperCase", 1));
+        assertTrue(entry.plugin >= 0);
+        assertSame(availablePlugins.get(entry.plugin), entry.target(fixture.getSystemFunctions(), availablePlugins));
+        assertEquals("ABC", entry.invoke(fixture.getSystemFunctions(), availablePlugins, "abc"));
+
+        assertNull(dispatchTable.entry("dataGen", "upperCase", 2));
+    }
+
+    @Test
+    public void givenGeneratedRegistryThenItIsUsedInsteadOfReflection() throws NoSuchMethodException {
+        FunctionRegistry registry = Functions.registryOf(DataGenPlugin.class);
+        assertNotNull("The test plugins should have been processed at build time", registry);
+        assertSame(DataGenPlugin.class, registry.type());
+
+        DispatchTable.Entry entry = functions.dispatchTable(fixture.getSystemFunctions(), fixture.getAvailablePlugins())
+                                             .entry("dataGen", "lowerCase", 1);
+        assertEquals("abc", entry.invoke(fixture.getSystemFunctions(), fixture.getAvailablePlugins(), "ABC"));
+        assertEquals(DataGenPlugin.class.getMethod("lowerCase", String.class), entry.implementation.getMethod());
+    }
+
+    @Test
+    public void givenOutOfDateRegistryThenReflectionIsUsedInstead() {
+        assertNull(Functions.registryOf(StalePlugin.class));
+
+        List<String> names = new ArrayList<>();
+        for (Functions.Discovered discovered : Functions.implementationsOf(StalePlugin.class)) {
+            names.add(discovered.name);
+        }
+        Collections.sort(names);
+        assertEquals(Arrays.asList("_getPluginID", "added", "kept"), names);
+    }
+
+    /** Not public, so that it does not get a registry generated at build time. */
+    static class StalePlugin extends PluginAncestor {
+
+        @Override
+        public String getPluginID() { return "stale"; }
+
+        @MSCRIPT_METHOD
+        public String kept(String arg) { return arg; }
+
+        @MSCRIPT_METHOD
+        public String added(String arg) { return arg; }
+    }
+
+    /** What the registry of {@link StalePlugin} looked like before {@link StalePlugin#added(String)} was added. */
+    static class StalePlugin$MScriptFunctions implements FunctionRegistry {
+
+        private static final String[] NAMES = {"_getPluginID", "kept"}, METHOD_NAMES = {"getPluginID", "kept"};
+
+        @Override
+        public Class<?> type() { return StalePlugin.class; }
+
+        @Override
+        public int size() { return NAMES.length; }
+
+        @Override
+        public String name(int function) { return NAMES[function]; }
+
+        @Override
+        public String methodName(int function) { return METHOD_NAMES[function]; }
+
+        @Override
+        public int arity(int function) { return function; }
+
+        @Override
+        public Object invoke(int function, Object target, String[] args) {
+            return function == 0 ? ((StalePlugin) target).getPluginID() : ((StalePlugin) target).kept(args[0]);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.webmbt.mscript;
 
 import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
 import com.webmbt.plugin.PluginAncestor;
 import org.junit.After;
 import org.junit.Before;
@@ -137,4 +138,123 @@ public class FunctionLookupTest {
         assertNotNull(function);
         assertSame(lookup.function, function);
     }
+
+    @Test
+    public void givenFoundFunctionThenLookupCallsItOnTheObjectItWasFoundOn() throws Exception {
+        Lookup lookup =
+            functions.lookup("dataGen", "upperCase", 1, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        assertSame(fixture.getAvailablePlugins().get(0), lookup.target);
+        assertEquals("ABC", lookup.call("abc"));
+
+        lookup = functions.lookup(null, "g", 1, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        assertSame(fixture.getSystemFunctions(), lookup.target);
+        assertEquals("a", lookup.call("a"));
+
+        // Cached lookups are shared, yet every lookup gets bound to the objects it has been made against:
+        FunctionsFixture other = new FunctionsFixture();
+        for (int i = 0; i < 2; i++) {
+            lookup =
+                functions.lookup(null, "upperCase", 1, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+            assertSame(fixture.getAvailablePlugins().get(0), lookup.target);
+
+            lookup = functions.lookup(null, "upperCase", 1, other.getSystemFunctions(), other.getAvailablePlugins());
+            assertSame(other.getAvailablePlugins().get(0), lookup.target);
+            assertEquals("ABC", lookup.call("abc"));
+        }
+        other.tearDown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void givenMissingFunctionThenLookupCannotBeCalled() {
+        functions.lookup("dataGen", "fooBar", 0, fixture.getSystemFunctions(), fixture.getAvailablePlugins()).call();
+    }
+
+    @Test
+    public void givenRepeatedLookupsThenClassesAreNotScannedAgain() {
+        final int[] scans = {0};
+        functions = new Functions() {
+
+            @Override
+            protected Lookup lookupAndCache(String pluginName, String functionName, int argsNumber,
+                                            Object targetOrClass) {
+                scans[0]++;
+                return super.lookupAndCache(pluginName, functionName, argsNumber, targetOrClass);
+            }
+        };
+
+        String[][] lookups = {{null, "lowerCase", "1"}, {null, "fooBar", "0"}, {"dataGen", "fooBar", "0"},
+                              {"dataGen", "lowerCase", "2"}};
+        for (String[] lookup : lookups) {
+            functions.lookup(lookup[0], lookup[1], Integer.parseInt(lookup[2]), fixture.getSystemFunctions(),
+                             fixture.getAvailablePlugins());
+        }
+        int scansAfterFirstRound = scans[0];
+
+        for (String[] lookup : lookups) {
+            functions.lookup(lookup[0], lookup[1], Integer.parseInt(lookup[2]), fixture.getSystemFunctions(),
+                             fixture.getAvailablePlugins());
+        }
+        assertEquals(scansAfterFirstRound, scans[0]);
+
+        Lookup lookup =
+            functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        Lookup again =
+            functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        assertSame(lookup.function, again.function);
+        assertSame(lookup.target, again.target);
+
+        // A different plugin set has an index of unqualified names of its own:
+        lookup = functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), null);
+        assertEquals(Lookup.Result.E_FUNCTION_NOT_FOUND, lookup.result);
+    }
+
+    @Test
+    public void givenAlternatingSystemFunctionsClassesThenNeitherIsScannedAgain() {
+        final int[] scans = {0};
+        functions = new Functions() {
+
+            @Override
+            protected Lookup lookupAndCache(String pluginName, String functionName, int argsNumber,
+                                            Object targetOrClass) {
+                scans[0]++;
+                return super.lookupAndCache(pluginName, functionName, argsNumber, targetOrClass);
+            }
+        };
+        MbtScriptExecutor[] systemFunctions = {fixture.getSystemFunctions(), new MbtScriptExecutor() {}};
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(Lookup.Result.E_FUNCTION_NOT_FOUND,
+                         functions.lookupOrCache(null, "fooBar", 0, systemFunctions[i % 2]).result);
+        }
+        assertEquals(2, scans[0]);
+    }
+
+    @Test
+    public void givenAlternatingPluginSetsThenUnqualifiedNamesAreNotResolvedAgain() {
+        final int[] resolutions = {0};
+        functions = new Functions() {
+
+            @Override
+            protected Lookup lookupUnqualified(String functionName, int argsNumber, MbtScriptExecutor systemFunctions,
+                                               List<PluginAncestor> availablePlugins) {
+                resolutions[0]++;
+                return super.lookupUnqualified(functionName, argsNumber, systemFunctions, availablePlugins);
+            }
+        };
+        List<PluginAncestor> somePlugins = fixture.getAvailablePlugins().subList(0, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Lookup.Result.FOUND, functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(),
+                                                               fixture.getAvailablePlugins()).result);
+            assertEquals(Lookup.Result.FOUND,
+                         functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), somePlugins).result);
+            assertEquals(Lookup.Result.E_FUNCTION_NOT_FOUND,
+                         functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), null).result);
+        }
+        assertEquals(3, resolutions[0]);
+
+        functions.clearCache();
+        functions.lookup(null, "lowerCase", 1, fixture.getSystemFunctions(), null);
+        assertEquals(4, resolutions[0]);
+    }
 }
@@ -0,0 +1,157 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class FunctionMetricsTest {
+
+    protected FunctionsFixture functionsFixture;
+
+    protected FunctionMetrics metrics = FunctionMetrics.getInstance();
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functionsFixture = new FunctionsFixture();
+        metrics.reset();
+        metrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+        functionsFixture.tearDown();
+        functionsFixture = null;
+    }
+
+    public static String boom(String arg) { throw new IllegalStateException(arg); }
+
+    @Test
+    public void givenMetricsEnabledThenCallsAreCountedAndTimedPerFunction() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        MScriptEngine mScriptEngine = new MScriptEngine().setCompileThreshold(0); // calls in bytecode are measured too
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("a", mScriptEngine.executeMScript("$g('a')", systemFunctions, availablePlugins));
+            mScriptEngine.executeMScript(i % 2 == 0 ? "$upperCase('a')" : "$dataGen.upperCase('a')", systemFunctions,
+                                         availablePlugins);
+        }
+        Function boom = new Function("boom", "test").addImplementation(getClass().getMethod("boom", String.class));
+        try {
+            boom.invoke(null, "x");
+            fail("$test.boom() should have failed");
+        } catch (Function.CallException expected) {
+            // counted as an error
+        }
+
+        FunctionMetrics.CallStats g = metrics.getCallStats("$g");
+        assertEquals(10, g.getCalls());
+        assertEquals(0, g.getErrors());
+        assertEquals(10, metrics.getCallStats("$dataGen.upperCase").getCalls());
+        assertEquals(1, metrics.getCallStats("$test.boom").getErrors());
+        assertEquals(3, metrics.getCallStats().size());
+
+        assertTrue(g.toString(), g.getTotalNanos() > 0);
+        assertTrue(g.toString(), g.getP50Nanos() <= g.getP90Nanos() && g.getP90Nanos() <= g.getP99Nanos() &&
+                                 g.getP99Nanos() <= g.getMaxNanos());
+        assertTrue(g.toString(), g.getMeanNanos() <= g.getMaxNanos());
+    }
+
+    @Test
+    public void givenMetricsDisabledThenNothingIsRecorded() throws Throwable {
+        metrics.setEnabled(false);
+
+        new MScriptEngine().executeMScript("$f()", functionsFixture.getSystemFunctions(),
+                                           functionsFixture.getAvailablePlugins());
+        new Functions().lookup("dataGen", "upperCase", 1, functionsFixture.getSystemFunctions(),
+                               functionsFixture.getAvailablePlugins());
+
+        FunctionMetrics.CallStats f = metrics.getCallStats("$f");
+        assertTrue(f == null || f.getCalls() == 0);
+        assertEquals(0, metrics.getLookupCount());
+        assertEquals(0, metrics.getLookupCacheMissCount());
+        assertEquals(0, metrics.getDispatchTableCacheMissCount());
+    }
+
+    @Test
+    public void givenLookupsThenCacheHitsAndMissesAreCounted() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        Functions functions = new Functions();
+
+        functions.lookup("dataGen", "upperCase", 1, systemFunctions, availablePlugins); // scans DataGenPlugin
+        functions.lookup("dataGen", "upperCase", 1, systemFunctions, availablePlugins);
+        functions.lookup("dataGen", "missing", 1, systemFunctions, availablePlugins); // no need to scan it again
+        assertEquals(3, metrics.getLookupCount());
+        assertEquals(2, metrics.getLookupCacheHitCount());
+        assertEquals(1, metrics.getLookupCacheMissCount());
+
+        functions.dispatchTable(systemFunctions, availablePlugins);
+        functions.dispatchTable(systemFunctions, availablePlugins);
+        assertEquals(1, metrics.getDispatchTableCacheHitCount());
+        assertEquals(1, metrics.getDispatchTableCacheMissCount());
+    }
+
+    @Test
+    public void givenRegisteredMBeanThenMetricsCanBeReadAndControlledOverJmx() throws Throwable {
+        ObjectName name = FunctionMetrics.registerMBean();
+        assertEquals(name, FunctionMetrics.registerMBean());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        new MScriptEngine().executeMScript("$f()", functionsFixture.getSystemFunctions(),
+                                           functionsFixture.getAvailablePlugins());
+
+        CompositeData[] callStats = (CompositeData[]) server.getAttribute(name, "CallStats");
+        assertEquals(1, callStats.length);
+        assertEquals("$f", callStats[0].get("function"));
+        assertEquals(1L, callStats[0].get("calls"));
+        assertNotNull(callStats[0].get("p99Nanos"));
+        assertEquals(1L, server.getAttribute(name, "DispatchTableCacheMissCount"));
+
+        server.setAttribute(name, new Attribute("Enabled", false));
+        assertFalse(metrics.isEnabled());
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, ((CompositeData[]) server.getAttribute(name, "CallStats")).length);
+    }
+
+    @Test
+    public void givenLatenciesThenHistogramBucketsAreWithinPrecision() {
+        Random random = new Random(42);
+        int previous = -1;
+        for (long nanos = 0; nanos < 100000; nanos++) {
+            int bucket = FunctionMetrics.Recorder.bucket(nanos);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            previous = bucket;
+        }
+        for (int i = 0; i < 100000; i++) {
+            long nanos = random.nextLong() & FunctionMetrics.Recorder.MAX_NANOS;
+            int bucket = FunctionMetrics.Recorder.bucket(nanos);
+            long highest = FunctionMetrics.Recorder.highestValue(bucket);
+            assertTrue(bucket < FunctionMetrics.Recorder.BUCKETS);
+            assertTrue(nanos + " in " + bucket, nanos <= highest && highest <= nanos + nanos / 8);
+        }
+    }
+}
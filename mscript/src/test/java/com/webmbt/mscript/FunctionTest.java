@@ -3,8 +3,11 @@ package com.webmbt.mscript;
 import com.webmbt.plugin.PluginAncestor;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author TestOptimal, LLC
@@ -30,6 +33,28 @@ public class FunctionTest {
         public void f2(String param0, String... params) {}
     }
 
+    public static class CallTestPlugin extends PluginAncestor {
+
+        private final String id;
+
+        public CallTestPlugin(String id) { this.id = id; }
+
+        @Override
+        public String getPluginID() { return id; }
+
+        public String f() { return id; }
+
+        public String f(String param0) { return id + param0; }
+
+        public int f(String param0, String param1) { return param0.length() + param1.length(); }
+
+        public void f(String param0, String param1, String param2) {}
+
+        public static boolean f(String param0, String param1, String param2, String param3) { return true; }
+
+        public String fail(String message) { throw new IllegalStateException(message); }
+    }
+
     private FunctionTestPlugin functionTestPlugin = new FunctionTestPlugin();
 
     @Test
@@ -75,4 +100,74 @@ public class FunctionTest {
         assertTrue(function.hasImplementation(0));
         assertTrue(function.hasImplementation(2));
     }
+
+    @Test
+    public void arityEntryPointsInvokeImplementationsOnProvidedTargets() throws NoSuchMethodException {
+        Function function = new Function("f", "ct");
+        function.addImplementation(CallTestPlugin.class.getMethod("f"));
+        function.addImplementation(CallTestPlugin.class.getMethod("f", String.class));
+        function.addImplementation(CallTestPlugin.class.getMethod("f", String.class, String.class));
+        function.addImplementation(CallTestPlugin.class.getMethod("f", String.class, String.class, String.class));
+        function.addImplementation(
+            CallTestPlugin.class.getMethod("f", String.class, String.class, String.class, String.class));
+
+        CallTestPlugin a = new CallTestPlugin("a"), b = new CallTestPlugin("b");
+
+        assertEquals("a", function.call0(a));
+        assertEquals("b", function.call0(b));
+        assertEquals("bx", function.call1(b, "x"));
+        assertEquals("4", function.call2(a, "xy", "zt"));
+        assertEquals("null", function.call3(a, "x", "y", "z"));
+        assertEquals("true", function.invoke(null, "x", "y", "z", "t")); // static implementation
+        assertEquals("4", function.invoke(b, "xy", "zt"));
+    }
+
+    @Test
+    public void callFailuresAreReportedAsCallExceptionsWrappingTheRealCause() throws NoSuchMethodException {
+        Function function = new Function("fail", "ct");
+        function.addImplementation(CallTestPlugin.class.getMethod("fail", String.class));
+
+        try {
+            function.call1(new CallTestPlugin("a"), "boom");
+            fail("the call should have failed");
+        } catch (Function.CallException ce) {
+            assertSame(function, ce.getFunction());
+            assertTrue(ce.getCause() instanceof IllegalStateException);
+            assertEquals("boom", ce.getCause().getMessage());
+        }
+
+        try {
+            function.call2(new CallTestPlugin("a"), "boom", "again");
+            fail("the call should have failed");
+        } catch (Function.CallException ce) {
+            assertSame(function, ce.getFunction());
+            assertEquals(null, ce.getCause());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void givenNoTargetThenDeprecatedCallFailsImmediately() throws NoSuchMethodException {
+        Function function = new Function("f", "ct");
+        function.addImplementation(CallTestPlugin.class.getMethod("f"));
+        function.addImplementation(CallTestPlugin.class.getMethod("f", String.class, String.class),
+                                   new CallTestPlugin("b"));
+        function.addImplementation(CallTestPlugin.class.getMethod("f", String.class, String.class, String.class,
+                                                                  String.class));
+
+        try {
+            function.call();
+            fail("the call should have failed");
+        } catch (IllegalStateException ise) {
+            assertTrue(ise.getMessage().contains("invoke(Object, String...)"));
+        }
+        assertEquals("4", function.call("xy", "zt"));
+        assertEquals("true", function.call("x", "y", "z", "t")); // static implementation
+
+        try {
+            function.getImplementation(0).setTarget(new CallTestPlugin("a"));
+            fail("implementations should not accept a target anymore");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
 }
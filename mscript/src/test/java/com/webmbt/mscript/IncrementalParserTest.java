@@ -0,0 +1,158 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class IncrementalParserTest {
+
+    protected Functions functions;
+
+    protected FunctionsFixture fixture;
+
+    protected DispatchTable dispatchTable;
+
+    protected MScriptEngine mScriptEngine;
+
+    protected String mScript;
+
+    private PrintStream stderr;
+
+    private ByteArrayOutputStream errOutput; // whatever the parsers write to System.err
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException, IOException {
+        stderr = System.err;
+        errOutput = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errOutput, true));
+
+        mScriptEngine = new MScriptEngine();
+        functions = new Functions();
+        fixture = new FunctionsFixture();
+        dispatchTable = functions.dispatchTable(fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        mScript = new String(Files.readAllBytes(Paths.get("mscript", "04-large.mscript")), StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void tearDown() {
+        System.setErr(stderr);
+        assertEquals("", errOutput.toString());
+
+        fixture.tearDown();
+        fixture = null;
+        functions.clearCache();
+        functions = null;
+    }
+
+    @Test
+    public void givenLocalEditThenOnlyTheEditedStatementIsParsedAgain() {
+        IncrementalParser parser = new IncrementalParser(dispatchTable);
+        IncrementalParser.Result initial = parser.update(mScript);
+        assertEquals(initial.tokens.size(), initial.reparsedTokens);
+
+        String edited = mScript.replaceFirst("var2 = var1", "var2 = var1 * 2");
+        IncrementalParser.Result result = parser.update(edited);
+
+        assertTrue(result.reparsedTokens + " token(s) parsed again", result.reparsedTokens < result.tokens.size() / 10);
+        assertEquivalentToFullParse(result);
+        assertSame(initial.segments.get(0), result.segments.get(0));
+        assertSame(initial.segments.get(initial.segments.size() - 2).statement,
+                   result.segments.get(result.segments.size() - 2).statement);
+    }
+
+    @Test
+    public void givenRandomEditsThenIncrementalParsesMatchFullParses() {
+        String[] insertions = {"\n", ";", " + 1", "a = 2\n", "else ", "if (v) ", "}", "{", "//", "/* c */", "$g(1)",
+                               "break", "while (i < 2) ", "x", "'"};
+        Random random = new Random(42);
+        IncrementalParser parser = new IncrementalParser(dispatchTable);
+        parser.update(mScript);
+
+        long reparsed = 0, total = 0;
+        for (int edit = 0; edit < 300; edit++) { // each edit is typed in and then undone
+            int at = random.nextInt(mScript.length() + 1);
+            String text = random.nextBoolean() ?
+                          mScript.substring(0, at) + insertions[random.nextInt(insertions.length)] +
+                          mScript.substring(at) :
+                          mScript.substring(0, at) +
+                          mScript.substring(Math.min(mScript.length(), at + random.nextInt(12)));
+
+            for (String version : new String[]{text, mScript}) {
+                IncrementalParser.Result result = parser.update(version);
+                assertEquivalentToFullParse(result);
+                reparsed += result.reparsedTokens;
+                total += result.tokens.size();
+            }
+        }
+        assertTrue(reparsed + " out of " + total + " token(s) parsed again", reparsed < total / 2);
+    }
+
+    @Test
+    public void givenInterruptedUpdateThenItIsCancelledAndThePreviousParseIsKept() {
+        IncrementalParser parser = new IncrementalParser(dispatchTable);
+        IncrementalParser.Result initial = parser.update(mScript);
+
+        Thread.currentThread().interrupt();
+        try {
+            parser.update(mScript + "\n$foo.bar()");
+            fail("An interrupted update should be cancelled");
+        } catch (CancellationException expected) {
+            assertTrue(Thread.interrupted()); // also clears the interrupted status
+        }
+
+        IncrementalParser.Result result = parser.update(mScript + "\n$foo.bar()");
+        assertSame(initial.segments.get(0), result.segments.get(0));
+        assertEquals("E_PLUGIN_NOT_FOUND", result.errors.get(result.errors.size() - 1).code);
+        assertEquivalentToFullParse(result);
+    }
+
+    private void assertEquivalentToFullParse(IncrementalParser.Result result) {
+        IncrementalParser.Result full = new IncrementalParser(dispatchTable).update(result.text);
+
+        assertEquals(result.text, statements(full), statements(result));
+        assertEquals(result.text, errors(full), errors(result));
+        assertEquals("", errOutput.toString()); // errors are only reported through the results
+
+        List<MScriptError> expected =
+            mScriptEngine.checkMScript(result.text, fixture.getSystemFunctions(), fixture.getAvailablePlugins());
+        errOutput.reset(); // the engine's parsers also report errors to the console
+        assertEquals(result.text, expected.toString(), result.errors.toString());
+    }
+
+    private static List<String> statements(IncrementalParser.Result result) {
+        List<String> statements = new ArrayList<>();
+        for (IncrementalParser.Segment segment : result.segments) {
+            statements.add(segment.gap + ":" + (segment.statement == null ? null : segment.statement.getText()));
+        }
+        return statements;
+    }
+
+    private static List<String> errors(IncrementalParser.Result result) {
+        List<String> errors = new ArrayList<>();
+        for (MScriptError error : result.errors) {
+            errors.add(error.toString());
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,184 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected FunctionsFixture functionsFixture; // provides test system functions and plugins
+
+    protected MScriptEngine mScriptEngine;
+
+    protected static final String[] SCRIPTS = {//@fmt:off
+        "s = ''\n" +
+        "while (true | index = i; label = outer) {\n" +
+        "  while (true | j; 10) {\n" +
+        "    if (j == 2) continue outer\n" +
+        "    if (i == 2) break outer\n" +
+        "    s = s + '[i]:[j],'\n" +
+        "  }\n" +
+        "}",
+        "n = 0; while (n < 10) { n = n + 1; if (n % 2) continue; if (n > 6) break }; else_n = -n",
+        "$web.click('f1'); t = '$dataGen.upperCase(s)x[n * 2]'; if (t != '') { u = $g(t) } else { u = 0 }",
+    };//@fmt:on
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functionsFixture = new FunctionsFixture();
+        mScriptEngine = new MScriptEngine();
+
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        systemFunctions.setVar("one", "1.0");
+        systemFunctions.setVar("two", "2.");
+        systemFunctions.setVar("mOne", "-1");
+        systemFunctions.setVar("s", "abc");
+    }
+
+    @After
+    public void tearDown() {
+        mScriptEngine.clearFunctionCache();
+        mScriptEngine = null;
+        functionsFixture.tearDown();
+        functionsFixture = null;
+    }
+
+    @Test
+    public void givenArchivedCodeThenItIsLoadedInsteadOfParsedAndExecutesTheSame() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        List<CompiledMScript> compiled = new ArrayList<>();
+        for (String expression : MScriptCompilerTest.EXPRESSIONS) {
+            compiled.add(mScriptEngine.compileMScript(expression, systemFunctions, availablePlugins));
+        }
+        for (String script : SCRIPTS) {
+            compiled.add(mScriptEngine.compileScript(script, systemFunctions, availablePlugins));
+        }
+        compiled.add(mScriptEngine.compileMScript("$foo.bar()", systemFunctions, availablePlugins)); // not archived
+
+        Path file = folder.getRoot().toPath().resolve("scripts.msar");
+        assertEquals(compiled.size() - 1, MScriptArchive.write(file, compiled));
+
+        MScriptArchive archive = MScriptArchive.open(file);
+        assertEquals(compiled.size() - 1, archive.size());
+        MScriptEngine loadingEngine = new MScriptEngine().setArchive(archive).setFastParse(true);
+
+        for (String expression : MScriptCompilerTest.EXPRESSIONS) {
+            assertEquals(expression, mScriptEngine.executeMScript(expression, systemFunctions, availablePlugins),
+                         loadingEngine.executeMScript(expression, systemFunctions, availablePlugins));
+        }
+        for (String script : SCRIPTS) {
+            assertEquals("", loadingEngine.executeScript(script, systemFunctions, availablePlugins));
+            List<String> loaded = variables(systemFunctions, "s", "n", "else_n", "t", "u");
+            assertEquals("", mScriptEngine.executeScript(script, systemFunctions, availablePlugins));
+            assertEquals(script, variables(systemFunctions, "s", "n", "else_n", "t", "u"), loaded);
+        }
+        assertEquals(compiled.size() - 1, archive.getLoadCount());
+        assertEquals(0, loadingEngine.getSllParseCount() + loadingEngine.getLlFallbackCount()); // nothing parsed
+
+        assertEquals("[E_PLUGIN_NOT_FOUND]",
+                     codes(loadingEngine.checkMScript("$foo.bar()", systemFunctions, availablePlugins)));
+        assertEquals(1, loadingEngine.getSllParseCount());
+    }
+
+    @Test
+    public void givenFunctionsNoLongerCallableTheSameWayThenArchivedCodeIsParsedAgain() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        PluginSet pluginSet = PluginSet.of(systemFunctions, availablePlugins);
+
+        // As if the system functions class used to have a $gone() function when the code got compiled and archived:
+        Node gone = new Node.Call(1, 0, new Function("gone"), -1, new Node[0]);
+        Path file = folder.getRoot().toPath().resolve("scripts.msar");
+        MScriptArchive.write(file, Arrays.asList(
+            new CompiledMScript("$gone()", pluginSet, gone, null, null, 0),
+            mScriptEngine.compileMScript("$dataGen.upperCase('a')", systemFunctions, availablePlugins)));
+        MScriptArchive archive = MScriptArchive.open(file);
+
+        MScriptEngine loadingEngine = new MScriptEngine().setArchive(archive);
+        assertEquals("A", loadingEngine.executeMScript("$dataGen.upperCase('a')", systemFunctions, availablePlugins));
+        assertEquals(1, archive.getLoadCount());
+
+        String errors = loadingEngine.executeMScript("$gone()", systemFunctions, availablePlugins); // parsed again
+        assertTrue(errors, errors.contains("[E_FUNCTION_NOT_FOUND]"));
+        assertEquals(1, archive.getRejectionCount());
+
+        // Archived code is only loaded against plugin sets of the same shape:
+        List<PluginAncestor> otherPlugins = new ArrayList<>(availablePlugins);
+        Collections.reverse(otherPlugins);
+        DispatchTable other = new Functions().dispatchTable(PluginSet.of(systemFunctions, otherPlugins));
+        assertNull(archive.load("$dataGen.upperCase('a')", true, other, 0));
+        assertNull(archive.load("$dataGen.upperCase('a')", false, new Functions().dispatchTable(pluginSet), 0));
+    }
+
+    @Test
+    public void givenCorruptedOrForeignFileThenOpeningItFails() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("scripts.msar");
+        MScriptArchive.write(file, Arrays.asList(
+            mScriptEngine.compileScript("a = 1", functionsFixture.getSystemFunctions(),
+                                        functionsFixture.getAvailablePlugins())));
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertOpeningFails(file, "truncated");
+
+        Files.write(file, "a = 1".getBytes(StandardCharsets.UTF_8));
+        assertOpeningFails(file, "not an MScript archive");
+
+        bytes[7]++; // version
+        Files.write(file, bytes);
+        assertOpeningFails(file, "version");
+    }
+
+    private static void assertOpeningFails(Path file, String reason) {
+        try {
+            MScriptArchive.open(file);
+            fail("Opening " + file + " should have failed");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(reason));
+        }
+    }
+
+    private static List<String> variables(MbtScriptExecutor systemFunctions, String... names) {
+        List<String> values = new ArrayList<>();
+        for (String name : names) {
+            values.add(systemFunctions.getVar(name));
+        }
+        return values;
+    }
+
+    private static String codes(List<MScriptError> errors) {
+        List<String> codes = new ArrayList<>();
+        for (MScriptError error : errors) {
+            codes.add(error.code);
+        }
+        return codes.toString();
+    }
+}
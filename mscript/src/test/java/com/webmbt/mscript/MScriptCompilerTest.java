@@ -0,0 +1,162 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.parse.MScriptLexer;
+import com.webmbt.mscript.parse.MScriptParser;
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that evaluating {@link MScriptCompiler compiled trees} yields the same results as interpreting parse trees
+ * with the reference {@link MScriptEvalVisitor}.
+ *
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptCompilerTest {
+
+    protected Functions functions;
+
+    protected FunctionsFixture functionsFixture; // provides test system functions and plugins
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functions = new Functions();
+        functionsFixture = new FunctionsFixture();
+
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        systemFunctions.setVar("one", "1.0");
+        systemFunctions.setVar("two", "2.");
+        systemFunctions.setVar("mOne", "-1");
+        systemFunctions.setVar("s", "abc");
+    }
+
+    @After
+    public void tearDown() {
+        functionsFixture.tearDown();
+        functionsFixture = null;
+        functions.clearCache();
+        functions = null;
+    }
+
+    protected static final String[] EXPRESSIONS = {//@fmt:off
+        "1", "2.", ".5", "true", "'true'", "''", "'\\'quoted\\' \\[x\\] \\$ \\\\ \\n'",
+        "one", "-one", "+one", "-(-one)", "-(2 - 3)",
+        "1 + '3'", "s + 1", "'a' + 2.", "1 * (2+ 3)/10% -200", "(one + 2.34) * 3 / -mOne",
+        "one == -mOne", "one != mOne", "s == 'abc'", "s < 'abd'", "-one <= -mOne", "two - one + 1 >= -mOne * (3 - 1)",
+        "true == 1", "'true' + 1", "3 * 'true' - false", "1 + 2 * 3 / 4 - 5 % 3", "0.1 + 0.2", "one / 3 * 3",
+        "10000000 * 10000000 + 1", "123456789 + 1", "1 / 0", "-1 / 0 + 's'", "0 / 0 == 0 / 0", "-(0 * -1)",
+        "s + 1 == 'abc1'", "'2.' + 1 < 3.5", "' 1 ' * 2", "'1e3' + 1", "'10' < '9'", "10 < 9",
+        "$g('whatever')", "$f()", "$g(1, 2)", "$size(s)", "$dataGen.lowerCase('ABC')", "$upperCase(s)",
+        "'ab$g('1$g('34')2[one]')'", "'v[one + 2 * 3 / -mOne]'", "'x$web.getValue('f1', 'attr1')y'",
+        "$h('$g('3' * (2 + 1))-aa', 1, 2)",
+    };//@fmt:on
+
+    @Test
+    public void givenValidExpressionsThenCompiledTreesEvaluateLikeParseTrees() {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+
+        for (String expression : EXPRESSIONS) {
+            ParseTree parseTree = parse(expression);
+
+            String expected = new MScriptEvalVisitor(functions, systemFunctions, functionsFixture.getAvailablePlugins())
+                .visit(parseTree);
+
+            Node root = new MScriptCompiler(functions, systemFunctions, functionsFixture.getAvailablePlugins())
+                .visit(parseTree);
+            String actual =
+                root.eval(new MScriptContext(systemFunctions, functionsFixture.getAvailablePlugins())).asString();
+
+            assertEquals(expression, expected, actual);
+
+            Node folded = new MScriptCompiler(functions, systemFunctions, functionsFixture.getAvailablePlugins())
+                .compileExpression((MScriptParser.CondContext) parseTree);
+            assertEquals(expression, expected,
+                         folded.eval(new MScriptContext(systemFunctions, functionsFixture.getAvailablePlugins()))
+                               .asString());
+        }
+    }
+
+    @Test
+    public void givenConstantSubexpressionsThenTheyAreFolded() {
+        MScriptCompiler compiler = new MScriptCompiler(functions, functionsFixture.getSystemFunctions(),
+                                                       functionsFixture.getAvailablePlugins());
+
+        Node root = compiler.compileExpression(parse("'0' + 5 * 60"));
+        assertEquals("300", ((Node.Const) root).value.asString());
+        assertEquals(2, compiler.getFoldedNodes());
+
+        root = compiler.compileExpression(parse("'[-(3)]a' + 2. == 'x'"));
+        assertEquals("false", ((Node.Const) root).value.asString());
+        assertEquals(6, compiler.getFoldedNodes());
+
+        root = compiler.compileExpression(parse("one * (2 - 1) + (1 - 'a')"));
+        Node.Arithmetic add = (Node.Arithmetic) root;
+        assertEquals("1", ((Node.Const) ((Node.Arithmetic) add.left).right).value.asString());
+        assertTrue(add.right instanceof Node.Arithmetic); // fails at run time, as expected
+        assertEquals(7, compiler.getFoldedNodes());
+    }
+
+    @Test
+    public void givenStringWithoutInterpolationThenItCompilesToAConstant() {
+        Node root = new MScriptCompiler(functions, functionsFixture.getSystemFunctions(),
+                                        functionsFixture.getAvailablePlugins()).visit(parse("'a\\tb'"));
+
+        assertTrue(root instanceof Node.Const);
+        assertEquals("a\tb", ((Node.Const) root).value.asString());
+    }
+
+    @Test
+    public void givenEscapeSequencesThenTheyAreUnescapedInOnePass() {
+        assertEquals("a\\nb", MScriptEvalVisitor.unescape("a\\\\nb")); // an escaped backslash followed by 'n'
+        assertEquals("\\'$[]\n\r\t", MScriptEvalVisitor.unescape("\\\\\\'\\$\\[\\]\\n\\r\\t"));
+        assertEquals("no escapes", MScriptEvalVisitor.unescape("no escapes"));
+    }
+
+    @Test
+    public void givenInterpolatedStringThenItCompilesToATemplate() {
+        MScriptCompiler compiler = new MScriptCompiler(functions, functionsFixture.getSystemFunctions(),
+                                                       functionsFixture.getAvailablePlugins());
+
+        Node.Concat template = (Node.Concat) compiler.compileExpression(parse("'x\\ty$g(s)[1 + 2]z[one]'"));
+
+        assertEquals(4, template.parts.length);
+        assertEquals("x\ty", template.literals[0]);
+        assertEquals(null, template.literals[1]);
+        assertEquals("3z", template.literals[2]); // folded and merged
+        assertEquals(null, template.literals[3]);
+        assertEquals("x\tyabc3z1.0", template.eval(new MScriptContext(functionsFixture.getSystemFunctions(),
+                                                                      functionsFixture.getAvailablePlugins()))
+                                             .asString());
+    }
+
+    @Test
+    public void givenOverriddenOperatorsThenArithmeticGoesThroughThem() {
+        MbtScriptExecutor systemFunctions = new MbtScriptExecutor() {
+            @Override
+            public String add(String val1, String val2) {
+                return val1 + "+" + val2;
+            }
+        };
+
+        Node root = new MScriptCompiler(functions, systemFunctions, null).visit(parse("1 + 2 * 3"));
+
+        assertFalse(((Node.Arithmetic) root).typed);
+        assertEquals("1+6", root.eval(new MScriptContext(systemFunctions, null)).asString());
+    }
+
+    protected MScriptParser.CondContext parse(String expression) {
+        MScriptParser mScriptParser =
+            new MScriptParser(new CommonTokenStream(new MScriptLexer(new ANTLRInputStream(expression))));
+        return mScriptParser.cond();
+    }
+}
@@ -7,9 +7,22 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author TestOptimal, LLC
@@ -195,4 +208,316 @@ public class MScriptEngineTest {
         result = mScriptEngine.executeMScript("two - one + 1 > -mOne * (3 - 1)", systemFunctions, availablePlugins);
         assertEquals("false", result);
     }
+
+    @Test
+    public void givenRepeatedExpressionThenParseIsReused() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        systemFunctions.setVar("v", "2");
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        ScriptCache<?, ?> scriptCache = mScriptEngine.getScriptCache();
+
+        assertEquals("4", mScriptEngine.executeMScript("v * $g('2')", systemFunctions, availablePlugins));
+        assertEquals(0, scriptCache.getHitCount());
+        assertEquals(1, scriptCache.getMissCount());
+
+        systemFunctions.setVar("v", "3");
+        assertEquals("6", mScriptEngine.executeMScript("v * $g('2')", systemFunctions, availablePlugins));
+        assertEquals(1, scriptCache.getHitCount());
+        assertEquals(1, scriptCache.getMissCount());
+        assertEquals(1, scriptCache.size());
+    }
+
+    @Test
+    public void givenSameScriptWhenCheckedAgainstDifferentPluginSetsThenItIsRevalidated() {
+        String mScript = "$web.getTitle()";
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        assertEquals(0, mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins).size());
+
+        List<MScriptError> errors =
+            mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins.subList(0, 1));
+        assertEquals(1, errors.size());
+        assertEquals("E_PLUGIN_NOT_FOUND", errors.get(0).code);
+
+        assertEquals(2, mScriptEngine.getScriptCache().getMissCount());
+        assertNotSame(errors, mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins.subList(0, 1)));
+        assertEquals(1, mScriptEngine.getScriptCache().getHitCount());
+    }
+
+    @Test
+    public void givenRepeatedInvalidCallsThenEveryCallSiteIsReportedInSourceOrder() {
+        String mScript = "$foo.bar(); a = $fooBar(1)\n$foo.bar(); $fooBar(1); $dataGen.lowerCase()";
+
+        List<MScriptError> errors = mScriptEngine
+            .checkMScript(mScript, functionsFixture.getSystemFunctions(), functionsFixture.getAvailablePlugins());
+
+        String[] codes = {"E_PLUGIN_NOT_FOUND", "E_FUNCTION_NOT_FOUND", "E_PLUGIN_NOT_FOUND", "E_FUNCTION_NOT_FOUND",
+                          "E_WRONG_NUMBER_OF_ARGUMENTS"};
+        String[] contexts = {"foo", "fooBar", "foo", "fooBar", "lowerCase"};
+        assertEquals(errors.toString(), codes.length, errors.size());
+        for (int i = 0; i < codes.length; i++) {
+            assertEquals(codes[i], errors.get(i).code);
+            assertEquals(contexts[i], errors.get(i).context);
+        }
+        assertEquals(2, errors.get(2).lineNumber);
+    }
+
+    @Test
+    public void givenScriptWithAssignmentsAndConditionalsThenItIsExecuted() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        String mScript = "a = 2; b = a * 3 // comment\n" +
+                         "if (b > 5) { c = 'big' } else { c = 'small' }\n" +
+                         "if (b == 'x') c = c + '!' else c = c + '?'\n" +
+                         "if (0) { d = 1 }";
+
+        assertEquals("", mScriptEngine.executeScript(mScript, systemFunctions, functionsFixture.getAvailablePlugins()));
+        assertEquals("2", systemFunctions.getVar("a"));
+        assertEquals("6", systemFunctions.getVar("b"));
+        assertEquals("big?", systemFunctions.getVar("c"));
+        assertEquals(null, systemFunctions.getVar("d"));
+    }
+
+    @Test
+    public void givenScriptWithLoopsThenIndexMaxLoopNumBreakAndContinueAreHonored() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        mScriptEngine.executeScript("n = 0; while (true | i; 5) { n = n + i }", systemFunctions, availablePlugins);
+        assertEquals("10", systemFunctions.getVar("n"));
+        assertEquals("4", systemFunctions.getVar("i"));
+
+        mScriptEngine.executeScript("s = ''\n" +
+                                    "while (true | index = i; label = outer) {\n" +
+                                    "  while (true | j) {\n" +
+                                    "    if (j == 2) continue outer\n" +
+                                    "    if (i == 2) break outer\n" +
+                                    "    s = s + '[i]:[j],'\n" +
+                                    "  }\n" +
+                                    "}", systemFunctions, availablePlugins);
+        assertEquals("0:0,0:1,1:0,1:1,", systemFunctions.getVar("s"));
+
+        mScriptEngine.executeScript("n = 0; while (n < 10) { n = n + 1; if (n % 2) continue; if (n > 6) break }",
+                                    systemFunctions, availablePlugins);
+        assertEquals("8", systemFunctions.getVar("n"));
+    }
+
+    @Test
+    public void givenJumpToUnknownLabelThenLabelErrorIsCollectedAndScriptIsNotExecuted() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        String mScript = "while (true | i; outer) {\n" +
+                         "  while (true | j) { break outer }\n" +
+                         "  continue outr\n" +
+                         "}\n" +
+                         "a = 1";
+
+        List<MScriptError> errors = mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins);
+        assertEquals(1, errors.size());
+        assertEquals("outr @3:11 [E_PARSE_LOOP_LABEL_UNKNOWN] No enclosing loop is labeled outr",
+                     errors.get(0).toString());
+
+        assertEquals(errors.get(0).toString(), mScriptEngine.executeScript(mScript, systemFunctions, availablePlugins));
+        assertEquals(null, systemFunctions.getVar("a"));
+
+        // Labels are only visible within the loops they label:
+        assertEquals("inner @2:37 [E_PARSE_LOOP_LABEL_UNKNOWN] No enclosing loop is labeled inner",
+                     mScriptEngine.checkMScript("while (true | label = inner) { a = 1 }\n" +
+                                                "while (true | label = outer) { break inner }",
+                                                systemFunctions, availablePlugins).get(0).toString());
+    }
+
+    @Test
+    public void givenOutOfRangeMaxLoopNumThenMaxLoopNumErrorIsCollectedAndScriptIsNotExecuted() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        for (String mScript : new String[]{"while (true | i; 99999999999) { break }",
+                                           "while (true | index = i; maxLoopNum = 99999999999) { break }"}) {
+            List<MScriptError> errors = mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins);
+            assertEquals(1, errors.size());
+            assertEquals("E_PARSE_LOOP_MAX_NUM_INVALID", errors.get(0).code);
+            assertEquals("99999999999", errors.get(0).context);
+            assertEquals(errors.get(0).toString(),
+                         mScriptEngine.executeScript(mScript, systemFunctions, availablePlugins));
+        }
+
+        assertEquals("", mScriptEngine.executeScript("while (true | i; 2147483647) { break }", systemFunctions,
+                                                     availablePlugins));
+    }
+
+    @Test
+    public void givenErroneousScriptThenItIsNotExecuted() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+
+        String result =
+            mScriptEngine.executeScript("a = 1; $foo.bar()", systemFunctions, functionsFixture.getAvailablePlugins());
+
+        assertEquals(mScriptEngine.checkMScript("a = 1; $foo.bar()", systemFunctions,
+                                                functionsFixture.getAvailablePlugins()).get(0).toString(), result);
+        assertEquals(null, systemFunctions.getVar("a"));
+    }
+
+    @Test
+    public void givenCompiledExpressionThenItIsExecutedInAnyMatchingContext() throws Throwable {
+        CompiledMScript compiled = mScriptEngine.compileMScript("$dataGen.upperCase(v) + $g('!')",
+                                                                functionsFixture.getSystemFunctions(),
+                                                                functionsFixture.getAvailablePlugins());
+
+        FunctionsFixture other = new FunctionsFixture();
+        other.getSystemFunctions().setVar("v", "other");
+        functionsFixture.getSystemFunctions().setVar("v", "this");
+
+        assertEquals("OTHER!", compiled.execute(new MScriptContext(other.getSystemFunctions(),
+                                                                   other.getAvailablePlugins())));
+        assertEquals("THIS!", compiled.execute(new MScriptContext(functionsFixture.getSystemFunctions(),
+                                                                  functionsFixture.getAvailablePlugins())));
+        other.tearDown();
+
+        try {
+            compiled.execute(new MScriptContext(functionsFixture.getSystemFunctions(), null));
+            fail("Executing compiled code against a different plugin set should fail");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void givenSharedEngineThenConcurrentExecutionsDoNotInterfere() throws Exception {
+        final MScriptEngine sharedEngine = new MScriptEngine(4).setCompileThreshold(3);
+        final String[] expressions = {"v * $g('2')", "'[v]:$dataGen.lowerCase(\'X\')'", "v > 100 - 1", "-v + v"};
+        final String script = "n = 0; k = v % 7 + 1; while (i < k | i) { n = n + i }";
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        try {
+                            executeConcurrently(sharedEngine, thread, expressions, script);
+                        } catch (Throwable throwable) {
+                            throw new Exception(throwable);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(); // rethrows assertion failures
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void executeConcurrently(MScriptEngine sharedEngine, int thread, String[] expressions, String script)
+        throws Throwable {
+        FunctionsFixture fixture = new FunctionsFixture(); // one set of functions per thread
+        MbtScriptExecutor systemFunctions = fixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = fixture.getAvailablePlugins();
+
+        for (int i = 0; i < 500; i++) {
+            int v = thread * 1000 + i;
+            systemFunctions.setVar("v", Integer.toString(v));
+
+            String[] expected = {Integer.toString(2 * v), v + ":x", Boolean.toString(v > 99), "0"};
+            for (int e = 0; e < expressions.length; e++) {
+                assertEquals(expected[e],
+                             sharedEngine.executeMScript(expressions[e], systemFunctions, availablePlugins));
+            }
+
+            assertEquals("", sharedEngine.executeScript(script, systemFunctions, availablePlugins));
+            int loops = v % 7 + 1;
+            assertEquals(Integer.toString(loops * (loops - 1) / 2), systemFunctions.getVar("n"));
+        }
+
+        fixture.tearDown();
+    }
+
+    @Test
+    public void givenValidSampleScriptsThenTheyCompileToScriptTrees() throws IOException {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        File[] scripts = new File("mscript").listFiles();
+        assertNotNull(scripts);
+        for (File script : scripts) {
+            String mScript = new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8);
+
+            CompiledMScript compiled = mScriptEngine.compileScript(mScript, systemFunctions, availablePlugins);
+            assertEquals(script.getName(), compiled.hasErrors(), compiled.getScript() == null);
+        }
+    }
+
+    @Test
+    public void givenManyScriptsThenTheyAreCheckedInParallelAndErrorsAreReturnedInOrder() throws IOException {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        File[] scripts = new File("mscript").listFiles();
+        assertNotNull(scripts);
+        List<String> mScripts = new ArrayList<>();
+        for (int copy = 0; copy < 50; copy++) { // distinct sources, so that every script actually gets parsed
+            for (File script : scripts) {
+                mScripts.add(new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8) + "\n// " + copy);
+            }
+            mScripts.add("a = " + copy + "; $foo.bar()");
+            mScripts.add("v %% " + copy);
+            mScripts.add(null);
+        }
+
+        List<List<MScriptError>> errors = mScriptEngine.checkMScripts(mScripts, systemFunctions, availablePlugins);
+
+        assertEquals(mScripts.size(), errors.size());
+        MScriptEngine sequentialEngine = new MScriptEngine();
+        for (int i = 0; i < mScripts.size(); i++) {
+            assertEquals(mScripts.get(i),
+                         sequentialEngine.checkMScript(mScripts.get(i), systemFunctions, availablePlugins).toString(),
+                         errors.get(i).toString());
+        }
+    }
+
+    @Test
+    public void givenFastParseModeThenSampleScriptsGetTheSameOutcomeAndFallbacksAreCounted() throws IOException {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        MScriptEngine fastEngine = new MScriptEngine().setFastParse(true);
+
+        File[] scripts = new File("mscript").listFiles();
+        assertNotNull(scripts);
+        List<String> mScripts = new ArrayList<>();
+        for (File script : scripts) {
+            mScripts.add(new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8));
+        }
+        mScripts.add("a = 1; $foo.bar()");
+        mScripts.add("v %% 10; while (i < 3) { break }");
+
+        int erroneous = 0;
+        for (String mScript : mScripts) {
+            long sllParses = fastEngine.getSllParseCount(), llFallbacks = fastEngine.getLlFallbackCount();
+            List<MScriptError> expected = mScriptEngine.checkMScript(mScript, systemFunctions, availablePlugins);
+            List<MScriptError> actual = fastEngine.checkMScript(mScript, systemFunctions, availablePlugins);
+            assertEquals(mScript, expected.toString(), actual.toString());
+
+            boolean syntaxErrors = false;
+            for (MScriptError error : expected) {
+                syntaxErrors |= error.code.equals("E_PARSE"); // function calls are validated after parsing
+            }
+            if (syntaxErrors) {
+                erroneous++;
+            }
+            // Valid scripts must stay on SLL while syntactically erroneous ones must always fall back to LL:
+            assertEquals(mScript, syntaxErrors ? 0 : 1, fastEngine.getSllParseCount() - sllParses);
+            assertEquals(mScript, syntaxErrors ? 1 : 0, fastEngine.getLlFallbackCount() - llFallbacks);
+        }
+
+        assertEquals(0, mScriptEngine.getSllParseCount() + mScriptEngine.getLlFallbackCount());
+        assertTrue(erroneous > 0);
+        assertEquals(mScripts.size() - erroneous, fastEngine.getSllParseCount());
+        assertEquals(erroneous, fastEngine.getLlFallbackCount());
+    }
 }
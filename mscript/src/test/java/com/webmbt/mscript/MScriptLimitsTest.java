@@ -0,0 +1,142 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptLimitsTest {
+
+    protected FunctionsFixture functionsFixture;
+
+    protected MbtScriptExecutor systemFunctions;
+
+    protected List<PluginAncestor> availablePlugins;
+
+    protected MScriptEngine mScriptEngine;
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functionsFixture = new FunctionsFixture();
+        systemFunctions = functionsFixture.getSystemFunctions();
+        availablePlugins = functionsFixture.getAvailablePlugins();
+        mScriptEngine = new MScriptEngine();
+    }
+
+    @After
+    public void tearDown() {
+        mScriptEngine = null;
+        availablePlugins = null;
+        systemFunctions = null;
+        functionsFixture.tearDown();
+        functionsFixture = null;
+    }
+
+    @Test
+    public void givenEndlessLoopThenLoopIterationLimitStopsIt() throws Throwable {
+        mScriptEngine.setLimits(new MScriptLimits().setMaxLoopIterations(100));
+
+        assertEquals("@2:0 [E_LIMIT_LOOP_ITERATIONS] Maximum number of loop iterations (100) exceeded",
+                     mScriptEngine.executeScript("n = 0\nwhile (true) n = n + 1", systemFunctions, availablePlugins));
+        assertEquals("100", systemFunctions.getVar("n")); // effects so far are kept
+
+        assertEquals("", mScriptEngine.executeScript("while (n < 150) n = n + 1", systemFunctions, availablePlugins));
+    }
+
+    @Test
+    public void givenNodeLimitThenEvaluatedNodesAreCountedOverTheWholeExecution() throws Throwable {
+        mScriptEngine.setLimits(new MScriptLimits().setMaxNodes(10));
+        systemFunctions.setVar("x", "0");
+
+        // 1 node per loop condition, 3 per assignment:
+        assertEquals("@1:13 [E_LIMIT_NODES] Maximum number of evaluated nodes (10) exceeded",
+                     mScriptEngine.executeScript("while (true) x = x + 1", systemFunctions, availablePlugins));
+        assertEquals("2", systemFunctions.getVar("x"));
+
+        assertEquals("10", mScriptEngine.executeMScript("x + x + x + x + x", systemFunctions, availablePlugins));
+        assertTrue(mScriptEngine.executeMScript("x + x + x + x + x + x", systemFunctions, availablePlugins)
+                                .contains("[E_LIMIT_NODES]"));
+    }
+
+    @Test
+    public void givenStringLengthLimitThenAssignmentsCallsAndExpressionsAreChecked() throws Throwable {
+        mScriptEngine.setLimits(new MScriptLimits().setMaxStringLength(16));
+
+        assertEquals("@2:13 [E_LIMIT_STRING_LENGTH] Maximum string length (16) exceeded",
+                     mScriptEngine.executeScript("s = 'ab'\nwhile (true) s = s + s", systemFunctions,
+                                                 availablePlugins));
+        assertEquals(16, systemFunctions.getVar("s").length());
+
+        mScriptEngine.setCompileThreshold(0); // calls in bytecode are checked too
+        for (int i = 0; i < 2; i++) {
+            assertEquals("@1:0 [E_LIMIT_STRING_LENGTH] Maximum string length (16) exceeded",
+                         mScriptEngine.executeMScript("$dataGen.upperCase(s + 'c')", systemFunctions,
+                                                      availablePlugins));
+        }
+        assertTrue(mScriptEngine.executeMScript("s + 'c'", systemFunctions, availablePlugins)
+                                .contains("[E_LIMIT_STRING_LENGTH]"));
+        assertEquals("AB", mScriptEngine.executeMScript("$dataGen.upperCase('ab')", systemFunctions,
+                                                        availablePlugins));
+    }
+
+    @Test
+    public void givenVariableLimitThenOnlyDistinctVariablesAreCounted() throws Throwable {
+        mScriptEngine.setLimits(new MScriptLimits().setMaxVariables(2));
+
+        assertEquals("", mScriptEngine.executeScript("a = 1\nb = 2\na = 3", systemFunctions, availablePlugins));
+        assertEquals("@2:0 [E_LIMIT_VARIABLES] Maximum number of variables (2) exceeded",
+                     mScriptEngine.executeScript("while (a < 5 | i) a = a + 1\nc = 3", systemFunctions,
+                                                 availablePlugins));
+        assertEquals("5", systemFunctions.getVar("a"));
+    }
+
+    @Test
+    public void givenTimeoutThenExecutionStopsAtTheNextLoopIterationOrCall() throws Throwable {
+        mScriptEngine.setLimits(new MScriptLimits().setTimeoutMillis(50));
+
+        long start = System.nanoTime();
+        String error = mScriptEngine.executeScript("while (true) $f()", systemFunctions, availablePlugins);
+        assertTrue(error, error.matches("@1:(0|13) \\[E_LIMIT_TIMEOUT] Execution timeout \\(50 ms\\) exceeded"));
+        assertTrue(System.nanoTime() - start >= 50000000);
+    }
+
+    @Test
+    public void givenCancelledTokenThenExecutionsStop() throws Throwable {
+        CompiledMScript compiled = mScriptEngine.compileScript("n = 0\nwhile (true) n = n + 1", systemFunctions,
+                                                               availablePlugins);
+        final CancellationToken cancellationToken = new CancellationToken();
+        Thread canceller = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+                cancellationToken.cancel();
+            }
+        };
+        canceller.start();
+
+        assertEquals("@2:0 [E_CANCELLED] Execution cancelled", compiled.run(
+            new MScriptContext(systemFunctions, availablePlugins).setCancellationToken(cancellationToken)));
+        canceller.join();
+
+        mScriptEngine.setCancellationToken(cancellationToken);
+        assertEquals("@1:0 [E_CANCELLED] Execution cancelled",
+                     mScriptEngine.executeMScript("$f()", systemFunctions, availablePlugins));
+        assertEquals("", mScriptEngine.executeScript("a = 1", systemFunctions, availablePlugins)); // no boundary
+    }
+}
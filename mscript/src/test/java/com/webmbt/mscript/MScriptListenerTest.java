@@ -0,0 +1,156 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptListenerTest {
+
+    protected FunctionsFixture functionsFixture;
+
+    protected RecordingListener listener;
+
+    protected MScriptEngine mScriptEngine;
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functionsFixture = new FunctionsFixture();
+        listener = new RecordingListener();
+        mScriptEngine = new MScriptEngine().setListener(listener);
+    }
+
+    @After
+    public void tearDown() {
+        mScriptEngine = null;
+        listener = null;
+        functionsFixture.tearDown();
+        functionsFixture = null;
+    }
+
+    @Test
+    public void givenListenedScriptThenStatementsCallsVariablesAndConditionsAreNotified() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        assertEquals("", mScriptEngine.executeScript("n = 1\n" +
+                                                     "if (n == 1) $g(n)\n" +
+                                                     "while (n < 3 | i) n = n + 1", systemFunctions,
+                                                     availablePlugins));
+        assertEquals("3", systemFunctions.getVar("n"));
+        assertEquals(Arrays.asList("enter L1:0 n =", "write L1:0 n=1", "exit L1:0 n =",
+
+                                   "enter L2:0 if", "read L2:4 n=1", "condition L2:0 true",
+                                   "enter L2:12 call", "enter L2:12 $g", "read L2:15 n=1", "exit L2:12 $g=1",
+                                   "exit L2:12 call", "exit L2:0 if",
+
+                                   "enter L3:0 while",
+                                   "write L3:0 i=0", "read L3:7 n=1", "condition L3:0 true",
+                                   "enter L3:18 n =", "read L3:22 n=1", "write L3:18 n=2", "exit L3:18 n =",
+                                   "write L3:0 i=1", "read L3:7 n=2", "condition L3:0 true",
+                                   "enter L3:18 n =", "read L3:22 n=2", "write L3:18 n=3", "exit L3:18 n =",
+                                   "write L3:0 i=2", "read L3:7 n=3", "condition L3:0 false",
+                                   "exit L3:0 while"), listener.events);
+    }
+
+    @Test
+    public void givenListenedExpressionThenItIsInstrumentedWhileUnlistenedExecutionsKeepTheirBytecode()
+        throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+        systemFunctions.setVar("v", "a");
+        mScriptEngine.setCompileThreshold(0);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("a", mScriptEngine.executeMScript("$g(v)", systemFunctions, availablePlugins));
+        }
+        List<String> expected = Arrays.asList("enter L1:0 $g", "read L1:3 v=a", "exit L1:0 $g=a");
+        assertEquals(concat(expected, expected), listener.events);
+
+        CompiledMScript compiled = mScriptEngine.compileMScript("$g(v)", systemFunctions, availablePlugins);
+        assertTrue(compiled.getExecutable() instanceof Node.Compiled);
+        listener.events.clear();
+        assertEquals("a", compiled.execute(new MScriptContext(systemFunctions, availablePlugins)));
+        assertEquals(0, listener.events.size());
+
+        RecordingListener contextListener = new RecordingListener();
+        assertEquals("a", compiled.execute(new MScriptContext(systemFunctions, availablePlugins)
+                                               .setListener(contextListener)));
+        assertEquals(expected, contextListener.events);
+        assertEquals(0, listener.events.size());
+    }
+
+    @Test
+    public void givenFailingCallThenExitsAreNotifiedAnyway() throws Throwable {
+        try {
+            mScriptEngine.executeScript("x = $rand('x')", functionsFixture.getSystemFunctions(),
+                                        functionsFixture.getAvailablePlugins());
+            fail("$rand('x') should have failed");
+        } catch (NumberFormatException expected) {
+            // notified up to the failing call
+        }
+
+        assertEquals(Arrays.asList("enter L1:0 x =", "enter L1:4 $rand", "exit L1:4 $rand=null", "exit L1:0 x ="),
+                     listener.events);
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    protected static class RecordingListener implements MScriptListener {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void enterStatement(MScriptContext ctx, int line, int column, String statement) {
+            events.add("enter L" + line + ":" + column + " " + statement);
+        }
+
+        @Override
+        public void exitStatement(MScriptContext ctx, int line, int column, String statement) {
+            events.add("exit L" + line + ":" + column + " " + statement);
+        }
+
+        @Override
+        public void enterCall(MScriptContext ctx, int line, int column, String function) {
+            events.add("enter L" + line + ":" + column + " " + function);
+        }
+
+        @Override
+        public void exitCall(MScriptContext ctx, int line, int column, String function, String result) {
+            events.add("exit L" + line + ":" + column + " " + function + "=" + result);
+        }
+
+        @Override
+        public void variableRead(MScriptContext ctx, int line, int column, String name, String value) {
+            events.add("read L" + line + ":" + column + " " + name + "=" + value);
+        }
+
+        @Override
+        public void variableWritten(MScriptContext ctx, int line, int column, String name, String value) {
+            events.add("write L" + line + ":" + column + " " + name + "=" + value);
+        }
+
+        @Override
+        public void conditionEvaluated(MScriptContext ctx, int line, int column, boolean result) {
+            events.add("condition L" + line + ":" + column + " " + result);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.webmbt.mscript;
+
+import com.webmbt.mscript.test.fixture.FunctionsFixture;
+import com.webmbt.plugin.MbtScriptExecutor;
+import com.webmbt.plugin.PluginAncestor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptProfilerTest {
+
+    protected static final String SCRIPT = "n = 0\n" +
+                                           "while (n < 25) {\n" +
+                                           "  n = n + 1\n" +
+                                           "  $g(n)\n" +
+                                           "}\n" +
+                                           "if (n == 25) t = $dataGen.upperCase('x')";
+
+    protected static final String ROOT = "'n = 0 while (n < 25) { n = n + 1 $g(n) } if (n == 25) t =...'";
+
+    protected FunctionsFixture functionsFixture;
+
+    protected MScriptProfiler profiler;
+
+    protected MScriptEngine mScriptEngine;
+
+    @Before
+    public void setUp() throws IllegalAccessException, InstantiationException {
+        functionsFixture = new FunctionsFixture();
+        profiler = new MScriptProfiler();
+        mScriptEngine = new MScriptEngine().setProfiler(profiler);
+    }
+
+    @After
+    public void tearDown() {
+        mScriptEngine = null;
+        profiler = null;
+        functionsFixture.tearDown();
+        functionsFixture = null;
+    }
+
+    @Test
+    public void givenProfiledScriptThenStatementsCallsAndIterationsGetFramesOfTheirOwn() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        assertEquals("", mScriptEngine.executeScript(SCRIPT, systemFunctions, availablePlugins));
+        assertEquals("X", systemFunctions.getVar("t"));
+
+        List<String> stacks = stacks(false);
+        assertTrue(stacks.toString(), stacks.contains(ROOT + ";L2:0 while;iterations 11-100;L4:2 call;L4:2 $g()"));
+        assertTrue(stacks.toString(), stacks.contains(ROOT + ";L6:0 if;L6:13 t =;L6:17 $dataGen.upperCase()"));
+
+        String report = report();
+        assertEquals(report, 1, count(report, ROOT));
+        assertEquals(report, 1, count(report, ROOT + " L2:0 while"));
+        assertEquals(report, 1, count(report, ROOT + " L2:0 while iteration 1"));
+        assertEquals(report, 9, count(report, ROOT + " L2:0 while iterations 2-10"));
+        assertEquals(report, 15, count(report, ROOT + " L2:0 while iterations 11-100"));
+        assertEquals(report, 25, count(report, ROOT + " L4:2 $g()"));
+        assertEquals(report, 26, count(report, ROOT + " L1:0 n =") + count(report, ROOT + " L3:2 n ="));
+
+        double previous = Double.MAX_VALUE;
+        for (String line : lines(report)) {
+            double self = Double.parseDouble(line.trim().split("\\s+")[0]);
+            assertTrue(report, self <= previous);
+            previous = self;
+        }
+    }
+
+    @Test
+    public void givenProfiledExpressionsThenCallsAreProfiledEvenOnceCompiledToBytecode() throws Throwable {
+        mScriptEngine.setCompileThreshold(0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("a", mScriptEngine.executeMScript("$g('a')", functionsFixture.getSystemFunctions(),
+                                                           functionsFixture.getAvailablePlugins()));
+        }
+
+        String report = report();
+        assertEquals(report, 3, count(report, "'$g('a')'"));
+        assertEquals(report, 3, count(report, "'$g('a')' L1:0 $g()"));
+    }
+
+    @Test
+    public void givenFailingCallThenFramesAreExitedAndProfilingGoesOn() throws Throwable {
+        MbtScriptExecutor systemFunctions = functionsFixture.getSystemFunctions();
+        List<PluginAncestor> availablePlugins = functionsFixture.getAvailablePlugins();
+
+        try {
+            mScriptEngine.executeScript("while (true | i; 3) { $rand('x') }", systemFunctions, availablePlugins);
+            fail("$rand('x') should have failed");
+        } catch (NumberFormatException expected) {
+            // profiled up to the failing call
+        }
+        assertEquals("", mScriptEngine.executeScript("a = 1", systemFunctions, availablePlugins));
+
+        List<String> stacks = stacks(false);
+        assertTrue(stacks.toString(), stacks.contains("'while (true | i, 3) { $rand('x') }';L1:0 while;iteration 1;" +
+                                                      "L1:22 call;L1:22 $rand()"));
+        assertTrue(stacks.toString(), stacks.contains("'a = 1';L1:0 a ="));
+
+        profiler.reset();
+        assertEquals(1, lines(report()).size() + 1); // header only
+        assertEquals(0, stacks(true).size());
+    }
+
+    private List<String> stacks(boolean allocations) throws IOException {
+        StringBuilder collapsed = new StringBuilder();
+        profiler.writeCollapsedStacks(collapsed, allocations);
+
+        List<String> stacks = new ArrayList<>();
+        for (String line : collapsed.toString().split("\n")) {
+            if (!line.isEmpty()) {
+                int space = line.lastIndexOf(' ');
+                assertTrue(line, Long.parseLong(line.substring(space + 1)) > 0);
+                stacks.add(line.substring(0, space));
+            }
+        }
+        return stacks;
+    }
+
+    private String report() throws IOException {
+        StringBuilder report = new StringBuilder();
+        profiler.writeReport(report);
+        return report.toString();
+    }
+
+    /** @return the report lines, header excluded */
+    private static List<String> lines(String report) {
+        List<String> lines = new ArrayList<>();
+        String[] all = report.split("\\r?\\n");
+        for (int i = 1; i < all.length; i++) {
+            lines.add(all[i]);
+        }
+        return lines;
+    }
+
+    private static long count(String report, String location) {
+        for (String line : lines(report)) {
+            String[] columns = line.trim().split("\\s+", 5);
+            if (columns[4].equals(location)) {
+                return Long.parseLong(columns[2]);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.webmbt.mscript;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class ScriptCacheTest {
+
+    @Test
+    public void givenFullCacheWhenAddingThenUnreferencedEntriesAreEvictedFirst() {
+        ScriptCache<String, String> cache = new ScriptCache<>(2);
+        cache.putIfAbsent("a", "A");
+        cache.putIfAbsent("b", "B");
+
+        assertEquals("A", cache.get("a")); // 'a' gets a second chance, 'b' does not
+        cache.putIfAbsent("c", "C");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void givenCachedValueWhenPuttingAgainThenFirstValueIsKept() {
+        ScriptCache<String, String> cache = new ScriptCache<>(2);
+
+        assertEquals("A", cache.putIfAbsent("a", "A"));
+        assertEquals("A", cache.putIfAbsent("a", "A'"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void givenZeroMaximumSizeThenNothingIsCached() {
+        ScriptCache<String, String> cache = new ScriptCache<>(0);
+
+        assertEquals("A", cache.putIfAbsent("a", "A"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void givenConcurrentClearsAndEvictionsThenSizeMatchesTheEntries() throws InterruptedException {
+        final ScriptCache<Integer, String> cache = new ScriptCache<>(4);
+        final AtomicInteger keys = new AtomicInteger();
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final boolean clearing = t == 0;
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 20000; i++) {
+                        if (clearing) {
+                            cache.clear();
+                        } else {
+                            cache.putIfAbsent(keys.incrementAndGet(), "");
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.putIfAbsent(-1, "");
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,51 @@
+package com.webmbt.mscript;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class TypesTest {
+
+    protected static final String[] VALUES = {//@fmt:off
+        "", " ", "0", "-0", "+1", "12", "1.", ".5", ".", "-.", "1.5", "  1.5\t", "\n2\n", "1 2", "--1", "+-1", "1+",
+        "1e3", "1E+3", "1e-3", "1e", "1e+", "e3", ".e3", "1.e3", ".5e3", "1e3.5", "1d", "1D", "1f", "1.5F", "1e3d",
+        "1dd", "d", "1l", "NaN", "-NaN", "+Infinity", "-Infinity", "Infinity ", "Inf", "nan", "infinity",
+        "0x10", "0x10p0", "0X1.8P3", "0x.8p1", "0x.p1", "0xp1", "0x1p", "0x1p-2d", "0x1G", "0x\u0661p1", "-0x1p1", "0x",
+        "true", "false", "True", " true", "abc", "1abc", "١٢", "1_000", "1,5",
+    };//@fmt:on
+
+    @Test
+    public void givenAnyStringThenIsNumberAgreesWithAsNumber() {
+        for (String value : VALUES) {
+            boolean parsable;
+            try {
+                Types.asNumber(value);
+                parsable = true;
+            } catch (NumberFormatException nfe) {
+                parsable = false;
+            }
+
+            assertEquals("'" + value + "'", parsable, Types.isNumber(value));
+        }
+    }
+
+    @Test
+    public void givenNonNumericOperandsThenComparisonsFallBackToStrings() {
+        assertTrue(Types.isEqual("LoggedIn", "LoggedIn"));
+        assertTrue(Types.isNotEqual("1", "1a"));
+        assertTrue(Types.isLess("10", "9a"));
+        assertTrue(Types.isGreater("10", "9"));
+        assertTrue(Types.isEqual("true", "1.0"));
+        assertTrue(Types.isLessOrEqual(" 2 ", "2.0"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullThenIsNumberFailsLikeAsNumber() {
+        Types.isNumber(null);
+    }
+}
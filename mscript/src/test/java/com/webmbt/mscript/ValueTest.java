@@ -0,0 +1,61 @@
+package com.webmbt.mscript;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class ValueTest {
+
+    @Test
+    public void givenNumericStringsThenTheyKeepTheirTextButCompareAsNumbers() {
+        Value two = Value.of("2.");
+
+        assertEquals(Value.Kind.STRING, two.getKind());
+        assertEquals("2.", two.asString());
+        assertTrue(two.isEqual(Value.of(2)));
+        assertEquals("4", two.add(Value.of("2.0")).asString());
+        assertEquals("2.a", two.add(Value.of("a")).asString());
+        assertTrue(Value.of("10").isGreater(Value.of("9")));
+        assertTrue(Value.of("10").isLess(Value.of("9a")));
+    }
+
+    @Test
+    public void givenNumbersThatFormatLossilyThenTheyAreReparsedLikeStrings() {
+        assertEquals("1", Value.of(1e20).asString());
+        assertEquals(1, Value.of(1e20).asNumber(), 0);
+        assertEquals("2", Value.of(1e14).add(Value.TRUE).asString());
+        assertEquals("9999999", Value.of(9999999d).asString());
+        assertEquals("Infinity", Value.of(1).div(Value.of(0)).asString());
+    }
+
+    @Test
+    public void givenNullThenItBehavesLikeANullString() {
+        assertSame(Value.NULL, Value.of((String) null));
+        assertNull(Value.NULL.asString());
+        assertFalse(Value.of("a").isEqual(Value.NULL));
+        assertEquals("anull", Value.of("a").add(Value.NULL).asString());
+
+        try {
+            Value.of(1).add(Value.NULL);
+            fail("null values cannot be coerced to numbers");
+        } catch (NullPointerException npe) {
+            // expected
+        }
+
+        try {
+            Value.of("a").sub(Value.of(1));
+            fail("non-numeric values cannot be subtracted");
+        } catch (NumberFormatException nfe) {
+            assertEquals("For input string: \"a\"", nfe.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.webmbt.mscript;
+
+import com.webmbt.plugin.MbtScriptExecutor;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class VariablesTest {
+
+    @Test
+    public void givenNamesThenSlotsAreSharedBetweenFrames() {
+        int slot = Variables.slot("variablesTestA");
+        assertEquals(slot, Variables.slot("variablesTestA"));
+        assertEquals(slot, Variables.slotOf("variablesTestA"));
+        assertEquals(-1, Variables.slotOf("variablesTestUnknown"));
+
+        Variables frame1 = new Variables(), frame2 = new Variables();
+        frame1.set(slot, "1");
+        frame2.set("variablesTestA", "2");
+
+        assertEquals("1", frame1.get("variablesTestA"));
+        assertEquals("2", frame2.get(slot));
+    }
+
+    @Test
+    public void givenManyNamesThenEachKeepsItsOwnSlot() {
+        Variables frame = new Variables();
+        for (int i = 0; i < 100; i++) {
+            frame.set("variablesTestMany" + i, String.valueOf(i));
+        }
+
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Variables.slotOf("variablesTestMany" + i), Variables.slot("variablesTestMany" + i));
+            slots.add(Variables.slotOf("variablesTestMany" + i));
+        }
+        assertEquals(100, slots.size());
+        Map<String, String> variables = frame.asMap();
+        assertEquals(100, variables.size());
+        assertEquals("99", variables.get("variablesTestMany99"));
+    }
+
+    @Test
+    public void givenVariablesSetToNullThenTheyAreDefined() {
+        Variables frame = new Variables();
+        frame.set("variablesTestB", null);
+        frame.set("variablesTestC", "c");
+
+        assertTrue(frame.isDefined("variablesTestB"));
+        assertNull(frame.get("variablesTestB"));
+        assertFalse(frame.isDefined("variablesTestD"));
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("variablesTestB", null);
+        expected.put("variablesTestC", "c");
+        assertEquals(expected, frame.asMap());
+
+        frame.remove("variablesTestC");
+        assertFalse(frame.isDefined("variablesTestC"));
+        frame.clear();
+        assertTrue(frame.asMap().isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void givenLegacySymbolTableThenItReadsAndWritesTheVariables() {
+        MbtScriptExecutor systemFunctions = new MbtScriptExecutor() {
+
+            @Override
+            public String getVar(String name) {
+                symbolTable.put("variablesTestE", "e");
+                return symbolTable.containsKey(name) ? symbolTable.get(name) : "?";
+            }
+        };
+        systemFunctions.setVar("variablesTestF", "f");
+
+        assertEquals("f", systemFunctions.getVar("variablesTestF"));
+        assertEquals("e", systemFunctions.getVariables().get("variablesTestE"));
+        assertEquals("?", systemFunctions.getVar("variablesTestG"));
+    }
+
+    @Test
+    public void givenOverriddenVariableAccessorsThenScriptsGoThroughThem() throws Throwable {
+        final Map<String, String> values = new LinkedHashMap<>();
+        MbtScriptExecutor systemFunctions = new MbtScriptExecutor() {
+
+            @Override
+            public void setVar(String name, String value) { values.put(name, value); }
+
+            @Override
+            public String getVar(String name) { return values.get(name); }
+        };
+
+        MScriptEngine mScriptEngine = new MScriptEngine();
+        mScriptEngine.executeScript("a = 1; while (a < 3 | i) { a = a + 1 }", systemFunctions, null);
+
+        assertEquals("3", values.get("a"));
+        assertEquals("2", values.get("i"));
+        assertTrue(systemFunctions.getVariables().asMap().isEmpty());
+    }
+}
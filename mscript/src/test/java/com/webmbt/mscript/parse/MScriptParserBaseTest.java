@@ -1,6 +1,7 @@
 package com.webmbt.mscript.parse;
 
 import com.webmbt.mscript.Functions;
+import com.webmbt.mscript.MScriptValidator;
 import com.webmbt.mscript.test.fixture.FunctionsFixture;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.BaseErrorListener;
@@ -94,7 +95,7 @@ public class MScriptParserBaseTest {
      * href="http://xunitpatterns.com/SUT.html">system under test (or SUT)</a> for simple {@link
      * com.webmbt.mscript.parse.MScriptParser} tests i.e. to parse streams containing MScript code and return resulting
      * {@link ParseTree parse tree}. Encapsulates the code required to call the MScript parser from any application. If
-     * the parsing process fails, tests calling this method will also fail.
+     * the parsing process (function call validation included) fails, tests calling this method will also fail.
      *
      * @param chars <a href="http://xunitpatterns.com/test%20fixture%20-%20xUnit.html">fixture</a> {@link
      *              ANTLRInputStream input stream} to be parsed
@@ -103,13 +104,15 @@ public class MScriptParserBaseTest {
     protected ParseTree parse(ANTLRInputStream chars) {
         MScriptLexer mScriptLexer = new MScriptLexer(chars);
 
-        MScriptParser mScriptParser =
-            new MScriptParser(new CommonTokenStream(mScriptLexer), functionsFixture.getSystemFunctions(),
-                              functionsFixture.getAvailablePlugins());
+        MScriptParser mScriptParser = new MScriptParser(new CommonTokenStream(mScriptLexer));
 
         // Set up a custom error listener that forces a test to fail upon the first parsing error:
         mScriptParser.addErrorListener(new MScriptParserTestErrorListener());
 
-        return mScriptParser.script();
+        ParseTree parseTree = mScriptParser.script();
+        new MScriptValidator(functions.dispatchTable(functionsFixture.getSystemFunctions(),
+                                                     functionsFixture.getAvailablePlugins()))
+            .validate(mScriptParser, parseTree);
+        return parseTree;
     }
 }
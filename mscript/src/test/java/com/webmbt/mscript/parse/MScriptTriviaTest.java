@@ -0,0 +1,111 @@
+package com.webmbt.mscript.parse;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author TestOptimal, LLC
+ * @version 1.0, Oct 18, 2026
+ */
+public class MScriptTriviaTest extends MScriptParserBaseTest {
+
+    @Test
+    public void givenHiddenCommentsThenParseTreesAreSmallerAndCommentsCanBeRecovered() throws IOException {
+        File[] scripts = new File("mscript").listFiles(MScriptParserAutoTest.MSCRIPT_FILE_FILTER);
+        assertNotNull(scripts);
+
+        Logger log = Logger.getLogger(MScriptTriviaTest.class.getName());
+        for (File script : scripts) {
+            String mScript = new String(Files.readAllBytes(script.toPath()), StandardCharsets.UTF_8);
+
+            CommonTokenStream keptTokens = tokens(mScript, false, false);
+            ParseTree kept = parser(keptTokens).script();
+            CommonTokenStream hiddenTokens = tokens(mScript, true, false);
+            ParseTree hidden = parser(hiddenTokens).script();
+
+            List<String> keptComments = new ArrayList<>();
+            collectComments(kept, keptComments);
+            List<String> hiddenComments = new ArrayList<>();
+            for (Token comment : MScriptTrivia.comments(hiddenTokens)) {
+                assertEquals(Token.HIDDEN_CHANNEL, comment.getChannel());
+                hiddenComments.add(comment.getText());
+            }
+            assertEquals(script.getName(), keptComments, hiddenComments);
+
+            int keptNodes = size(kept), hiddenNodes = size(hidden);
+            assertTrue(script.getName(), keptComments.isEmpty() ? hiddenNodes == keptNodes : hiddenNodes < keptNodes);
+            log.info(script.getName() + ": " + keptNodes + " parse tree node(s) with comments, " + hiddenNodes +
+                     " with hidden comments");
+        }
+    }
+
+    @Test
+    public void givenHiddenCommentsThenTheyAreAttachedToTheSurroundingNodes() {
+        CommonTokenStream tokens = tokens("a = 1 // one\n/* two */ b = 2", true, false);
+        MScriptParser.StatsContext stats = parser(tokens).script().stats();
+
+        assertEquals("[// one]", texts(MScriptTrivia.trailingComments(tokens, stats.stat(0))));
+        assertEquals("[/* two */]", texts(MScriptTrivia.leadingComments(tokens, stats.stat(1))));
+        assertEquals("[]", texts(MScriptTrivia.leadingComments(tokens, stats.stat(0))));
+    }
+
+    @Test
+    public void givenHiddenNewlinesThenExpressionsCanSpanSeveralLines() {
+        MScriptParser.CondContext cond = parser(tokens("1 +\n // one\n 2\n <\n 4", true, true)).cond();
+        assertEquals(3, cond.getChildCount()); // expr, condOp and expr only, no padding
+    }
+
+    protected CommonTokenStream tokens(String mScript, boolean hideComments, boolean hideNewlines) {
+        CommonTokenStream tokens = new CommonTokenStream(
+            new MScriptLexer(new ANTLRInputStream(mScript)).setHiddenTrivia(hideComments, hideNewlines));
+        tokens.fill();
+        return tokens;
+    }
+
+    protected MScriptParser parser(CommonTokenStream tokens) {
+        MScriptParser mScriptParser = new MScriptParser(tokens);
+        mScriptParser.addErrorListener(new MScriptParserTestErrorListener());
+        return mScriptParser;
+    }
+
+    private static int size(ParseTree tree) {
+        int size = 1;
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            size += size(tree.getChild(i));
+        }
+        return size;
+    }
+
+    private static void collectComments(ParseTree tree, List<String> comments) {
+        if (tree instanceof TerminalNode && ((TerminalNode) tree).getSymbol().getType() == MScriptLexer.COMM) {
+            comments.add(tree.getText());
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            collectComments(tree.getChild(i), comments);
+        }
+    }
+
+    private static String texts(List<Token> tokens) {
+        List<String> texts = new ArrayList<>();
+        for (Token token : tokens) {
+            texts.add(token.getText());
+        }
+        return texts.toString();
+    }
+}